@@ -0,0 +1,103 @@
+package com.example.student_management.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Встроенная H2 в режиме MySQL для JMH-бенчмарков: та же schema.sql, что и у приложения,
+ * плюс сгенерированные студенты и оценки нужного объема.
+ */
+final class BenchmarkDatabase {
+    static final String[] FIRST_NAMES = {"Айдар", "Алия", "Дархан", "Жанна", "Ерлан", "Қуаныш", "Әсел", "Нұрлан",
+            "Ivan", "Maria", "John", "Anna", "Dinmukhamed", "Tauasar", "Мадра", "Қақащи"};
+    static final String[] LAST_NAMES = {"Ахметов", "Серікұлы", "Жұмабаева", "Иванов", "Петрова", "Смирнов", "Aqtay",
+            "Akniet", "Kuzmin", "Nurlanuly", "Бекова", "Сұлтанов", "Минато", "Щесуи", "Ormanov", "Talgatova"};
+    static final String[] SUBJECTS = {"Математика", "Физика", "История", "Химия", "Биология", "Информатика",
+            "Английский язык", "Казахский язык", "Литература", "География"};
+    static final int GROUPS = 40;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Создает новую базу в памяти и заполняет ее.
+     *
+     * @param name Имя базы (у каждого бенчмарка своя).
+     * @param students Сколько студентов сгенерировать.
+     * @param gradesPerStudent Сколько оценок на каждого студента.
+     * @return Пул соединений к заполненной базе.
+     */
+    static HikariDataSource create(String name, int students, int gradesPerStudent) throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setMaximumPoolSize(4);
+        HikariDataSource dataSource = new HikariDataSource(config);
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        seed(dataSource, students, gradesPerStudent);
+        return dataSource;
+    }
+
+    static String groupName(int index) {
+        return String.format("%02d-%02d", 20 + index / 10, index % 10 + 1);
+    }
+
+    private static void seed(HikariDataSource dataSource, int students, int gradesPerStudent) throws SQLException {
+        Random random = new Random(42);
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO students (first_name, last_name, group_name) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= students; i++) {
+                    ps.setString(1, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+                    ps.setString(2, LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                    ps.setString(3, groupName(random.nextInt(GROUPS)));
+                    ps.addBatch();
+                    if (i % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+
+            // schema.sql уже добавила своих студентов, поэтому берем реальный максимальный id
+            int maxStudentId = maxStudentId(conn);
+            LocalDate firstDay = LocalDate.of(2024, 9, 1);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO grades (student_id, subject, score, grade_date) VALUES (?, ?, ?, ?)")) {
+                int total = students * gradesPerStudent;
+                for (int i = 1; i <= total; i++) {
+                    ps.setInt(1, 1 + random.nextInt(maxStudentId));
+                    ps.setString(2, SUBJECTS[random.nextInt(SUBJECTS.length)]);
+                    ps.setInt(3, random.nextInt(101));
+                    ps.setDate(4, Date.valueOf(firstDay.plusDays(random.nextInt(270))));
+                    ps.addBatch();
+                    if (i % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    static int maxStudentId(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT MAX(id) FROM students");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.config.GatedDataSource;
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradeRollups;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест модели потоков: волна из clients одновременных "запросов" на один пул из poolSize соединений.
+ * Каждый запрос делает findGradesByStudentId через GradeDAO и еще outsideDbMillis блокируется вне базы
+ * (чтение тела запроса, медленный клиент), как это происходит в Tomcat.
+ * <ul>
+ *     <li>platform - пул из 200 потоков ОС, как у Tomcat по умолчанию (thread-per-request);</li>
+ *     <li>virtual - виртуальный поток на каждый запрос (spring.threads.virtual.enabled=true).</li>
+ * </ul>
+ * gate=true ставит перед пулом {@link GatedDataSource} размером poolSize.
+ * Результат - время обработки всей волны, меньше - лучше.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class ConnectionGateBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param("2000")
+    public int students;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"false", "true"})
+    public boolean gate;
+
+    @Param("2000")
+    public int clients;
+
+    @Param("10")
+    public int poolSize;
+
+    @Param("50")
+    public int outsideDbMillis;
+
+    private HikariDataSource pool;
+    private GradeDAO gradeDAO;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        pool = BenchmarkDatabase.create("connection_gate", students, 10);
+        pool.setMaximumPoolSize(poolSize);
+        DataSource dataSource = gate ? new GatedDataSource(pool, poolSize, Duration.ofSeconds(30)) : pool;
+        GradeRollups rollups = new GradeRollups(false);
+        gradeDAO = new GradeDAO(dataSource, rollups, new GradeColumns(false), new DeletedStudents(),
+                new ChangeVersions());
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    @Benchmark
+    public int wave() throws Exception {
+        List<Future<Integer>> results = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(() -> {
+                Thread.sleep(outsideDbMillis);
+                return gradeDAO.findGradesByStudentId(1 + ThreadLocalRandom.current().nextInt(students)).size();
+            }));
+        }
+        int rows = 0;
+        for (Future<Integer> result : results) {
+            rows += result.get();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradeRollups;
+import com.example.student_management.model.Grades;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение оценок через GradeDAO: полная выгрузка списком (как GET /api/grades), потоковое чтение,
+ * страница по курсору и оценки одного студента. Во всех случаях строки маппит RowMappers.grades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GradeDaoBenchmark {
+
+    @Param("10000")
+    public int students;
+
+    @Param("20")
+    public int gradesPerStudent;
+
+    private HikariDataSource dataSource;
+    private GradeDAO gradeDAO;
+    private int maxStudentId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDatabase.create("grade_dao", students, gradesPerStudent);
+        GradeRollups rollups = new GradeRollups(false);
+        gradeDAO = new GradeDAO(dataSource, rollups, new GradeColumns(false), new DeletedStudents(),
+                new ChangeVersions());
+        try (Connection conn = dataSource.getConnection()) {
+            maxStudentId = BenchmarkDatabase.maxStudentId(conn);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Grades> findAll() {
+        return gradeDAO.findAll();
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        gradeDAO.streamAll(blackhole::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Grades> findFirstPage() {
+        return gradeDAO.findPage(null, 1000);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Grades> findGradesByStudentId() {
+        return gradeDAO.findGradesByStudentId(1 + ThreadLocalRandom.current().nextInt(maxStudentId));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.model.Grades;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация List&lt;Grades&gt; в JSON тем же ObjectMapper, что строит Spring Boot
+ * (JavaTimeModule, даты строкой). Это последний шаг GET /api/grades и /api/students/{id}/grades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GradeJsonBenchmark {
+
+    @Param({"100", "10000"})
+    public int grades;
+
+    private ObjectMapper objectMapper;
+    private List<Grades> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Random random = new Random(42);
+        list = new ArrayList<>(grades);
+        for (int i = 0; i < grades; i++) {
+            list.add(new Grades(i + 1, 1 + random.nextInt(1000),
+                    BenchmarkDatabase.SUBJECTS[random.nextInt(BenchmarkDatabase.SUBJECTS.length)],
+                    random.nextInt(101), LocalDate.of(2024, 9, 1).plusDays(random.nextInt(270))));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeToBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public void serializeToStream() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), list);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradeRollups;
+import com.example.student_management.dao.GradebookDAO;
+import com.example.student_management.dao.StudentCache;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.dao.StudentGroupIndex;
+import com.example.student_management.dao.StudentSearchIndex;
+import com.example.student_management.model.GradeBatchResult;
+import com.example.student_management.model.Grades;
+import com.example.student_management.service.ChangeFeed;
+import com.example.student_management.service.GradeService;
+import com.example.student_management.service.GradeWriteBehindQueue;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь записи GradeService: валидация и проверка студента в addGrade, отказ на невалидной оценке
+ * (только валидация, без базы) и пакетная загрузка addGrades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GradeServiceBenchmark {
+
+    @Param("10000")
+    public int students;
+
+    /** Размер кэша студентов: 0 - каждая проверка студента идет в базу. */
+    @Param({"0", "10000"})
+    public int studentCacheSize;
+
+    /** Отложенная запись с групповым коммитом (addGrade ждет записи своей пачки). */
+    @Param({"false"})
+    public boolean writeBehind;
+
+    private HikariDataSource dataSource;
+    private GradeWriteBehindQueue writeQueue;
+    private GradeService gradeService;
+    private int maxStudentId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDatabase.create("grade_service", students, 0);
+        // агрегаты включены, как в приложении: addGrade платит и за их обновление
+        GradeRollups rollups = new GradeRollups(true);
+        GradeColumns columns = new GradeColumns(false);
+        DeletedStudents deletedStudents = new DeletedStudents();
+        ChangeVersions changeVersions = new ChangeVersions();
+        StudentDAO studentDAO = new StudentDAO(dataSource, new StudentCache(studentCacheSize, Duration.ofMinutes(5)),
+                new StudentSearchIndex(), new StudentGroupIndex(), deletedStudents, rollups, columns, changeVersions);
+        GradeDAO gradeDAO = new GradeDAO(dataSource, rollups, columns, deletedStudents, changeVersions);
+        rollups.rebuild(studentDAO::streamAll, gradeDAO::streamAll);
+        writeQueue = new GradeWriteBehindQueue(gradeDAO, writeBehind, 10_000, 500,
+                Duration.ZERO, Duration.ofMillis(100), Duration.ofSeconds(30), Duration.ofSeconds(10));
+        writeQueue.start();
+        gradeService = new GradeService(gradeDAO, studentDAO, new GradebookDAO(dataSource), writeQueue,
+                changeVersions, new ChangeFeed(256, 1000, 1000, Duration.ofSeconds(15), Duration.ofMinutes(30),
+                Duration.ofSeconds(1)));
+        try (Connection conn = dataSource.getConnection()) {
+            maxStudentId = BenchmarkDatabase.maxStudentId(conn);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writeQueue.stop();
+        dataSource.close();
+    }
+
+    private Grades randomGrade() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Grades(null, 1 + random.nextInt(maxStudentId),
+                BenchmarkDatabase.SUBJECTS[random.nextInt(BenchmarkDatabase.SUBJECTS.length)],
+                random.nextInt(101), LocalDate.of(2025, 1, 1).plusDays(random.nextInt(100)));
+    }
+
+    /**
+     * Запускайте с несколькими потоками (-t 16 -p writeBehind=true,false), чтобы увидеть эффект группового коммита.
+     */
+    @Benchmark
+    public Grades addGrade() {
+        return gradeService.addGrade(randomGrade());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object addGradeRejectedByValidation() {
+        Grades grade = randomGrade();
+        grade.setScore(150);
+        try {
+            return gradeService.addGrade(grade);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public GradeBatchResult addGradesBatchOf1000() {
+        List<Grades> batch = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            batch.add(randomGrade());
+        }
+        return gradeService.addGrades(batch);
+    }
+}
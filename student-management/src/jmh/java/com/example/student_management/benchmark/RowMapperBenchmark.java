@@ -0,0 +1,119 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.dao.RowMappers;
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг полной таблицы: прежние мапперы по имени колонки (rs.getInt("id"), getDate(...).toLocalDate())
+ * против {@link RowMappers} (индексы колонок один раз на ResultSet, LocalDate через getObject).
+ * Запрос одинаковый, разница - только в маппинге строк.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowMapperBenchmark {
+    private static final String GRADES_SQL = "SELECT id, student_id, subject, score, grade_date, version FROM grades";
+    private static final String STUDENTS_SQL = "SELECT id, first_name, last_name, group_name, version FROM students";
+
+    @Param("10000")
+    public int students;
+
+    @Param("20")
+    public int gradesPerStudent;
+
+    private HikariDataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDatabase.create("row_mapper", students, gradesPerStudent);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void gradesByName(Blackhole blackhole) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(GRADES_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(gradeByName(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    public void gradesByIndex(Blackhole blackhole) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(GRADES_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
+            while (rs.next()) {
+                blackhole.consume(mapper.map(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void studentsByName(Blackhole blackhole) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(STUDENTS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(studentByName(rs));
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void studentsByIndex(Blackhole blackhole) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(STUDENTS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            RowMappers.RowMapper<Students> mapper = RowMappers.students(rs);
+            while (rs.next()) {
+                blackhole.consume(mapper.map(rs));
+            }
+        }
+    }
+
+    /** Прежний GradeDAO.mapRowToGrade. */
+    private static Grades gradeByName(ResultSet rs) throws SQLException {
+        Grades grade = new Grades();
+        grade.setId(rs.getInt("id"));
+        grade.setStudentId(rs.getInt("student_id"));
+        grade.setSubject(rs.getString("subject"));
+        grade.setScore(rs.getInt("score"));
+        grade.setGradeDate(rs.getDate("grade_date").toLocalDate());
+        grade.setVersion(rs.getInt("version"));
+        return grade;
+    }
+
+    /** Прежний StudentDAO.mapRowToStudent. */
+    private static Students studentByName(ResultSet rs) throws SQLException {
+        Students student = new Students();
+        student.setId(rs.getInt("id"));
+        student.setFirstName(rs.getString("first_name"));
+        student.setLastName(rs.getString("last_name"));
+        student.setGroupName(rs.getString("group_name"));
+        student.setVersion(rs.getInt("version"));
+        return student;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeRollups;
+import com.example.student_management.dao.StudentCache;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.dao.StudentGroupIndex;
+import com.example.student_management.dao.StudentSearchIndex;
+import com.example.student_management.model.Students;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StudentDAO.findAll с разными фильтрами и сортировками (то, что делает GET /api/students на каждый ввод в поиске).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StudentDaoBenchmark {
+
+    @Param("10000")
+    public int students;
+
+    /** Поле сортировки: "" - без сортировки, "lastName", "firstName", "id". */
+    @Param({"", "lastName"})
+    public String sortBy;
+
+    private HikariDataSource dataSource;
+    private StudentDAO studentDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = BenchmarkDatabase.create("student_dao", students, 0);
+        GradeRollups rollups = new GradeRollups(false);
+        studentDAO = new StudentDAO(dataSource, new StudentCache(0, Duration.ZERO), new StudentSearchIndex(),
+                new StudentGroupIndex(), new DeletedStudents(), rollups, new GradeColumns(false), new ChangeVersions());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Students> findAllWithoutFilter() {
+        return studentDAO.findAll(null, null, sortBy, "asc");
+    }
+
+    @Benchmark
+    public List<Students> findAllLastNameContains() {
+        return studentDAO.findAll(null, "ов", StudentDAO.NameMatch.CONTAINS, sortBy, "asc");
+    }
+
+    @Benchmark
+    public List<Students> findAllLastNamePrefix() {
+        return studentDAO.findAll(null, "Сұл", StudentDAO.NameMatch.PREFIX, sortBy, "asc");
+    }
+
+    @Benchmark
+    public List<Students> findAllBothNamesContains() {
+        return studentDAO.findAll("ан", "ов", StudentDAO.NameMatch.CONTAINS, sortBy, "desc");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.student_management.benchmark;
+
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Итоги семестрового отчета по колоночной копии оценок: в одном потоке (pool = null)
+ * против пула fork-join из threads потоков. Данные синтетические, без базы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TermReportBenchmark {
+    private static final int GROUPS = 40;
+    private static final int SUBJECTS = 15;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 9, 1);
+
+    @Param("5000000")
+    public int grades;
+
+    /** 0 - по числу ядер. */
+    @Param({"1", "2", "4", "0"})
+    public int threads;
+
+    private GradeColumns columns;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int students = Math.max(1, grades / 20);
+        SplittableRandom random = new SplittableRandom(42);
+        columns = new GradeColumns(true);
+        columns.rebuild(consumer -> {
+            for (int id = 1; id <= students; id++) {
+                consumer.accept(new Students(id, "Имя" + id, "Фамилия" + id, "G-" + (id % GROUPS)));
+            }
+        }, consumer -> {
+            for (int id = 1; id <= grades; id++) {
+                consumer.accept(new Grades(id, 1 + random.nextInt(students), "Предмет " + random.nextInt(SUBJECTS),
+                        random.nextInt(101), FIRST_DAY.plusDays(random.nextInt(120))));
+            }
+        });
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public GradeColumns.Totals serial() {
+        return columns.aggregate(null, FIRST_DAY.plusDays(90), 50, null, new AtomicBoolean());
+    }
+
+    @Benchmark
+    public GradeColumns.Totals parallel() {
+        return columns.aggregate(null, FIRST_DAY.plusDays(90), 50, pool, new AtomicBoolean());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.student_management.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Замеряет каждый публичный метод DAO (все классы с @Repository), не трогая сами DAO.
+ * <ul>
+ *     <li>dao.query (теги dao, method, exception) - время вызова вместе с получением соединения и маппингом строк;</li>
+ *     <li>dao.query.rows (теги dao, method) - сколько строк вернул или изменил запрос;</li>
+ *     <li>вызовы дольше dao.metrics.slow-query-threshold пишутся в лог как медленные.</li>
+ * </ul>
+ * Время ожидания соединения в пуле отдельно показывает hikaricp.connections.acquire (Hikari регистрирует его сам).
+ * Для потоковых методов (streamAll) в время входит и обработчик строк, то есть запись ответа клиенту.
+ * В лог медленных вызовов попадают только типы аргументов и размеры коллекций, но не значения:
+ * пакет на 10 000 оценок не раздувает лог, а имена студентов в него не попадают.
+ */
+@Aspect
+@Component
+public class DaoMetricsAspect {
+    private static final Logger log = LoggerFactory.getLogger(DaoMetricsAspect.class);
+
+    private final MeterRegistry registry;
+    private final long slowQueryThresholdNanos;
+
+    @Autowired
+    public DaoMetricsAspect(MeterRegistry registry,
+                            @Value("${dao.metrics.slow-query-threshold:500ms}") Duration slowQueryThreshold) {
+        this.registry = registry;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Around("within(@org.springframework.stereotype.Repository *) && execution(public * *(..))")
+    public Object timeDaoCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        String dao = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        String exception = "none";
+        Object result = null;
+        long start = System.nanoTime();
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("dao.query")
+                    .description("Время вызова метода DAO")
+                    .tags("dao", dao, "method", method, "exception", exception)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+
+            long rows = rowCount(result);
+            if (rows >= 0) {
+                DistributionSummary.builder("dao.query.rows")
+                        .description("Сколько строк вернул или изменил метод DAO")
+                        .baseUnit("rows")
+                        .tags("dao", dao, "method", method)
+                        .publishPercentileHistogram()
+                        .register(registry)
+                        .record(rows);
+            }
+
+            if (elapsed > slowQueryThresholdNanos) {
+                log.warn("Slow DAO call {}.{} took {} ms (rows: {}, args: {})", dao, method,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), rows >= 0 ? rows : "n/a",
+                        describeArgs(joinPoint.getArgs()));
+            }
+        }
+    }
+
+    /**
+     * Аргументы для лога без значений: "List[10000], Integer, null".
+     */
+    static String describeArgs(Object[] args) {
+        return Arrays.stream(args).map(arg -> {
+            if (arg == null) {
+                return "null";
+            }
+            // у лямбд (например, Consumer в streamAll) имя класса сгенерированное - берем интерфейс
+            Class<?> argType = arg.getClass().isHidden() && arg.getClass().getInterfaces().length > 0
+                    ? arg.getClass().getInterfaces()[0] : arg.getClass();
+            String type = argType.getSimpleName();
+            if (arg instanceof Collection<?> collection) {
+                return (arg instanceof List ? "List" : arg instanceof Set ? "Set" : type) + "[" + collection.size() + "]";
+            }
+            if (arg instanceof Map<?, ?> map) {
+                return "Map[" + map.size() + "]";
+            }
+            if (arg.getClass().isArray()) {
+                return arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]";
+            }
+            return type;
+        }).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Количество строк по результату метода: размер списка, 0/1 для Optional, затронутые строки для update/delete.
+     *
+     * @return Количество строк или -1, если по результату его не понять (void, одиночный объект).
+     */
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer affected) {
+            return affected;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.student_management.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Ограничение одновременных обращений к базе для режима виртуальных потоков
+ * (spring.threads.virtual.enabled=true): DataSource из автоконфигурации оборачивается в {@link GatedDataSource}.
+ * Сам пул Hikari остается прежним бином внутри обертки, его метрики и настройки не меняются.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * static - чтобы post-processor создавался раньше остальных бинов и не тянул за собой всю конфигурацию.
+     */
+    @Bean
+    public static BeanPostProcessor connectionGatePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof GatedDataSource
+                        || !environment.getProperty("jdbc.gate.enabled", Boolean.class, true)) {
+                    return bean;
+                }
+                // по умолчанию шлюз равен размеру пула: к Hikari приходят только те, кому точно хватит соединения
+                int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                int maxConcurrent = environment.getProperty("jdbc.gate.max-concurrent", Integer.class, poolSize);
+                Duration timeout = environment.getProperty("jdbc.gate.acquire-timeout", Duration.class, Duration.ofSeconds(30));
+                return new GatedDataSource(dataSource, maxConcurrent, timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.student_management.config;
+
+import com.example.student_management.dao.ChangeVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Условные GET для эндпоинтов чтения: проверка If-None-Match / If-Modified-Since по счетчикам
+ * {@link ChangeVersions} до запроса к базе и заголовки ETag, Last-Modified и Cache-Control в ответе.
+ * <p>
+ * Cache-Control задается на каждый эндпоинт свойством http.cache-control.&lt;endpoint&gt;
+ * (например, http.cache-control.students=private, max-age=5), без него берется http.cache-control.default.
+ * Пустое значение - заголовок не отправляется.
+ * <p>
+ * Last-Modified передается с точностью до секунды, а изменения идут чаще. Поэтому, пока последнее изменение
+ * приходится на текущую секунду, Last-Modified не отправляется и If-Modified-Since не проверяется
+ * (остается только ETag): иначе клиент, получивший ответ до записи в ту же секунду, получал бы 304
+ * на устаревшие данные, пока они снова не изменятся.
+ */
+@Component
+public class HttpCaching {
+    static final String PROPERTY_PREFIX = "http.cache-control.";
+
+    /** По умолчанию браузер хранит ответ, но перед каждым использованием сверяет ETag с сервером. */
+    static final String DEFAULT_CACHE_CONTROL = "no-cache";
+
+    private final Environment environment;
+    private final Clock clock;
+    private final Map<String, String> cacheControlByEndpoint = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HttpCaching(Environment environment) {
+        this(environment, Clock.systemUTC());
+    }
+
+    HttpCaching(Environment environment, Clock clock) {
+        this.environment = environment;
+        this.clock = clock;
+    }
+
+    /**
+     * Совпадает ли закэшированная у клиента версия с текущей. Если есть If-None-Match, If-Modified-Since
+     * не смотрится (как требует RFC 9110).
+     *
+     * @param request Текущий запрос.
+     * @param validator Текущая версия данных.
+     * @return true, если можно ответить 304 Not Modified.
+     */
+    public boolean isNotModified(WebRequest request, ChangeVersions.Validator validator) {
+        String[] ifNoneMatch = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String header : ifNoneMatch) {
+                for (String tag : header.split(",")) {
+                    String value = tag.trim();
+                    if (value.startsWith("W/")) {
+                        value = value.substring(2);
+                    }
+                    if (value.equals("*") || value.equals(validator.etag())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        if (inCurrentSecond(validator)) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            // в заголовке точность до секунды
+            return validator.lastModified() / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ответ 304 Not Modified без тела, с теми же валидаторами и Cache-Control, что и у 200.
+     */
+    public <T> ResponseEntity<T> notModified(String endpoint, ChangeVersions.Validator validator) {
+        return withHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), endpoint, validator).build();
+    }
+
+    /**
+     * Начало ответа 200 OK с ETag, Last-Modified и Cache-Control эндпоинта; тело добавляет вызывающий.
+     */
+    public ResponseEntity.BodyBuilder ok(String endpoint, ChangeVersions.Validator validator) {
+        return withHeaders(ResponseEntity.ok(), endpoint, validator);
+    }
+
+    /**
+     * @return Значение Cache-Control для эндпоинта (пустая строка - не отправлять).
+     */
+    public String cacheControl(String endpoint) {
+        return cacheControlByEndpoint.computeIfAbsent(endpoint, name -> environment.getProperty(PROPERTY_PREFIX + name,
+                environment.getProperty(PROPERTY_PREFIX + "default", DEFAULT_CACHE_CONTROL)).trim());
+    }
+
+    private ResponseEntity.BodyBuilder withHeaders(ResponseEntity.BodyBuilder builder, String endpoint,
+                                                   ChangeVersions.Validator validator) {
+        builder.eTag(validator.etag());
+        if (!inCurrentSecond(validator)) {
+            builder.lastModified(validator.lastModified());
+        }
+        String cacheControl = cacheControl(endpoint);
+        if (!cacheControl.isEmpty()) {
+            builder.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return builder;
+    }
+
+    /**
+     * @return true, если последнее изменение было в текущую секунду, и в той же секунде возможны еще изменения.
+     */
+    private boolean inCurrentSecond(ChangeVersions.Validator validator) {
+        return validator.lastModified() / 1000 >= clock.millis() / 1000;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.student_management.config;
+
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.StatementCacheStats;
+import com.example.student_management.dao.StudentCache;
+import com.example.student_management.dao.StudentSearchIndex;
+import com.example.student_management.service.ChangeFeed;
+import com.example.student_management.service.GradeWriteBehindQueue;
+import com.example.student_management.service.StudentPurger;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Метрики внутренних структур в памяти, которых нет среди стандартных метрик Spring Boot.
+ * HTTP (http.server.requests), пул соединений (hikaricp.*) и JVM регистрируются автоматически через actuator.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Кэш студентов по ID: размер и счетчики попаданий/промахов/вытеснений.
+     */
+    @Bean
+    public MeterBinder studentCacheMetrics(StudentCache studentCache) {
+        return registry -> {
+            Gauge.builder("students.cache.size", studentCache, cache -> cache.stats().getSize())
+                    .description("Количество студентов в кэше")
+                    .register(registry);
+            FunctionCounter.builder("students.cache.requests", studentCache, cache -> cache.stats().getHits())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("students.cache.requests", studentCache, cache -> cache.stats().getMisses())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("students.cache.evictions", studentCache, cache -> cache.stats().getEvictions())
+                    .tag("cause", "size")
+                    .register(registry);
+            FunctionCounter.builder("students.cache.evictions", studentCache, cache -> cache.stats().getExpirations())
+                    .tag("cause", "ttl")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Триграммный индекс имен: сколько студентов проиндексировано и готов ли он отвечать на поиск.
+     */
+    @Bean
+    public MeterBinder studentSearchIndexMetrics(StudentSearchIndex searchIndex) {
+        return registry -> {
+            Gauge.builder("students.search.index.size", searchIndex, StudentSearchIndex::size)
+                    .description("Количество студентов в индексе поиска")
+                    .register(registry);
+            Gauge.builder("students.search.index.ready", searchIndex, index -> index.isReady() ? 1 : 0)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Колоночная копия оценок: сколько строк загружено и сколько памяти занимают массивы.
+     */
+    @Bean
+    public MeterBinder gradeColumnsMetrics(GradeColumns columns) {
+        return registry -> {
+            Gauge.builder("grades.columns.rows", columns, c -> c.stats().rows())
+                    .description("Количество оценок в колоночной копии")
+                    .register(registry);
+            Gauge.builder("grades.columns.bytes", columns, c -> c.stats().bytes())
+                    .description("Память, занятая колоночной копией оценок")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Очередь отложенной записи оценок: сколько оценок ждет группового коммита.
+     */
+    @Bean
+    public MeterBinder gradeWriteQueueMetrics(GradeWriteBehindQueue writeQueue) {
+        return registry -> Gauge.builder("grades.write.queue.size", writeQueue, GradeWriteBehindQueue::size)
+                .description("Оценки в очереди отложенной записи")
+                .register(registry);
+    }
+
+    /**
+     * Фоновая очистка удаленных студентов: сколько студентов ждет и сколько оценок и пачек уже удалено.
+     */
+    @Bean
+    public MeterBinder studentPurgeMetrics(StudentPurger purger) {
+        return registry -> {
+            Gauge.builder("students.purge.pending", purger, StudentPurger::pendingStudents)
+                    .description("Удаленные студенты, чьи оценки еще не вычищены")
+                    .register(registry);
+            FunctionCounter.builder("students.purge.grades", purger, StudentPurger::purgedGrades)
+                    .description("Оценки, удаленные фоновой очисткой")
+                    .register(registry);
+            FunctionCounter.builder("students.purge.students", purger, StudentPurger::purgedStudents)
+                    .description("Студенты, окончательно удаленные из базы")
+                    .register(registry);
+            FunctionCounter.builder("students.purge.batches", purger, StudentPurger::batches)
+                    .description("Пачки DELETE фоновой очистки")
+                    .register(registry);
+            FunctionCounter.builder("students.purge.failures", purger, StudentPurger::failedBatches)
+                    .description("Пачки фоновой очистки, упавшие с ошибкой")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Лента изменений: сколько дашбордов сейчас подписано.
+     */
+    @Bean
+    public MeterBinder changeFeedMetrics(ChangeFeed changeFeed) {
+        return registry -> Gauge.builder("changes.feed.subscribers", changeFeed, ChangeFeed::subscriberCount)
+                .description("Открытые подписки на ленту изменений")
+                .register(registry);
+    }
+
+    /**
+     * Кэш подготовленных запросов драйвера ({@link StatementCacheStats}): сколько запросов готовится на сервере,
+     * сколько выполняется и доля выполнений без повторной подготовки.
+     */
+    @Bean
+    public MeterBinder statementCacheMetrics(StatementCacheStats stats) {
+        return registry -> {
+            FunctionCounter.builder("jdbc.statements.prepares", stats, StatementCacheStats::prepares)
+                    .description("Подготовки запросов на сервере (Com_stmt_prepare)")
+                    .register(registry);
+            FunctionCounter.builder("jdbc.statements.executions", stats, StatementCacheStats::executions)
+                    .description("Выполнения подготовленных запросов (Com_stmt_execute)")
+                    .register(registry);
+            FunctionCounter.builder("jdbc.statements.reprepares", stats, StatementCacheStats::reprepares)
+                    .description("Повторные подготовки после изменения таблиц (Com_stmt_reprepare)")
+                    .register(registry);
+            Gauge.builder("jdbc.statements.open", stats, StatementCacheStats::open)
+                    .description("Подготовленные запросы, открытые на сервере (Prepared_stmt_count)")
+                    .register(registry);
+            Gauge.builder("jdbc.statements.cache.hit-ratio", stats, StatementCacheStats::hitRatio)
+                    .description("Доля выполнений без повторной подготовки запроса")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Шлюз перед пулом соединений ({@link GatedDataSource}): сколько соединений выдано и сколько потоков ждет.
+     */
+    @Bean
+    public MeterBinder connectionGateMetrics(DataSource dataSource) {
+        return registry -> {
+            GatedDataSource gate;
+            try {
+                if (!dataSource.isWrapperFor(GatedDataSource.class)) {
+                    return;
+                }
+                gate = dataSource.unwrap(GatedDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            Gauge.builder("jdbc.gate.in-use", gate, GatedDataSource::getInUse)
+                    .description("Соединения, выданные через шлюз")
+                    .register(registry);
+            Gauge.builder("jdbc.gate.waiting", gate, GatedDataSource::getWaiting)
+                    .description("Потоки, ждущие места перед пулом соединений")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.service.ChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Лента изменений студентов и оценок (Server-Sent Events) для дашбордов вместо периодического опроса.
+ */
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+
+    @Autowired
+    public ChangeFeedController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Подписаться на изменения.
+     * GET /api/changes?studentId=...&group=...  (Accept: text/event-stream)
+     * <p>
+     * Имена событий: student.created, student.updated, student.deleted, grade.created, grade.updated,
+     * grade.deleted; в data - JSON события. Событие "reset" означает, что часть истории потеряна
+     * и данные нужно перечитать целиком. При переподключении EventSource сам передает Last-Event-ID.
+     *
+     * @param studentId (Опционально) Только изменения этого студента и его оценок.
+     * @param group (Опционально) Только изменения студентов этой группы и их оценок.
+     * @param lastEventIdHeader Заголовок Last-Event-ID (ставит браузер при переподключении).
+     * @param lastEventId То же, параметром запроса - для первой подписки с известного места.
+     * @return Поток событий или 503 Service Unavailable, если подписчиков слишком много.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@RequestParam(required = false) Integer studentId,
+                                                @RequestParam(required = false) String group,
+                                                @RequestHeader(value = "Last-Event-ID", required = false)
+                                                Long lastEventIdHeader,
+                                                @RequestParam(required = false) Long lastEventId) {
+        String groupName = group == null || group.trim().isEmpty() ? null : group.trim();
+        try {
+            SseEmitter emitter = changeFeed.subscribe(studentId, groupName,
+                    lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+            return new ResponseEntity<>(emitter, HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -1,56 +1,243 @@
 package com.example.student_management.controller;
 
+import com.example.student_management.config.HttpCaching;
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.model.GradeBatchResult;
+import com.example.student_management.model.GradePage;
+import com.example.student_management.model.GradeSubmission;
+import com.example.student_management.model.GradebookMatrix;
 import com.example.student_management.model.Grades;
+import com.example.student_management.service.GradeExportService;
 import com.example.student_management.service.GradeService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api") // MAIN URL
 @CrossOrigin(origins = "http://localhost:4200") // запросы с Angular приложения
 public class GradeController {
+    /** Через сколько строк сбрасывать буфер в ответ при потоковой выдаче. */
+    private static final int STREAM_FLUSH_EVERY = 500;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     private final GradeService gradeService;
+    private final ObjectMapper objectMapper;
+    private final HttpCaching httpCaching;
+    private final GradeExportService gradeExportService;
 
     @Autowired
-    public GradeController(GradeService gradeService) {
+    public GradeController(GradeService gradeService, ObjectMapper objectMapper, HttpCaching httpCaching,
+                           GradeExportService gradeExportService) {
         this.gradeService = gradeService;
+        this.gradeExportService = gradeExportService;
+        this.objectMapper = objectMapper;
+        this.httpCaching = httpCaching;
     }
 
     /**
      * Получить все оценки, хранящиеся в системе.
      * GET /api/grades
+     * Поддерживает условный GET (If-None-Match / If-Modified-Since): если оценки не менялись, 304 без запроса к базе.
      *
-     * @return ResponseEntity со списком всех оценок.
+     * @param request Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со списком всех оценок или 304 Not Modified.
      */
     @GetMapping("/grades")
-    public ResponseEntity<List<Grades>> getAllGrades() {
+    public ResponseEntity<List<Grades>> getAllGrades(WebRequest request) {
+        ChangeVersions.Validator version = gradeService.getGradesVersion();
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("grades", version);
+        }
         List<Grades> grades = gradeService.getAllGrades();
-        return new ResponseEntity<>(grades, HttpStatus.OK);
+        return httpCaching.ok("grades", version).body(grades);
+    }
+
+    /**
+     * Получить оценки постранично (keyset-пагинация по ID).
+     * GET /api/grades?limit=100&after=123
+     *
+     * @param limit Размер страницы (от 1 до 1000).
+     * @param after ID последней оценки предыдущей страницы (nextCursor из прошлого ответа).
+     * @param request Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со страницей оценок, 304 Not Modified или 400 Bad Request при неверных параметрах.
+     */
+    @GetMapping(value = "/grades", params = "limit")
+    public ResponseEntity<GradePage> getGradesPage(@RequestParam int limit,
+                                                   @RequestParam(required = false) Integer after,
+                                                   WebRequest request) {
+        ChangeVersions.Validator version = gradeService.getGradesVersion();
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("grades", version);
+        }
+        try {
+            GradePage page = gradeService.getGradesPage(after, limit);
+            return httpCaching.ok("grades", version).body(page);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Потоковая выгрузка всех оценок прямо из ResultSet, без сборки списка в памяти.
+     * GET /api/grades/stream?format=ndjson - одна оценка в строке (application/x-ndjson).
+     * GET /api/grades/stream?format=json   - обычный JSON-массив, но отдается кусками (chunked).
+     *
+     * @param format Формат ответа: "ndjson" (по умолчанию) или "json".
+     * @return ResponseEntity с потоковым телом ответа или 400 Bad Request при неизвестном формате.
+     */
+    @GetMapping("/grades/stream")
+    public ResponseEntity<StreamingResponseBody> streamGrades(@RequestParam(defaultValue = "ndjson") String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        if (!ndjson && !"json".equalsIgnoreCase(format)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (ndjson) {
+                    generator.setRootValueSeparator(null); // строки разделяем сами через \n
+                } else {
+                    generator.writeStartArray();
+                }
+                int[] written = {0};
+                gradeService.streamAllGrades(grade -> {
+                    try {
+                        generator.writeObject(grade);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        // клиент оборвал соединение - прерываем чтение из базы
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Выгрузка оценок в CSV для Excel (ведомость за период), с фильтрами.
+     * GET /api/grades/export?group=22-02&subject=...&from=2025-01-01&to=2025-06-30&delimiter=semicolon&compression=gzip
+     * <p>
+     * Файл пишется прямо в ответ на потоке запроса (он виртуальный), а не через StreamingResponseBody:
+     * так на выгрузку не действует spring.mvc.async.request-timeout, и она может идти сколько угодно долго,
+     * пока клиент читает данные.
+     *
+     * @param group (Опционально) Группа.
+     * @param subject (Опционально) Предмет.
+     * @param from (Опционально) Начало периода (yyyy-MM-dd).
+     * @param to (Опционально) Конец периода (yyyy-MM-dd).
+     * @param delimiter Разделитель: "comma" (по умолчанию) или "semicolon".
+     * @param compression "gzip" - отдать файл grades.csv.gz, иначе обычный CSV.
+     * @param response Ответ, в который пишется файл. 400 Bad Request при неверных параметрах,
+     *                 503 Service Unavailable, если уже идет максимум выгрузок.
+     */
+    @GetMapping("/grades/export")
+    public void exportGrades(@RequestParam(required = false) String group,
+                             @RequestParam(required = false) String subject,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestParam(defaultValue = "comma") String delimiter,
+                             @RequestParam(required = false) String compression,
+                             HttpServletResponse response) throws IOException {
+        boolean gzip = "gzip".equalsIgnoreCase(compression);
+        if (compression != null && !gzip && !"none".equalsIgnoreCase(compression)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        try {
+            gradeExportService.exportCsv(group, subject, from, to, delimiter, gzip, (contentType, fileName) -> {
+                response.setContentType(contentType);
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString());
+                return response.getOutputStream();
+            });
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        } catch (IllegalStateException e) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+        }
     }
 
     /**
      * Получить все оценки для конкретного студента.
      * GET /api/students/{studentId}/grades
      *
+     * Поддерживает условный GET: версия считается по оценкам только этого студента.
+     *
      * @param studentId ID студента, чьи оценки нужно получить.
-     * @return ResponseEntity со списком оценок или 404 Not Found, если студент не существует.
+     * @param request Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со списком оценок, 304 Not Modified или 404 Not Found, если студент не существует.
      */
     @GetMapping("/students/{studentId}/grades")
-    public ResponseEntity<List<Grades>> getGradesByStudentId(@PathVariable Integer studentId) {
+    public ResponseEntity<List<Grades>> getGradesByStudentId(@PathVariable Integer studentId, WebRequest request) {
+        ChangeVersions.Validator version = gradeService.getStudentGradesVersion(studentId);
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("student-grades", version);
+        }
         try {
             List<Grades> grades = gradeService.getGradesByStudentId(studentId);
-            return new ResponseEntity<>(grades, HttpStatus.OK); // 200 OK
+            return httpCaching.ok("student-grades", version).body(grades); // 200 OK
         } catch (IllegalArgumentException e) {
             // студент не найден
             return new ResponseEntity<>(HttpStatus.NOT_FOUND); // 404 Not Found
         }
     }
 
+    /**
+     * Получить журнал группы: матрицу "студенты x предметы" со всеми оценками одним запросом.
+     * GET /api/groups/{groupName}/gradebook?from=...&to=...
+     * Заменяет GET /api/students и отдельный GET /api/students/{id}/grades на каждого студента.
+     *
+     * @param groupName Название группы.
+     * @param from Начало периода (необязательно, yyyy-MM-dd).
+     * @param to Конец периода (необязательно, yyyy-MM-dd).
+     * @return ResponseEntity с журналом в колоночном виде, 404 Not Found если в группе нет студентов
+     * или 400 Bad Request при неверном периоде.
+     */
+    @GetMapping("/groups/{groupName}/gradebook")
+    public ResponseEntity<GradebookMatrix> getGroupGradebook(
+            @PathVariable String groupName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return gradeService.getGroupGradebook(groupName, from, to)
+                    .map(matrix -> new ResponseEntity<>(matrix, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Получить одну оценку по ее ID.
      * GET /api/grades/{id}
@@ -87,6 +274,86 @@ public class GradeController {
         } catch (IllegalArgumentException e) {
             // в случае ошибки валидации из сервиса
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // 400 Bad Request
+        } catch (IllegalStateException e) {
+            return queueFull();
+        }
+    }
+
+    /**
+     * Добавить оценку без ожидания записи в базу (клиент прислал заголовок Prefer: respond-async).
+     * POST /api/students/{studentId}/grades
+     * Оценка проверяется сразу, а пишется в базу фоновым потоком вместе с другими (group commit).
+     *
+     * @param studentId ID студента, которому добавляется оценка.
+     * @param grade Объект Grade из тела запроса.
+     * @return ResponseEntity с заявкой: 202 Accepted и Location на ее состояние, 201 Created, если отложенная
+     * запись выключена и оценка уже сохранена, 400 Bad Request при ошибке валидации
+     * или 503 Service Unavailable, если очередь переполнена.
+     */
+    @PostMapping(value = "/students/{studentId}/grades", headers = "Prefer=respond-async")
+    public ResponseEntity<GradeSubmission> submitGrade(@PathVariable Integer studentId, @RequestBody Grades grade) {
+        if (grade.getStudentId() != null && !grade.getStudentId().equals(studentId)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        grade.setStudentId(studentId);
+
+        try {
+            GradeSubmission submission = gradeService.submitGrade(grade);
+            if (submission.getTrackingId() == null) {
+                return new ResponseEntity<>(submission, HttpStatus.CREATED);
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.setLocation(ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/grades/submissions/{trackingId}")
+                    .buildAndExpand(submission.getTrackingId())
+                    .toUri());
+            return new ResponseEntity<>(submission, headers, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return queueFull();
+        }
+    }
+
+    /**
+     * Состояние оценки, принятой с Prefer: respond-async.
+     * GET /api/grades/submissions/{trackingId}
+     *
+     * @param trackingId ID заявки из ответа 202.
+     * @return ResponseEntity с состоянием (PENDING / WRITTEN / FAILED) или 404 Not Found.
+     */
+    @GetMapping("/grades/submissions/{trackingId}")
+    public ResponseEntity<GradeSubmission> getSubmission(@PathVariable String trackingId) {
+        return gradeService.getSubmission(trackingId)
+                .map(submission -> new ResponseEntity<>(submission, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Очередь отложенной записи переполнена: клиенту стоит повторить запрос чуть позже.
+     */
+    private static <T> ResponseEntity<T> queueFull() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Пакетная загрузка оценок (например, импорт за весь семестр).
+     * POST /api/grades/batch
+     *
+     * @param grades Массив оценок из тела запроса (studentId указывается в каждой оценке).
+     * @return ResponseEntity с результатом: 201 Created, если вставлены все строки,
+     * 200 OK с ошибками по строкам, если часть строк отклонена, или 400 Bad Request для пустого/слишком большого пакета.
+     */
+    @PostMapping("/grades/batch")
+    public ResponseEntity<GradeBatchResult> addGrades(@RequestBody List<Grades> grades) {
+        try {
+            GradeBatchResult result = gradeService.addGrades(grades);
+            HttpStatus status = result.getErrors().isEmpty() ? HttpStatus.CREATED : HttpStatus.OK;
+            return new ResponseEntity<>(result, status);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
     }
 
@@ -95,8 +362,9 @@ public class GradeController {
      * PUT /api/grades/{id}
      *
      * @param id ID оценки, которую нужно обновить.
-     * @param grade Объект Grade с обновленными данными.
-     * @return ResponseEntity с обновленной оценкой или 404 Not Found / 400 Bad Request.
+     * @param grade Объект Grade с обновленными данными. Если указан version, обновление условное.
+     * @return ResponseEntity с обновленной оценкой (с новой версией) или 404 Not Found / 400 Bad Request /
+     * 409 Conflict, если версия устарела.
      */
     @PutMapping("/grades/{id}")
     public ResponseEntity<Grades> updateGrade(@PathVariable Integer id, @RequestBody Grades grade) {
@@ -106,16 +374,14 @@ public class GradeController {
         grade.setId(id); // устанавливаем ID из пути тела
 
         try {
-            boolean updated = gradeService.updateGrade(grade);
-            if (updated) {
-                return gradeService.getGradeById(id)
-                        .map(g -> new ResponseEntity<>(g, HttpStatus.OK))
-                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
-            } else {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND); // Оценка не найдена
-            }
+            // ответ собирается из того, что записали, без повторного чтения из базы
+            return gradeService.updateGrade(grade)
+                    .map(g -> new ResponseEntity<>(g, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND)); // Оценка не найдена
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // версия устарела
         }
     }
 
@@ -0,0 +1,94 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.GroupSummary;
+import com.example.student_management.model.Students;
+import com.example.student_management.service.GroupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Группы: список с размерами, состав группы и оценки всех ее студентов.
+ * Группа существует, пока в ней есть хотя бы один студент.
+ */
+@RestController
+@RequestMapping("/api/groups")
+@CrossOrigin(origins = "http://localhost:4200")
+public class GroupController {
+
+    private final GroupService groupService;
+
+    @Autowired
+    public GroupController(GroupService groupService) {
+        this.groupService = groupService;
+    }
+
+    /**
+     * Все группы с количеством студентов.
+     * GET /api/groups
+     *
+     * @return ResponseEntity со списком групп по алфавиту.
+     */
+    @GetMapping
+    public ResponseEntity<List<GroupSummary>> getGroups() {
+        return new ResponseEntity<>(groupService.getGroups(), HttpStatus.OK);
+    }
+
+    /**
+     * Количество студентов в группе.
+     * GET /api/groups/{groupName}
+     *
+     * @param groupName Название группы.
+     * @return ResponseEntity с размером группы или 404 Not Found, если в группе никого нет.
+     */
+    @GetMapping("/{groupName}")
+    public ResponseEntity<GroupSummary> getGroup(@PathVariable String groupName) {
+        return groupService.getGroup(groupName)
+                .map(group -> new ResponseEntity<>(group, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Студенты группы, по фамилии и имени.
+     * GET /api/groups/{groupName}/students
+     *
+     * @param groupName Название группы.
+     * @return ResponseEntity со списком студентов или 404 Not Found, если в группе никого нет.
+     */
+    @GetMapping("/{groupName}/students")
+    public ResponseEntity<List<Students>> getGroupStudents(@PathVariable String groupName) {
+        return groupService.getGroupStudents(groupName)
+                .map(students -> new ResponseEntity<>(students, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Оценки всех студентов группы.
+     * GET /api/groups/{groupName}/grades?from=...&to=...
+     *
+     * @param groupName Название группы.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @return ResponseEntity с оценками по студенту и дате, 404 Not Found если в группе никого нет
+     * или 400 Bad Request при неверном периоде.
+     */
+    @GetMapping("/{groupName}/grades")
+    public ResponseEntity<List<Grades>> getGroupGrades(
+            @PathVariable String groupName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return groupService.getGroupGrades(groupName, from, to)
+                    .map(grades -> new ResponseEntity<>(grades, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
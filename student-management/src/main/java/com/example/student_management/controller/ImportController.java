@@ -0,0 +1,105 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.model.ImportJob;
+import com.example.student_management.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Загрузка больших CSV-файлов со студентами и оценками.
+ * Файл передается телом запроса (Content-Type: text/csv, можно с Content-Encoding: gzip) и обрабатывается
+ * по мере чтения, на потоке запроса. Прогресс идущего импорта виден в GET /api/imports.
+ */
+@RestController
+@RequestMapping("/api") // MAIN URL
+@CrossOrigin(origins = "http://localhost:4200") // запросы с Angular приложения
+public class ImportController {
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Импорт студентов.
+     * POST /api/imports/students
+     * Колонки: externalKey (необязательно), firstName, lastName, groupName.
+     *
+     * @return ResponseEntity с отчетом: 200 OK, 500 Internal Server Error, если импорт прерван
+     * (записанные пачки остаются), 400 Bad Request при неверном заголовке файла,
+     * 503 Service Unavailable, если уже идет максимум импортов.
+     */
+    @PostMapping("/imports/students")
+    public ResponseEntity<ImportJob> importStudents(
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        try {
+            return report(importService.importStudents(decode(body, contentEncoding)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Импорт оценок.
+     * POST /api/imports/grades
+     * Колонки: studentKey (внешний ключ из импорта студентов) или studentId, subject, score, gradeDate.
+     *
+     * @return ResponseEntity с отчетом, коды ответа как у импорта студентов.
+     */
+    @PostMapping("/imports/grades")
+    public ResponseEntity<ImportJob> importGrades(
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        try {
+            return report(importService.importGrades(decode(body, contentEncoding)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Последние импорты с прогрессом (без списков ошибок).
+     * GET /api/imports
+     */
+    @GetMapping("/imports")
+    public ResponseEntity<List<ImportJob>> getImports() {
+        return new ResponseEntity<>(importService.getJobs(), HttpStatus.OK);
+    }
+
+    /**
+     * Состояние импорта вместе с ошибками по строкам.
+     * GET /api/imports/{id}
+     *
+     * @return ResponseEntity с отчетом или 404 Not Found.
+     */
+    @GetMapping("/imports/{id}")
+    public ResponseEntity<ImportJob> getImport(@PathVariable String id) {
+        return importService.getJob(id)
+                .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    private static ResponseEntity<ImportJob> report(ImportJob job) {
+        return new ResponseEntity<>(job, job.getStatus() == ImportJob.Status.COMPLETED
+                ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        return "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+    }
+}
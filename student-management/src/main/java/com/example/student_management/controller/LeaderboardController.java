@@ -0,0 +1,71 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.model.Leaderboard;
+import com.example.student_management.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Рейтинги студентов по среднему баллу: общий, по группе, по предмету или по предмету внутри группы.
+ * При равном среднем выше стоит студент с меньшим ID.
+ */
+@RestController
+@RequestMapping("/api/leaderboard")
+@CrossOrigin(origins = "http://localhost:4200")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    /**
+     * Первые N студентов рейтинга.
+     * GET /api/leaderboard?group=22-02&subject=Математика&limit=50
+     *
+     * @param group (Опционально) Группа.
+     * @param subject (Опционально) Предмет.
+     * @param limit Сколько строк вернуть (до 100).
+     * @return ResponseEntity с рейтингом, 400 Bad Request при неверном limit
+     * или 503 Service Unavailable, пока агрегаты оценок строятся после старта.
+     */
+    @GetMapping
+    public ResponseEntity<Leaderboard> getTop(@RequestParam(required = false) String group,
+                                              @RequestParam(required = false) String subject,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return new ResponseEntity<>(leaderboardService.getTop(group, subject, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Место студента в рейтинге.
+     * GET /api/leaderboard/students/{studentId}?group=22-02&subject=Математика
+     *
+     * @param studentId ID студента.
+     * @param group (Опционально) Группа.
+     * @param subject (Опционально) Предмет.
+     * @return ResponseEntity с рейтингом из одной строки (пустой список, если оценок нет),
+     * 404 Not Found если студента нет или 503 Service Unavailable, пока агрегаты строятся.
+     */
+    @GetMapping("/students/{studentId}")
+    public ResponseEntity<Leaderboard> getRank(@PathVariable Integer studentId,
+                                               @RequestParam(required = false) String group,
+                                               @RequestParam(required = false) String subject) {
+        try {
+            return leaderboardService.getRank(studentId, group, subject)
+                    .map(leaderboard -> new ResponseEntity<>(leaderboard, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
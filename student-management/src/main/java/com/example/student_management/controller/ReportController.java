@@ -0,0 +1,62 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.model.TermReport;
+import com.example.student_management.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Отчеты по всем оценкам, которые считаются в памяти параллельно (см. {@link ReportService}).
+ */
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ReportController {
+
+    private final ReportService reportService;
+
+    @Autowired
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    /**
+     * Семестровый отчет: средние, отклонения и доли сдавших по группам, предметам и парам "группа x предмет".
+     * GET /api/reports/term?from=2025-09-01&to=2025-12-31&passScore=50
+     *
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @param passScore Проходной балл (необязательно, по умолчанию reports.pass-score).
+     * @return ResponseEntity с отчетом, 400 Bad Request при неверном периоде или балле,
+     * 503 Service Unavailable если отчетов уже считается слишком много или отчет отменен.
+     */
+    @GetMapping("/term")
+    public ResponseEntity<TermReport> getTermReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer passScore) {
+        try {
+            return new ResponseEntity<>(reportService.getTermReport(from, to, passScore), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Отменить все отчеты, которые сейчас считаются.
+     * DELETE /api/reports/running
+     *
+     * @return ResponseEntity с количеством отмененных отчетов.
+     */
+    @DeleteMapping("/running")
+    public ResponseEntity<Integer> cancelRunning() {
+        return new ResponseEntity<>(reportService.cancelRunning(), HttpStatus.OK);
+    }
+}
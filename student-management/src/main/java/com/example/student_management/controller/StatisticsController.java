@@ -0,0 +1,218 @@
+package com.example.student_management.controller;
+
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.model.GradeStatistics;
+import com.example.student_management.model.RollupCheck;
+import com.example.student_management.service.StatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Агрегаты по оценкам, которые считаются на сервере, чтобы дашборды не тянули всю таблицу grades.
+ * Во всех методах можно ограничить период параметрами from/to (yyyy-MM-dd, включительно).
+ */
+@RestController
+@RequestMapping("/api/statistics")
+@CrossOrigin(origins = "http://localhost:4200")
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    @Autowired
+    public StatisticsController(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    /**
+     * Статистика одного студента: среднее, минимум, максимум, гистограмма и перцентили.
+     * GET /api/statistics/students/{studentId}?from=...&to=...&bucketWidth=10
+     *
+     * @param studentId ID студента.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return ResponseEntity со статистикой, 404 Not Found если студента нет или 400 Bad Request.
+     */
+    @GetMapping("/students/{studentId}")
+    public ResponseEntity<GradeStatistics> getStudentStatistics(
+            @PathVariable Integer studentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "" + StatisticsService.DEFAULT_BUCKET_WIDTH) int bucketWidth) {
+        try {
+            return statisticsService.getStudentStatistics(studentId, from, to, bucketWidth)
+                    .map(stats -> new ResponseEntity<>(stats, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Краткая статистика по всем группам.
+     * GET /api/statistics/groups?from=...&to=...
+     *
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @return ResponseEntity со списком статистик по группам.
+     */
+    @GetMapping("/groups")
+    public ResponseEntity<List<GradeStatistics>> getAllGroupsStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return new ResponseEntity<>(statisticsService.getAllGroupsStatistics(from, to), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Полная статистика одной группы.
+     * GET /api/statistics/groups/{groupName}?from=...&to=...&bucketWidth=10
+     *
+     * @param groupName Название группы.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return ResponseEntity со статистикой группы.
+     */
+    @GetMapping("/groups/{groupName}")
+    public ResponseEntity<GradeStatistics> getGroupStatistics(
+            @PathVariable String groupName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "" + StatisticsService.DEFAULT_BUCKET_WIDTH) int bucketWidth) {
+        try {
+            return new ResponseEntity<>(statisticsService.getGroupStatistics(groupName, from, to, bucketWidth), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Краткая статистика по всем предметам.
+     * GET /api/statistics/subjects?from=...&to=...
+     *
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @return ResponseEntity со списком статистик по предметам.
+     */
+    @GetMapping("/subjects")
+    public ResponseEntity<List<GradeStatistics>> getAllSubjectsStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return new ResponseEntity<>(statisticsService.getAllSubjectsStatistics(from, to), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Полная статистика по одному предмету.
+     * GET /api/statistics/subjects/{subject}?from=...&to=...&bucketWidth=10
+     *
+     * @param subject Название предмета.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return ResponseEntity со статистикой предмета.
+     */
+    @GetMapping("/subjects/{subject}")
+    public ResponseEntity<GradeStatistics> getSubjectStatistics(
+            @PathVariable String subject,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "" + StatisticsService.DEFAULT_BUCKET_WIDTH) int bucketWidth) {
+        try {
+            return new ResponseEntity<>(statisticsService.getSubjectStatistics(subject, from, to, bucketWidth), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Статистика студента по каждому предмету.
+     * GET /api/statistics/students/{studentId}/subjects?from=...&to=...
+     *
+     * @param studentId ID студента.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @return ResponseEntity со списком по предметам, 404 Not Found если студента нет или 400 Bad Request.
+     */
+    @GetMapping("/students/{studentId}/subjects")
+    public ResponseEntity<List<GradeStatistics>> getStudentSubjectStatistics(
+            @PathVariable Integer studentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return statisticsService.getStudentSubjectStatistics(studentId, from, to)
+                    .map(stats -> new ResponseEntity<>(stats, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Статистика группы по каждому предмету.
+     * GET /api/statistics/groups/{groupName}/subjects?from=...&to=...
+     *
+     * @param groupName Название группы.
+     * @param from Начало периода (необязательно).
+     * @param to Конец периода (необязательно).
+     * @return ResponseEntity со списком по предметам.
+     */
+    @GetMapping("/groups/{groupName}/subjects")
+    public ResponseEntity<List<GradeStatistics>> getGroupSubjectStatistics(
+            @PathVariable String groupName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return new ResponseEntity<>(statisticsService.getGroupSubjectStatistics(groupName, from, to), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Пересчитать агрегаты в памяти из базы (например, после ручных правок в базе).
+     * POST /api/statistics/rollups/rebuild
+     *
+     * @return ResponseEntity с 204 No Content.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Void> rebuildRollups() {
+        statisticsService.rebuildRollups();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Сверить агрегаты в памяти с базой.
+     * GET /api/statistics/rollups/check
+     *
+     * @return ResponseEntity с количеством проверенных ключей и найденными расхождениями.
+     */
+    @GetMapping("/rollups/check")
+    public ResponseEntity<RollupCheck> checkRollups() {
+        return new ResponseEntity<>(statisticsService.checkRollups(), HttpStatus.OK);
+    }
+
+    /**
+     * Размер колоночной копии оценок и занятая ею память.
+     * GET /api/statistics/columns
+     *
+     * @return ResponseEntity с количеством строк, размерами словарей и байтами (ready = false, если копия выключена).
+     */
+    @GetMapping("/columns")
+    public ResponseEntity<GradeColumns.Stats> getColumnsStats() {
+        return new ResponseEntity<>(statisticsService.getColumnsStats(), HttpStatus.OK);
+    }
+}
@@ -1,11 +1,18 @@
 package com.example.student_management.controller;
 
+import com.example.student_management.config.HttpCaching;
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.StudentCache;
+import com.example.student_management.model.StudentPage;
 import com.example.student_management.model.Students;
 import com.example.student_management.service.StudentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -15,31 +22,130 @@ import java.util.List;
 public class StudentController {
 
     private final StudentService studentService;
+    private final HttpCaching httpCaching;
 
     @Autowired
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, HttpCaching httpCaching) {
         this.studentService = studentService;
+        this.httpCaching = httpCaching;
     }
 
     /**
      * Получить список всех студентов с возможностью фильтрации и сортировки.
-     * GET /api/students?firstName=...&lastName=...&sortBy=...&sortOrder=...
+     * GET /api/students?firstName=...&lastName=...&match=...&sortBy=...&sortOrder=...
      *
      * @param firstNameFilter Фильтр по имени студента.
      * @param lastNameFilter  Фильтр по фамилии студента.
+     * @param match           Режим поиска: "prefix" (начало имени, быстро по индексу) или "contains" (по умолчанию).
      * @param sortBy          Поле для сортировки ("firstName", "lastName").
      * @param sortOrder       Порядок сортировки ("asc", "desc").
-     * @return ResponseEntity со списком студентов.
+     * @param request         Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со списком студентов, 304 Not Modified (если студенты не менялись с ETag клиента)
+     * или 400 Bad Request при неизвестном режиме поиска.
      */
     @GetMapping //GET запросы на /api/students
     public ResponseEntity<List<Students>> getAllStudents(
             @RequestParam(required = false) String firstNameFilter, // Параметр запроса, необязательный
             @RequestParam(required = false) String lastNameFilter,  // то же самое
+            @RequestParam(required = false) String match,           // то же самое
             @RequestParam(required = false) String sortBy,          // то же самое
-            @RequestParam(required = false) String sortOrder        // то же самое
+            @RequestParam(required = false) String sortOrder,       // то же самое
+            WebRequest request
     ) {
-        List<Students> students = studentService.getAllStudents(firstNameFilter, lastNameFilter, sortBy, sortOrder);
-        return new ResponseEntity<>(students, HttpStatus.OK); // Возвращается список студентов и статус 200 OK
+        // версия читается до запроса к базе: при 304 SQL не выполняется
+        ChangeVersions.Validator version = studentService.getStudentsVersion();
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("students", version);
+        }
+        try {
+            List<Students> students = studentService.getAllStudents(firstNameFilter, lastNameFilter, match, sortBy, sortOrder);
+            return httpCaching.ok("students", version).body(students); // Возвращается список студентов и статус 200 OK
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Получить студентов постранично, с теми же фильтрами и сортировкой, что и список выше.
+     * GET /api/students?size=50&cursor=...&sortBy=lastName&sortOrder=asc&includeTotal=true
+     * Сортировка всегда однозначная (при равных значениях - по ID). Ссылка на следующую страницу
+     * отдается в nextCursor и в заголовке Link: rel="next", чтобы фронтенд мог подгрузить ее заранее.
+     *
+     * @param firstNameFilter Фильтр по имени студента.
+     * @param lastNameFilter  Фильтр по фамилии студента.
+     * @param match           Режим поиска: "prefix" или "contains" (по умолчанию).
+     * @param sortBy          Поле для сортировки ("firstName", "lastName", "id").
+     * @param sortOrder       Порядок сортировки ("asc", "desc").
+     * @param cursor          nextCursor из предыдущего ответа (не указывается для первой страницы).
+     * @param size            Размер страницы (от 1 до 500).
+     * @param includeTotal    Вернуть ли приблизительное общее количество студентов под фильтр.
+     * @param request         Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со страницей студентов, 304 Not Modified или 400 Bad Request при неверных параметрах/курсоре.
+     */
+    @GetMapping(params = "size")
+    public ResponseEntity<StudentPage> getStudentsPage(
+            @RequestParam(required = false) String firstNameFilter,
+            @RequestParam(required = false) String lastNameFilter,
+            @RequestParam(required = false) String match,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            WebRequest request
+    ) {
+        ChangeVersions.Validator version = studentService.getStudentsVersion();
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("students", version);
+        }
+        try {
+            StudentPage page = studentService.getStudentsPage(firstNameFilter, lastNameFilter, match,
+                    sortBy, sortOrder, cursor, size, includeTotal);
+            ResponseEntity.BodyBuilder response = httpCaching.ok("students", version);
+            if (page.isHasNext()) {
+                String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("cursor", page.getNextCursor())
+                        .build().toUriString();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            return response.body(page);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Быстрый поиск студентов по имени или фамилии (для подсказок при вводе).
+     * GET /api/students/search?q=...&match=contains&limit=20
+     *
+     * @param q     Строка поиска (можно кириллицей и казахскими буквами, регистр не важен).
+     * @param match "contains" (по умолчанию) или "prefix".
+     * @param limit Максимум результатов (до 100).
+     * @return ResponseEntity со списком студентов, 400 Bad Request при неверных параметрах
+     * или 503 Service Unavailable, пока индекс поиска строится после старта.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Students>> searchStudents(@RequestParam String q,
+                                                         @RequestParam(required = false) String match,
+                                                         @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(studentService.searchStudents(q, match, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Получить метрики кэша студентов по ID.
+     * GET /api/students/cache-stats
+     *
+     * @return ResponseEntity с размером кэша, попаданиями, промахами и вытеснениями.
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<StudentCache.Stats> getCacheStats() {
+        return new ResponseEntity<>(studentService.getCacheStats(), HttpStatus.OK);
     }
 
     /**
@@ -47,12 +153,17 @@ public class StudentController {
      * GET /api/students/{id}
      *
      * @param id ID студента.
-     * @return ResponseEntity со студентом или 404 Not Found.
+     * @param request Текущий запрос (для заголовков условного GET).
+     * @return ResponseEntity со студентом, 304 Not Modified или 404 Not Found.
      */
     @GetMapping("/{id}") //GET запросы на /api/students/{id}
-    public ResponseEntity<Students> getStudentById(@PathVariable Integer id) { // Извлекает ID из пути URL
+    public ResponseEntity<Students> getStudentById(@PathVariable Integer id, WebRequest request) { // Извлекает ID из пути URL
+        ChangeVersions.Validator version = studentService.getStudentsVersion();
+        if (httpCaching.isNotModified(request, version)) {
+            return httpCaching.notModified("student", version);
+        }
         return studentService.getStudentById(id)
-                .map(student -> new ResponseEntity<>(student, HttpStatus.OK)) // 200 OK
+                .map(student -> httpCaching.ok("student", version).body(student)) // 200 OK
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND)); // 404 Not Found
     }
 
@@ -79,8 +190,9 @@ public class StudentController {
      * PUT /api/students/{id}
      *
      * @param id ID студента, которого нужно обновить.
-     * @param student Объект Student с обновленными данными.
-     * @return ResponseEntity с обновленным студентом или 404 Not Found / 400 Bad Request.
+     * @param student Объект Student с обновленными данными. Если указан version, обновление условное.
+     * @return ResponseEntity с обновленным студентом (с новой версией) или 404 Not Found / 400 Bad Request /
+     * 409 Conflict, если версия устарела.
      */
     @PutMapping("/{id}") // PUT запросы на /api/students/{id}
     public ResponseEntity<Students> updateStudent(@PathVariable Integer id, @RequestBody Students student) {
@@ -91,17 +203,14 @@ public class StudentController {
         student.setId(id); // надо устанавливать ID из пути URL, чтобы DAO знал, кого обновлять
 
         try {
-            boolean updated = studentService.updateStudent(student);
-            if (updated) {
-                // если все успешно, то возвращаем обновленный объект и 200 OK
-                return studentService.getStudentById(id)
-                        .map(s -> new ResponseEntity<>(s, HttpStatus.OK))
-                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
-            } else {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
+            // если все успешно, то возвращаем обновленный объект и 200 OK (без повторного чтения из базы)
+            return studentService.updateStudent(student)
+                    .map(s -> new ResponseEntity<>(s, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Ошибка валидации
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT); // студента уже изменил кто-то другой
         }
     }
 
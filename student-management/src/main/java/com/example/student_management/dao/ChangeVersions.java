@@ -0,0 +1,103 @@
+package com.example.student_management.dao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Счетчики изменений для HTTP-кэширования (ETag / Last-Modified): по таблице students,
+ * по таблице grades и по оценкам каждого студента. DAO увеличивают их после каждой успешной записи
+ * (после commit), поэтому контроллер может ответить 304 Not Modified, не выполняя SQL.
+ * <p>
+ * Счетчик читается до запроса к базе: если запись успела пройти между чтением счетчика и запросом,
+ * клиент получит новые данные со старым ETag и просто перечитает их в следующий раз, а не наоборот.
+ * <p>
+ * Счетчики живут в памяти, поэтому в ETag входит время старта приложения - после перезапуска
+ * все старые ETag перестают совпадать. Изменения, сделанные в базе в обход приложения, не видны.
+ */
+@Component
+public class ChangeVersions {
+
+    /**
+     * Номер изменения и время последнего изменения (мс).
+     */
+    public record Stamp(long version, long lastModified) {
+        Stamp next() {
+            return new Stamp(version + 1, Math.max(lastModified, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Валидаторы ответа: значение ETag (уже в кавычках) и Last-Modified (мс).
+     */
+    public record Validator(String etag, long lastModified) {
+    }
+
+    private final long startedAt = System.currentTimeMillis();
+    private final String epoch = Long.toString(startedAt, 36);
+    private final Stamp initial = new Stamp(0, startedAt);
+
+    private final AtomicReference<Stamp> students = new AtomicReference<>(initial);
+    private final AtomicReference<Stamp> grades = new AtomicReference<>(initial);
+
+    /** Изменения оценок, про которые неизвестно, каких студентов они коснулись, - сбрасывают все per-student ETag. */
+    private final AtomicReference<Stamp> allStudentGrades = new AtomicReference<>(initial);
+    private final Map<Integer, Stamp> gradesByStudent = new ConcurrentHashMap<>();
+
+    /**
+     * Изменилась таблица students (добавление, изменение или удаление студента).
+     */
+    public void studentsChanged() {
+        students.updateAndGet(Stamp::next);
+    }
+
+    /**
+     * Изменились оценки указанных студентов.
+     */
+    public void gradesChanged(Integer... studentIds) {
+        grades.updateAndGet(Stamp::next);
+        for (Integer studentId : studentIds) {
+            gradesByStudent.merge(studentId, initial.next(), (old, ignored) -> old.next());
+        }
+    }
+
+    /**
+     * Изменились оценки, но неизвестно чьи (например, UPDATE без чтения старой строки).
+     */
+    public void gradesChangedForAll() {
+        grades.updateAndGet(Stamp::next);
+        allStudentGrades.updateAndGet(Stamp::next);
+    }
+
+    /**
+     * @return Валидатор для ответов, построенных по таблице students.
+     */
+    public Validator students() {
+        Stamp stamp = students.get();
+        return validator("s" + stamp.version(), stamp.lastModified());
+    }
+
+    /**
+     * @return Валидатор для ответов, построенных по таблице grades.
+     */
+    public Validator grades() {
+        Stamp stamp = grades.get();
+        return validator("g" + stamp.version(), stamp.lastModified());
+    }
+
+    /**
+     * @return Валидатор для оценок одного студента.
+     */
+    public Validator studentGrades(Integer studentId) {
+        Stamp all = allStudentGrades.get();
+        Stamp own = gradesByStudent.getOrDefault(studentId, initial);
+        return validator("g" + studentId + "-" + all.version() + "." + own.version(),
+                Math.max(all.lastModified(), own.lastModified()));
+    }
+
+    private Validator validator(String tag, long lastModified) {
+        return new Validator("\"" + epoch + "-" + tag + "\"", lastModified);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.student_management.dao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ID студентов, которые уже удалены (students.deleted_at заполнен), но чьи оценки еще не вычищены
+ * фоновой очисткой. Запросы к grades без JOIN со students исключают оценки удаленных студентов через
+ * {@link #exclusion(String)}; обычно множество пустое, и к SQL ничего не добавляется.
+ * <p>
+ * Заполняется при удалении студента и при старте приложения (из базы), очищается, когда
+ * очистка удаляет саму строку студента.
+ */
+@Component
+public class DeletedStudents {
+    private final NavigableSet<Integer> pending = new ConcurrentSkipListSet<>();
+
+    /**
+     * Защищает проверку "студент не удален" и счетчики {@link #applying}. Сами обновления в памяти
+     * идут без нее: они могут ждать блокировки колоночной копии, и держать все вставки на одном мониторе нельзя.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    /** Студент -> сколько обновлений после вставки его оценок сейчас выполняется. Под {@link #lock}. */
+    private final Map<Integer, Integer> applying = new HashMap<>();
+
+    /**
+     * Помечает студента удаленным. Возвращается, когда закончили обновления в памяти, начатые
+     * до пометки, поэтому следующее за этим удаление студента из агрегатов уберет и их.
+     */
+    public void add(Integer studentId) {
+        lock.lock();
+        try {
+            pending.add(studentId);
+            while (applying.containsKey(studentId)) {
+                applied.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addAll(Collection<Integer> studentIds) {
+        studentIds.forEach(this::add);
+    }
+
+    /**
+     * Обновляет структуры в памяти (агрегаты, колоночную копию) после вставки оценки, если ее студент не удален.
+     * Проверка идет под той же блокировкой, что и {@link #add(Integer)}, а обновление - уже без нее:
+     * вставка, которая успела пройти в гонке с удалением студента, либо прошла проверку раньше, и тогда
+     * add дождется ее обновления, а удаление уберет его вместе со студентом, либо видит удаление
+     * и пропускается - студент не возвращается в рейтинги и колоночную копию.
+     * Ждет при этом только удаление того же студента; вставки других студентов друг друга не ждут.
+     *
+     * @param studentId ID студента оценки.
+     * @param apply Обновление структур в памяти.
+     * @return false, если студент удален и обновление пропущено.
+     */
+    public boolean applyUnlessDeleted(Integer studentId, Runnable apply) {
+        lock.lock();
+        try {
+            if (pending.contains(studentId)) {
+                return false;
+            }
+            applying.merge(studentId, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            apply.run();
+            return true;
+        } finally {
+            lock.lock();
+            try {
+                if (applying.merge(studentId, -1, Integer::sum) == 0) {
+                    applying.remove(studentId);
+                    applied.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void remove(Integer studentId) {
+        pending.remove(studentId);
+    }
+
+    public boolean contains(Integer studentId) {
+        return studentId != null && pending.contains(studentId);
+    }
+
+    /**
+     * @return Сколько студентов ждет очистки.
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return ID студентов, ждущих очистки, по возрастанию (снимок).
+     */
+    public List<Integer> snapshot() {
+        return List.copyOf(pending);
+    }
+
+    /**
+     * Условие для WHERE, исключающее оценки удаленных студентов. Пока удаленных нет, к запросу ничего
+     * не добавляется; иначе добавляется всегда один и тот же NOT EXISTS по students (индекс по первичному ключу).
+     * Текст запроса не зависит от того, сколько и каких студентов ждет очистки, поэтому у запроса всего
+     * два варианта, и оба остаются в кэше подготовленных запросов драйвера.
+     *
+     * @param column Колонка с ID студента, например "grades.student_id" или "g.student_id".
+     * @return " AND NOT EXISTS (...)" или пустая строка, если удаленных студентов нет.
+     */
+    public String exclusion(String column) {
+        if (pending.isEmpty()) {
+            return "";
+        }
+        return " AND NOT EXISTS (SELECT 1 FROM students ds WHERE ds.id = " + column + " AND ds.deleted_at IS NOT NULL)";
+    }
+}
@@ -0,0 +1,745 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Оценки в памяти в колоночном виде для аналитики (статистика за период, распределения баллов).
+ * <p>
+ * Вместо объекта Grades (~100 байт со всеми Integer, String и LocalDate) строка занимает 21 байт
+ * в параллельных массивах примитивов: int id, int studentId, short код предмета, short код группы,
+ * byte балл, int день (LocalDate.toEpochDay) и int версия строки. Предметы и группы закодированы словарями,
+ * группа студента продублирована в каждой его оценке, чтобы фильтр по группе был таким же
+ * простым сравнением в цикле, как фильтр по предмету.
+ * <p>
+ * Запросы - один проход по массивам без объектов и без ветвлений на разыменование, с гистограммой
+ * "балл -> количество" (баллов всего 101). Строки отсортированы по ID, поэтому изменение и удаление находят строку
+ * бинарным поиском. Удаленная строка помечается баллом -1 и пропускается, пока их не станет четверть - тогда массивы сжимаются.
+ * <p>
+ * Модель необязательная (grades.columns.enabled). DAO сообщают о каждой записи после commit, поэтому два
+ * параллельных изменения одной оценки могут прийти не в том порядке, в каком их закоммитила база. Изменение несет
+ * версию строки (grades.version), и изменение старше уже примененного пропускается, а удаленная строка не
+ * возвращается (ID не переиспользуются). Пока идет загрузка из базы, изменения копятся в журнале и применяются
+ * после нее. Все операции идемпотентны (вставка по ID с версией, удаление отсутствующего - ничего), поэтому
+ * изменение, которое загрузка уже увидела, повторно ничего не портит.
+ */
+@Component
+public class GradeColumns {
+    /** Баллы 0..100 - индекс гистограммы. */
+    public static final int SCORES = 101;
+
+    /** Меньше строк на задачу не делим: разбиение и слияние итогов стоят дороже самого прохода. */
+    static final int MIN_CHUNK_ROWS = 16 * 1024;
+
+    /** Как часто (в строках) задача отчета проверяет, не отменен ли он. */
+    private static final int CANCEL_CHECK_ROWS = 64 * 1024;
+
+    private static final byte DELETED = -1;
+    private static final short UNKNOWN = -1;
+
+    private final boolean enabled;
+
+    /** Запросы - под read lock, изменения и замена таблицы - под write lock. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+    /** Изменения, пришедшие во время загрузки (null - загрузка не идет). Под write lock. */
+    private List<Consumer<Table>> journal;
+    private Table table = new Table();
+
+    /**
+     * Занятая память.
+     *
+     * @param rows Живых строк.
+     * @param deletedRows Удаленных строк, которые еще не вычищены.
+     * @param capacity Размер массивов (строк).
+     * @param subjects Предметов в словаре.
+     * @param groups Групп в словаре.
+     * @param students Студентов в карте "студент -> группа".
+     * @param bytes Оценка занятой памяти в байтах (массивы, словари и карта студентов).
+     */
+    public record Stats(boolean ready, long rows, long deletedRows, long capacity, int subjects, int groups,
+                        int students, long bytes) {
+    }
+
+    /**
+     * Итоги одной клетки "группа x предмет": из них считаются среднее, отклонение и доля сдавших.
+     */
+    public record Cell(long count, long sum, long sumSquares, long passed, int min, int max) {
+        public static final Cell EMPTY = new Cell(0, 0, 0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+        public Cell plus(Cell other) {
+            return new Cell(count + other.count, sum + other.sum, sumSquares + other.sumSquares,
+                    passed + other.passed, Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+
+    /**
+     * Итоги по всем клеткам "группа x предмет". Складываются поэлементно, поэтому части таблицы
+     * считаются независимо и объединяются в любом порядке.
+     */
+    public static final class Totals {
+        private final List<String> groups;
+        private final List<String> subjects;
+        private final long[] counts;
+        private final long[] sums;
+        private final long[] sumSquares;
+        private final long[] passed;
+        private final int[] mins;
+        private final int[] maxs;
+
+        Totals(List<String> groups, List<String> subjects) {
+            this.groups = groups;
+            this.subjects = subjects;
+            int cells = groups.size() * subjects.size();
+            counts = new long[cells];
+            sums = new long[cells];
+            sumSquares = new long[cells];
+            passed = new long[cells];
+            mins = new int[cells];
+            maxs = new int[cells];
+            Arrays.fill(mins, Integer.MAX_VALUE);
+            Arrays.fill(maxs, Integer.MIN_VALUE);
+        }
+
+        void merge(Totals other) {
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] += other.counts[c];
+                sums[c] += other.sums[c];
+                sumSquares[c] += other.sumSquares[c];
+                passed[c] += other.passed[c];
+                mins[c] = Math.min(mins[c], other.mins[c]);
+                maxs[c] = Math.max(maxs[c], other.maxs[c]);
+            }
+        }
+
+        /**
+         * @return Названия групп; индекс в списке - первый аргумент {@link #cell(int, int)}.
+         */
+        public List<String> groups() {
+            return groups;
+        }
+
+        /**
+         * @return Названия предметов; индекс в списке - второй аргумент {@link #cell(int, int)}.
+         */
+        public List<String> subjects() {
+            return subjects;
+        }
+
+        public Cell cell(int group, int subject) {
+            int c = group * subjects.size() + subject;
+            return new Cell(counts[c], sums[c], sumSquares[c], passed[c], mins[c], maxs[c]);
+        }
+    }
+
+    @Autowired
+    public GradeColumns(@Value("${grades.columns.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true, если данные загружены и поддерживаются в актуальном состоянии.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Загружает все оценки из базы заново. Записи в это время не ждут: их изменения попадают в журнал.
+     *
+     * @param studentSource Источник всех студентов (для групп).
+     * @param gradeSource Источник всех оценок.
+     */
+    public void rebuild(Consumer<Consumer<Students>> studentSource, Consumer<Consumer<Grades>> gradeSource) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                throw new IllegalStateException("Grade columns are already being loaded.");
+            }
+            journal = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Table fresh = new Table();
+        try {
+            studentSource.accept(fresh::setGroup);
+            gradeSource.accept(fresh::upsert);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            journal.forEach(change -> change.accept(fresh));
+            journal = null;
+            fresh.compactIfNeeded();
+            table = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка добавлена или изменена (значения берутся из объекта целиком, версия - из grade.getVersion()).
+     * Если уже применена более новая версия этой оценки, ничего не меняется.
+     */
+    public void gradeSaved(Grades grade) {
+        int id = grade.getId();
+        int studentId = grade.getStudentId();
+        String subject = grade.getSubject();
+        int score = grade.getScore();
+        int day = (int) grade.getGradeDate().toEpochDay();
+        int version = versionOf(grade);
+        change(table -> table.upsert(id, studentId, subject, score, day, version));
+    }
+
+    private static int versionOf(Grades grade) {
+        return grade.getVersion() != null ? grade.getVersion() : 0;
+    }
+
+    /**
+     * Оценка удалена.
+     */
+    public void gradeRemoved(Integer gradeId) {
+        change(table -> table.remove(gradeId));
+    }
+
+    /**
+     * Студент добавлен или изменен: если сменилась группа, она меняется и у его оценок.
+     */
+    public void studentSaved(Students student) {
+        int studentId = student.getId();
+        String groupName = student.getGroupName();
+        change(table -> table.setGroup(studentId, groupName));
+    }
+
+    /**
+     * Студент удален вместе с оценками (каскад).
+     */
+    public void studentRemoved(Integer studentId) {
+        change(table -> table.removeStudent(studentId));
+    }
+
+    private void change(Consumer<Table> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(change);
+            }
+            if (ready) {
+                change.accept(table);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Распределение баллов по оценкам, подходящим под все заданные фильтры (null - без фильтра).
+     *
+     * @return Массив из {@link #SCORES} элементов: количество оценок с каждым баллом.
+     */
+    public long[] distribution(Integer studentId, String groupName, String subject, LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            long[] histogram = new long[SCORES];
+            Filter filter = table.filter(studentId, groupName, subject, from, to);
+            if (filter != null) {
+                table.scan(filter, histogram, null);
+            }
+            return histogram;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Распределения баллов с группировкой по группе или предмету.
+     *
+     * @param by GROUP или SUBJECT.
+     * @return Ключ (название группы или предмета) -> распределение; только ключи, у которых есть оценки.
+     */
+    public Map<String, long[]> distributionsBy(GradeStatisticsDAO.Dimension by, Integer studentId, String groupName,
+                                               String subject, LocalDate from, LocalDate to) {
+        if (by == GradeStatisticsDAO.Dimension.STUDENT) {
+            throw new IllegalArgumentException("Grouping by student is not supported.");
+        }
+        boolean bySubject = by == GradeStatisticsDAO.Dimension.SUBJECT;
+        lock.readLock().lock();
+        try {
+            Map<String, long[]> result = new LinkedHashMap<>();
+            Filter filter = table.filter(studentId, groupName, subject, from, to);
+            if (filter == null) {
+                return result;
+            }
+            Dictionary keys = bySubject ? table.subjects : table.groups;
+            // один плоский массив [код * 101 + балл] вместо карты на каждую строку
+            long[] histograms = new long[keys.size() * SCORES];
+            table.scan(filter, histograms, bySubject ? table.subjectCodes : table.groupCodes);
+            for (int code = 0; code < keys.size(); code++) {
+                long[] histogram = Arrays.copyOfRange(histograms, code * SCORES, (code + 1) * SCORES);
+                if (Arrays.stream(histogram).anyMatch(n -> n > 0)) {
+                    result.put(keys.name(code), histogram);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Итоги по каждой паре "группа x предмет" за период - основа семестровых отчетов.
+     * <p>
+     * Строки делятся пополам, пока кусок больше max({@link #MIN_CHUNK_ROWS}, строк / (8 * parallelism)),
+     * куски считаются в пуле fork-join, каждый в свои {@link Totals}, и итоги складываются при возврате.
+     * Под read lock только копируются четыре нужные колонки (балл, день, группа, предмет - 9 байт на строку,
+     * копирование целыми массивами идет со скоростью памяти), а сам подсчет идет по копии без блокировки:
+     * записи не ждут отчет, сколько бы он ни шел. Одновременных отчетов не больше reports.max-concurrent,
+     * поэтому и копий не больше.
+     *
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param passScore Балл, начиная с которого оценка считается сданной.
+     * @param pool Пул для параллельного подсчета или null - посчитать в текущем потоке одним куском.
+     * @param cancelled Флаг отмены: задачи проверяют его каждые несколько десятков тысяч строк.
+     * @throws CancellationException Если отчет отменен (флаг выставлен или поток прерван).
+     */
+    public Totals aggregate(LocalDate from, LocalDate to, int passScore, ForkJoinPool pool, AtomicBoolean cancelled) {
+        Snapshot snapshot;
+        Filter filter;
+        Totals empty;
+        lock.readLock().lock();
+        try {
+            snapshot = table.snapshot();
+            filter = table.filter(null, null, null, from, to);
+            empty = new Totals(List.copyOf(table.groups.names), List.copyOf(table.subjects.names));
+        } finally {
+            lock.readLock().unlock();
+        }
+        int chunk = pool == null ? Math.max(snapshot.size(), 1)
+                : Math.max(MIN_CHUNK_ROWS, snapshot.size() / (8 * pool.getParallelism()));
+        AggregateTask root = new AggregateTask(snapshot, filter, passScore, empty, chunk, cancelled, 0, snapshot.size());
+        Totals totals = pool == null ? root.compute() : invoke(pool, root, cancelled);
+        if (cancelled.get()) {
+            throw new CancellationException("Report was cancelled.");
+        }
+        return totals;
+    }
+
+    private static Totals invoke(ForkJoinPool pool, AggregateTask root, AtomicBoolean cancelled) {
+        ForkJoinTask<Totals> task = pool.submit(root);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            // задачи увидят флаг на следующей проверке и закончат сами
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Report was interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return Размер данных и занятая память.
+     */
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return table.stats(ready);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Фильтр, уже переведенный в коды словарей и дни (-1 / MIN / MAX - без фильтра).
+     */
+    private record Filter(int studentId, short group, short subject, int fromDay, int toDay) {
+    }
+
+    /**
+     * Подсчет итогов по диапазону строк [from, to): большой диапазон делится пополам.
+     */
+    private static final class AggregateTask extends RecursiveTask<Totals> {
+        private final Snapshot snapshot;
+        private final Filter filter;
+        private final int passScore;
+        private final Totals empty;
+        private final int chunk;
+        private final AtomicBoolean cancelled;
+        private final int from;
+        private final int to;
+
+        AggregateTask(Snapshot snapshot, Filter filter, int passScore, Totals empty, int chunk, AtomicBoolean cancelled,
+                      int from, int to) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.passScore = passScore;
+            this.empty = empty;
+            this.chunk = chunk;
+            this.cancelled = cancelled;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= chunk) {
+                Totals totals = new Totals(empty.groups, empty.subjects);
+                for (int start = from; start < to && !cancelled.get(); start += CANCEL_CHECK_ROWS) {
+                    snapshot.aggregate(filter, passScore, totals, start, Math.min(to, start + CANCEL_CHECK_ROWS));
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(snapshot, filter, passScore, empty, chunk, cancelled, from, middle);
+            AggregateTask right = new AggregateTask(snapshot, filter, passScore, empty, chunk, cancelled, middle, to);
+            left.fork();
+            Totals totals = right.compute();
+            totals.merge(left.join());
+            return totals;
+        }
+    }
+
+    /**
+     * Колонки таблицы на момент начала отчета. Не меняется, поэтому задачи читают ее без блокировки.
+     */
+    private record Snapshot(byte[] scores, int[] days, short[] groupCodes, short[] subjectCodes, int size) {
+        /**
+         * Итоги по строкам [from, to) в клетки "группа x предмет". Строки с неизвестной группой пропускаются.
+         */
+        void aggregate(Filter filter, int passScore, Totals totals, int from, int to) {
+            int fromDay = filter.fromDay();
+            int toDay = filter.toDay();
+            int subjectCount = totals.subjects.size();
+            long[] counts = totals.counts;
+            long[] sums = totals.sums;
+            long[] sumSquares = totals.sumSquares;
+            long[] passed = totals.passed;
+            int[] mins = totals.mins;
+            int[] maxs = totals.maxs;
+            for (int i = from; i < to; i++) {
+                int score = scores[i];
+                int day = days[i];
+                int group = groupCodes[i];
+                if (score >= 0 && group >= 0 && day >= fromDay && day <= toDay) {
+                    int c = group * subjectCount + subjectCodes[i];
+                    counts[c]++;
+                    sums[c] += score;
+                    sumSquares[c] += score * score;
+                    passed[c] += score >= passScore ? 1 : 0;
+                    mins[c] = Math.min(mins[c], score);
+                    maxs[c] = Math.max(maxs[c], score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Словарь "строка -> короткий код".
+     */
+    private static final class Dictionary {
+        private final Map<String, Short> codes = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        short code(String name) {
+            Short code = codes.get(name);
+            if (code == null) {
+                if (names.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values for a short dictionary.");
+                }
+                code = (short) names.size();
+                codes.put(name, code);
+                names.add(name);
+            }
+            return code;
+        }
+
+        /**
+         * @return Код или -1, если такого значения нет (тогда под фильтр ничего не подходит).
+         */
+        short find(String name) {
+            return codes.getOrDefault(name, UNKNOWN);
+        }
+
+        String name(int code) {
+            return names.get(code);
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (String name : names) {
+                // строка + запись в HashMap + элемент списка
+                bytes += 40 + 2L * name.length() + 48 + 8;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Сами колонки. Не потокобезопасна: все обращения под {@link #lock}.
+     */
+    private static final class Table {
+        private int[] ids = new int[1024];
+        private int[] studentIds = new int[1024];
+        private short[] subjectCodes = new short[1024];
+        private short[] groupCodes = new short[1024];
+        private byte[] scores = new byte[1024];
+        private int[] days = new int[1024];
+        private int[] versions = new int[1024];
+        private int size;
+        private int deleted;
+
+        private final Dictionary subjects = new Dictionary();
+        private final Dictionary groups = new Dictionary();
+        private final Map<Integer, Short> groupByStudent = new HashMap<>();
+
+        void upsert(Grades grade) {
+            upsert(grade.getId(), grade.getStudentId(), grade.getSubject(), grade.getScore(),
+                    (int) grade.getGradeDate().toEpochDay(), versionOf(grade));
+        }
+
+        void upsert(int id, int studentId, String subject, int score, int day, int version) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                at = -(at + 1);
+                insertAt(at);
+                ids[at] = id;
+            } else if (scores[at] == DELETED || version < versions[at]) {
+                // запоздавшее изменение: строку уже удалили или применили более новую версию
+                return;
+            }
+            versions[at] = version;
+            studentIds[at] = studentId;
+            subjectCodes[at] = subjects.code(subject);
+            groupCodes[at] = groupByStudent.getOrDefault(studentId, UNKNOWN);
+            scores[at] = (byte) score;
+            days[at] = day;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0 && scores[at] != DELETED) {
+                scores[at] = DELETED;
+                deleted++;
+                compactIfNeeded();
+            }
+        }
+
+        void setGroup(Students student) {
+            setGroup(student.getId(), student.getGroupName());
+        }
+
+        void setGroup(int studentId, String groupName) {
+            short code = groups.code(groupName);
+            Short old = groupByStudent.put(studentId, code);
+            // у нового студента оценок еще нет (внешний ключ), проходить по строкам нужно только при переводе
+            if (old != null && old != code) {
+                for (int i = 0; i < size; i++) {
+                    if (studentIds[i] == studentId) {
+                        groupCodes[i] = code;
+                    }
+                }
+            }
+        }
+
+        void removeStudent(int studentId) {
+            groupByStudent.remove(studentId);
+            for (int i = 0; i < size; i++) {
+                if (studentIds[i] == studentId && scores[i] != DELETED) {
+                    scores[i] = DELETED;
+                    deleted++;
+                }
+            }
+            compactIfNeeded();
+        }
+
+        /**
+         * @return Фильтр или null, если под него заведомо ничего не подходит (неизвестная группа или предмет).
+         */
+        Filter filter(Integer studentId, String groupName, String subject, LocalDate from, LocalDate to) {
+            short group = groupName != null ? groups.find(groupName) : UNKNOWN;
+            short subjectCode = subject != null ? subjects.find(subject) : UNKNOWN;
+            if ((groupName != null && group == UNKNOWN) || (subject != null && subjectCode == UNKNOWN)) {
+                return null;
+            }
+            return new Filter(studentId != null ? studentId : -1, group, subjectCode,
+                    from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE,
+                    to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE);
+        }
+
+        /**
+         * Один проход по колонкам. Условия - сравнения примитивов без разыменований, а проверки "фильтр не задан"
+         * вынесены из цикла: для каждого набора фильтров выбирается свой цикл.
+         *
+         * @param histogram Куда складывать: по баллу или по [код * 101 + балл], если задан keyCodes.
+         * @param keyCodes Колонка кода группировки или null.
+         */
+        void scan(Filter filter, long[] histogram, short[] keyCodes) {
+            int n = size;
+            int fromDay = filter.fromDay();
+            int toDay = filter.toDay();
+            int student = filter.studentId();
+            short group = filter.group();
+            short subject = filter.subject();
+            byte[] scores = this.scores;
+            int[] days = this.days;
+
+            if (student >= 0) {
+                int[] studentIds = this.studentIds;
+                short[] subjectCodes = this.subjectCodes;
+                short[] groupCodes = this.groupCodes;
+                for (int i = 0; i < n; i++) {
+                    int score = scores[i];
+                    int day = days[i];
+                    if (studentIds[i] == student && score >= 0 && day >= fromDay && day <= toDay
+                            && (subject < 0 || subjectCodes[i] == subject) && (group < 0 || groupCodes[i] == group)
+                            && (keyCodes == null || keyCodes[i] >= 0)) {
+                        histogram[keyCodes != null ? keyCodes[i] * SCORES + score : score]++;
+                    }
+                }
+            } else if (group >= 0 || subject >= 0) {
+                short[] filterCodes = group >= 0 ? groupCodes : subjectCodes;
+                short filterCode = group >= 0 ? group : subject;
+                short[] otherCodes = group >= 0 ? subjectCodes : groupCodes;
+                short otherCode = group >= 0 ? subject : UNKNOWN;
+                for (int i = 0; i < n; i++) {
+                    int score = scores[i];
+                    int day = days[i];
+                    if (filterCodes[i] == filterCode && score >= 0 && day >= fromDay && day <= toDay
+                            && (otherCode < 0 || otherCodes[i] == otherCode) && (keyCodes == null || keyCodes[i] >= 0)) {
+                        histogram[keyCodes != null ? keyCodes[i] * SCORES + score : score]++;
+                    }
+                }
+            } else if (keyCodes != null) {
+                for (int i = 0; i < n; i++) {
+                    int score = scores[i];
+                    int day = days[i];
+                    // группа может быть неизвестна (-1), если оценка пришла раньше студента
+                    if (score >= 0 && day >= fromDay && day <= toDay && keyCodes[i] >= 0) {
+                        histogram[keyCodes[i] * SCORES + score]++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int score = scores[i];
+                    int day = days[i];
+                    if (score >= 0 && day >= fromDay && day <= toDay) {
+                        histogram[score]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Копия колонок, которые нужны отчетам; дальше ее можно читать без блокировки.
+         */
+        Snapshot snapshot() {
+            return new Snapshot(Arrays.copyOf(scores, size), Arrays.copyOf(days, size),
+                    Arrays.copyOf(groupCodes, size), Arrays.copyOf(subjectCodes, size), size);
+        }
+
+        Stats stats(boolean ready) {
+            long capacity = ids.length;
+            long bytes = capacity * (4 + 4 + 2 + 2 + 1 + 4 + 4)
+                    + subjects.bytes() + groups.bytes()
+                    // Integer-ключ, Short-значение и запись HashMap на студента
+                    + groupByStudent.size() * (16L + 16 + 48);
+            return new Stats(ready, size - deleted, deleted, capacity, subjects.size(), groups.size(),
+                    groupByStudent.size(), bytes);
+        }
+
+        void compactIfNeeded() {
+            if (deleted < 1024 || deleted * 4 < size) {
+                return;
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (scores[i] != DELETED) {
+                    ids[kept] = ids[i];
+                    studentIds[kept] = studentIds[i];
+                    subjectCodes[kept] = subjectCodes[i];
+                    groupCodes[kept] = groupCodes[i];
+                    scores[kept] = scores[i];
+                    days[kept] = days[i];
+                    versions[kept] = versions[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            deleted = 0;
+        }
+
+        private void insertAt(int at) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                studentIds = Arrays.copyOf(studentIds, capacity);
+                subjectCodes = Arrays.copyOf(subjectCodes, capacity);
+                groupCodes = Arrays.copyOf(groupCodes, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                days = Arrays.copyOf(days, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+            }
+            int tail = size - at;
+            if (tail > 0) {
+                // ID обычно растут, так что это редкий случай (коммиты параллельных вставок не по порядку)
+                System.arraycopy(ids, at, ids, at + 1, tail);
+                System.arraycopy(studentIds, at, studentIds, at + 1, tail);
+                System.arraycopy(subjectCodes, at, subjectCodes, at + 1, tail);
+                System.arraycopy(groupCodes, at, groupCodes, at + 1, tail);
+                System.arraycopy(scores, at, scores, at + 1, tail);
+                System.arraycopy(days, at, days, at + 1, tail);
+                System.arraycopy(versions, at, versions, at + 1, tail);
+            }
+            size++;
+        }
+    }
+}
@@ -6,17 +6,48 @@ import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class GradeDAO {
+    /**
+     * Сколько строк драйвер подтягивает за один раз при потоковом чтении.
+     * Работает вместе с useCursorFetch=true (см. application.properties), иначе MySQL отдаст весь результат сразу.
+     */
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Сколько строк отправляется в базу одним executeBatch.
+     * С rewriteBatchedStatements=true драйвер склеивает их в один многострочный INSERT.
+     */
+    static final int INSERT_BATCH_SIZE = 1000;
+
     private final DataSource dataSource;
+    private final GradeRollups rollups;
+    private final GradeColumns columns;
+    private final DeletedStudents deletedStudents;
+    private final ChangeVersions changeVersions;
 
+    /**
+     * @param dataSource Пул соединений с базой.
+     * @param rollups Агрегаты оценок в памяти, которые нужно обновлять на каждой записи.
+     * @param columns Колоночная копия оценок для статистики по датам (обновляется так же).
+     * @param deletedStudents Удаленные студенты, чьи оценки еще не вычищены и не должны попадать в ответы.
+     * @param changeVersions Счетчики изменений для ETag.
+     */
     @Autowired
-    public GradeDAO(DataSource dataSource) {
+    public GradeDAO(DataSource dataSource, GradeRollups rollups, GradeColumns columns,
+                    DeletedStudents deletedStudents, ChangeVersions changeVersions) {
         this.dataSource = dataSource;
+        this.rollups = rollups;
+        this.columns = columns;
+        this.deletedStudents = deletedStudents;
+        this.changeVersions = changeVersions;
     }
 
     /**
@@ -25,13 +56,15 @@ public class GradeDAO {
      */
     public List<Grades> findAll() {
         List<Grades> grades = new ArrayList<>();
-        String sql = "SELECT id, student_id, subject, score, grade_date FROM grades";
+        String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE 1=1"
+                + deletedStudents.exclusion("grades.student_id");
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
+            RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
             while (rs.next()) {
-                grades.add(mapRowToGrade(rs));
+                grades.add(mapper.map(rs));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to retrieve all grades: " + e.getMessage(), e);
@@ -39,37 +72,118 @@ public class GradeDAO {
         return grades;
     }
 
+    /**
+     * Возвращает одну страницу оценок, отсортированных по ID (keyset-пагинация).
+     * Вместо OFFSET используется условие id > afterId, поэтому стоимость запроса
+     * не растет с номером страницы - MySQL сразу прыгает по первичному ключу.
+     *
+     * @param afterId ID последней оценки с предыдущей страницы (null - с самого начала).
+     * @param limit Максимальное количество оценок на странице.
+     * @return Список оценок текущей страницы (не больше limit).
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<Grades> findPage(Integer afterId, int limit) {
+        List<Grades> grades = new ArrayList<>(limit);
+        String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE id > ?"
+                + deletedStudents.exclusion("grades.student_id") + " ORDER BY id LIMIT ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, afterId != null ? afterId : 0);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
+                while (rs.next()) {
+                    grades.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve grades page: " + e.getMessage(), e);
+        }
+        return grades;
+    }
+
+    /**
+     * Потоково читает все оценки и отдает их по одной в consumer, не собирая список в памяти.
+     * ResultSet открывается только на чтение и только вперед, а драйвер подкачивает строки
+     * порциями по {@link #STREAM_FETCH_SIZE}, так что память не зависит от размера таблицы.
+     *
+     * @param consumer Обработчик, который вызывается для каждой оценки в порядке возрастания ID.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public void streamAll(Consumer<Grades> consumer) {
+        streamByPeriod(null, null, consumer);
+    }
+
+    /**
+     * То же, что {@link #streamAll(Consumer)}, но только оценки за период (например, для снимка под один отчет).
+     *
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @param consumer Обработчик, который вызывается для каждой оценки в порядке возрастания ID;
+     * исключение из него прерывает чтение.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public void streamByPeriod(LocalDate from, LocalDate to, Consumer<Grades> consumer) {
+        String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE 1=1"
+                + deletedStudents.exclusion("grades.student_id") + periodCondition("grade_date", from, to) + " ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            setPeriod(ps, 1, from, to);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to stream grades: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Сохраняет новую оценку в базе данных.
      * После успешной вставки, обновляет объект оценки со сгенерированным ID.
      *
      * @param grade Объект Grade для сохранения.
      * @return Сохраненный объект Grades с присвоенным ID.
+     * @throws IllegalArgumentException Если студент удален (его строка еще ждет очистки, и внешний ключ этого не заметит).
      * @throws RuntimeException В случае ошибки при работе с базой данных.
      */
     public Grades save(Grades grade) {
+        rejectDeletedStudents(List.of(grade));
         String sql = "INSERT INTO grades (student_id, subject, score, grade_date) VALUES (?, ?, ?, ?)";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite()) {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            ps.setInt(1, grade.getStudentId());
-            ps.setString(2, grade.getSubject());
-            ps.setInt(3, grade.getScore());
+                ps.setInt(1, grade.getStudentId());
+                ps.setString(2, grade.getSubject());
+                ps.setInt(3, grade.getScore());
 
-            ps.setDate(4, java.sql.Date.valueOf(grade.getGradeDate()));
+                ps.setDate(4, java.sql.Date.valueOf(grade.getGradeDate()));
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating grade failed, no rows affected.");
-            }
+                int affectedRows = ps.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating grade failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    grade.setId(generatedKeys.getInt(1));
-                } else {
-                    throw new SQLException("Creating grade failed, no ID obtained.");
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        grade.setId(generatedKeys.getInt(1));
+                        grade.setVersion(0);
+                    } else {
+                        throw new SQLException("Creating grade failed, no ID obtained.");
+                    }
                 }
             }
+            // соединение уже вернулось в пул: обновления в памяти могут ждать блокировок и не должны его держать
+            applyInserted(grade);
+            changeVersions.gradesChanged(grade.getStudentId());
             return grade;
 
         } catch (SQLException e) {
@@ -77,6 +191,94 @@ public class GradeDAO {
         }
     }
 
+    /**
+     * Сохраняет сразу много оценок одной транзакцией через пакетную вставку (JDBC batch).
+     * Строки уходят в базу порциями по {@link #INSERT_BATCH_SIZE}, а сгенерированные ID
+     * записываются обратно в объекты в том же порядке.
+     * Если хоть одна порция не вставилась, вся транзакция откатывается.
+     *
+     * @param grades Список уже проверенных оценок для сохранения.
+     * @return Тот же список, но у каждой оценки заполнен ID.
+     * @throws IllegalArgumentException Если среди студентов есть удаленный (ни одна оценка не вставляется).
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<Grades> saveAll(List<Grades> grades) {
+        if (grades.isEmpty()) {
+            return grades;
+        }
+        rejectDeletedStudents(grades);
+        String sql = "INSERT INTO grades (student_id, subject, score, grade_date) VALUES (?, ?, ?, ?)";
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite()) {
+            try (Connection conn = dataSource.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    for (int from = 0; from < grades.size(); from += INSERT_BATCH_SIZE) {
+                        List<Grades> chunk = grades.subList(from, Math.min(from + INSERT_BATCH_SIZE, grades.size()));
+                        for (Grades grade : chunk) {
+                            ps.setInt(1, grade.getStudentId());
+                            ps.setString(2, grade.getSubject());
+                            ps.setInt(3, grade.getScore());
+                            ps.setDate(4, java.sql.Date.valueOf(grade.getGradeDate()));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+
+                        try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                            for (Grades grade : chunk) {
+                                if (!generatedKeys.next()) {
+                                    throw new SQLException("Creating grades failed, not all IDs obtained.");
+                                }
+                                grade.setId(generatedKeys.getInt(1));
+                                grade.setVersion(0);
+                            }
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    grades.forEach(grade -> {
+                        grade.setId(null);
+                        grade.setVersion(null);
+                    });
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+            grades.forEach(this::applyInserted);
+            changeVersions.gradesChanged(grades.stream().map(Grades::getStudentId).distinct()
+                    .toArray(Integer[]::new));
+            return grades;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save grades batch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Вставка проверяется по {@link DeletedStudents}: строка удаленного студента остается до очистки,
+     * поэтому внешний ключ такую оценку пропустит.
+     */
+    private void rejectDeletedStudents(List<Grades> grades) {
+        for (Grades grade : grades) {
+            if (deletedStudents.contains(grade.getStudentId())) {
+                throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found.");
+            }
+        }
+    }
+
+    /**
+     * Вставленная оценка в агрегатах и колоночной копии. Если студента удалили уже после проверки
+     * (гонка с {@link StudentDAO#deleteById(Integer)}), оценка в памяти не появляется,
+     * а в базе ее вместе с остальными удалит фоновая очистка.
+     */
+    private void applyInserted(Grades grade) {
+        deletedStudents.applyUnlessDeleted(grade.getStudentId(), () -> {
+            rollups.gradeAdded(grade);
+            columns.gradeSaved(grade);
+        });
+    }
+
     /**
      * Извлекает все оценки для конкретного студента из базы данных.
      *
@@ -86,15 +288,17 @@ public class GradeDAO {
      */
     public List<Grades> findGradesByStudentId(Integer studentId) {
         List<Grades> grades = new ArrayList<>();
-        String sql = "SELECT id, student_id, subject, score, grade_date FROM grades WHERE student_id = ?";
+        // ORDER BY совпадает с индексом idx_grades_student_date, так что сортировка бесплатная
+        String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE student_id = ? ORDER BY grade_date";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, studentId);
 
             try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
                 while (rs.next()) {
-                    grades.add(mapRowToGrade(rs));
+                    grades.add(mapper.map(rs));
                 }
             }
         } catch (SQLException e) {
@@ -103,6 +307,92 @@ public class GradeDAO {
         return grades;
     }
 
+    /**
+     * Оценки нескольких студентов (например, группы из {@link StudentGroupIndex}): на каждую тысячу студентов
+     * один запрос WHERE student_id IN (...), который читает idx_grades_student_date по каждому студенту.
+     *
+     * @param studentIds ID студентов по возрастанию.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Оценки, отсортированные по студенту и дате.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<Grades> findGradesByStudentIds(List<Integer> studentIds, LocalDate from, LocalDate to) {
+        List<Grades> grades = new ArrayList<>();
+        if (studentIds.isEmpty()) {
+            return grades;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            for (int start = 0; start < studentIds.size(); start += StudentDAO.IN_CLAUSE_CHUNK_SIZE) {
+                List<Integer> chunk = studentIds.subList(start,
+                        Math.min(start + StudentDAO.IN_CLAUSE_CHUNK_SIZE, studentIds.size()));
+                String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE student_id IN ("
+                        + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")"
+                        + periodCondition("grade_date", from, to) + " ORDER BY student_id, grade_date";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    for (Integer studentId : chunk) {
+                        ps.setInt(index++, studentId);
+                    }
+                    setPeriod(ps, index, from, to);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
+                        while (rs.next()) {
+                            grades.add(mapper.map(rs));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve grades for students: " + e.getMessage(), e);
+        }
+        return grades;
+    }
+
+    /**
+     * Оценки студентов одной группы через JOIN со students. Нужен, пока {@link StudentGroupIndex} не построен.
+     *
+     * @param groupName Название группы.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Оценки, отсортированные по студенту и дате.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<Grades> findGradesByGroup(String groupName, LocalDate from, LocalDate to) {
+        List<Grades> grades = new ArrayList<>();
+        String sql = "SELECT g.id, g.student_id, g.subject, g.score, g.grade_date, g.version FROM students s "
+                + "JOIN grades g ON g.student_id = s.id WHERE s.group_name = ? AND s.deleted_at IS NULL"
+                + periodCondition("g.grade_date", from, to) + " ORDER BY g.student_id, g.grade_date";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, groupName);
+            setPeriod(ps, 2, from, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Grades> mapper = RowMappers.grades(rs);
+                while (rs.next()) {
+                    grades.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve grades for group " + groupName + ": " + e.getMessage(), e);
+        }
+        return grades;
+    }
+
+    private static String periodCondition(String column, LocalDate from, LocalDate to) {
+        return (from != null ? " AND " + column + " >= ?" : "") + (to != null ? " AND " + column + " <= ?" : "");
+    }
+
+    private static void setPeriod(PreparedStatement ps, int index, LocalDate from, LocalDate to) throws SQLException {
+        if (from != null) {
+            ps.setDate(index++, java.sql.Date.valueOf(from));
+        }
+        if (to != null) {
+            ps.setDate(index, java.sql.Date.valueOf(to));
+        }
+    }
+
     /**
      * Извлекает одну оценку по ее уникальному ID.
      *
@@ -111,81 +401,264 @@ public class GradeDAO {
      * @throws RuntimeException В случае ошибки при работе с базой данных.
      */
     public Optional<Grades> findById(Integer id) {
-        String sql = "SELECT id, student_id, subject, score, grade_date FROM grades WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection()) {
+            return findById(conn, id).filter(grade -> !deletedStudents.contains(grade.getStudentId()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve grade by ID: " + e.getMessage(), e);
+        }
+    }
 
+    private Optional<Grades> findById(Connection conn, Integer id) throws SQLException {
+        String sql = "SELECT id, student_id, subject, score, grade_date, version FROM grades WHERE id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapRowToGrade(rs));
+                    return Optional.of(RowMappers.grades(rs).map(rs));
                 }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to retrieve grade by ID: " + e.getMessage(), e);
         }
         return Optional.empty();
     }
 
     /**
-     * Обновляет информацию о существующей оценке в базе данных.
+     * Обновляет оценку.
+     * <ul>
+     *     <li>Существование студента проверяет внешний ключ grades.student_id, а не отдельный findById.</li>
+     *     <li>Если у оценки указан version, строка обновится только при совпадении версии (optimistic lock).</li>
+     *     <li>Новая версия возвращается в том же ответе через LAST_INSERT_ID(expr) (см. {@link #readNewVersion}).</li>
+     * </ul>
+     * Пока агрегаты {@link GradeRollups} не готовы, это один UPDATE. Когда готовы, им нужны старые значения строки:
+     * перед UPDATE на том же соединении читается строка, а UPDATE делается условным по ее версии,
+     * так что параллельное изменение между чтением и записью не пройдет незамеченным (тогда чтение повторяется).
+     * При успехе в объект записывается новая версия, так что его можно сразу вернуть клиенту.
      *
      * @param grade Объект Grades с обновленными данными (ID должен быть указан).
-     * @return Количество затронутых строк (обычно 1, если обновление успешно, 0 если оценка не найдена).
+     * @return Количество затронутых строк: 1 - обновлено, 0 - оценки нет или версия не совпала.
+     * @throws IllegalArgumentException Если студента с таким studentId нет (нарушен внешний ключ).
      * @throws RuntimeException В случае ошибки при работе с базой данных.
      */
     public int update(Grades grade) {
-        String sql = "UPDATE grades SET student_id = ?, subject = ?, score = ?, grade_date = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        if (deletedStudents.contains(grade.getStudentId())) {
+            // строка студента еще есть, так что внешний ключ удаленного студента не заметит
+            throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found.");
+        }
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite()) {
+            if (!rollups.isReady()) {
+                int updated;
+                try (Connection conn = dataSource.getConnection()) {
+                    updated = executeUpdate(conn, grade, grade.getVersion());
+                }
+                if (updated > 0) {
+                    columns.gradeSaved(grade);
+                    // старая строка не читалась, и оценка могла перейти от другого студента
+                    changeVersions.gradesChangedForAll();
+                }
+                return updated;
+            }
+            Optional<Grades> old;
+            try (Connection conn = dataSource.getConnection()) {
+                old = updateChecked(conn, grade);
+            }
+            if (old.isEmpty()) {
+                return 0;
+            }
+            // обновления в памяти - уже после возврата соединения в пул
+            rollups.gradeChanged(old.get(), grade);
+            columns.gradeSaved(grade);
+            changeVersions.gradesChanged(old.get().getStudentId(), grade.getStudentId());
+            return 1;
+        } catch (SQLException e) {
+            if (isConstraintViolation(e)) {
+                // единственное ограничение, которое может нарушить валидная оценка, - внешний ключ на студента
+                throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found.", e);
+            }
+            throw new RuntimeException("Failed to update grade: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Читает строку и обновляет ее условно по прочитанной версии, пока UPDATE не пройдет.
+     *
+     * @return Строка до изменения или Optional.empty(), если оценки нет, ее студент удален или версия не совпала.
+     */
+    private Optional<Grades> updateChecked(Connection conn, Grades grade) throws SQLException {
+        while (true) {
+            Optional<Grades> old = findById(conn, grade.getId());
+            if (old.isEmpty() || deletedStudents.contains(old.get().getStudentId())) {
+                return Optional.empty();
+            }
+            Integer oldVersion = old.get().getVersion();
+            if (grade.getVersion() != null && !grade.getVersion().equals(oldVersion)) {
+                return Optional.empty();
+            }
+            if (executeUpdate(conn, grade, oldVersion) > 0) {
+                return old;
+            }
+            // строку успели изменить между SELECT и UPDATE - читаем заново
+        }
+    }
 
+    private int executeUpdate(Connection conn, Grades grade, Integer expectedVersion) throws SQLException {
+        String sql = "UPDATE grades SET student_id = ?, subject = ?, score = ?, grade_date = ?, "
+                + "version = LAST_INSERT_ID(version + 1) WHERE id = ?"
+                + (expectedVersion != null ? " AND version = ?" : "");
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, grade.getStudentId());
             ps.setString(2, grade.getSubject());
             ps.setInt(3, grade.getScore());
             ps.setDate(4, java.sql.Date.valueOf(grade.getGradeDate()));
             ps.setInt(5, grade.getId());
+            if (expectedVersion != null) {
+                ps.setInt(6, expectedVersion);
+            }
 
-            return ps.executeUpdate();
+            int updated = ps.executeUpdate();
+            if (updated > 0) {
+                grade.setVersion(readNewVersion(ps));
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Текущая версия оценки. Нужна только после неудачного условного update,
+     * чтобы отличить "оценки нет" от "оценку уже кто-то изменил".
+     *
+     * @param id ID оценки.
+     * @return Optional с версией или Optional.empty(), если оценки нет или ее студент удален (как в {@link #findById}).
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public Optional<Integer> findVersion(Integer id) {
+        String sql = "SELECT version, student_id FROM grades WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || deletedStudents.contains(rs.getInt(2))) {
+                    return Optional.empty();
+                }
+                return Optional.of(rs.getInt(1));
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to update grade: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to retrieve grade version: " + e.getMessage(), e);
         }
     }
 
     /**
      * Удаляет оценку из базы данных по ее ID.
+     * Если агрегаты {@link GradeRollups} готовы, сначала читается удаляемая строка (ее балл нужно вычесть),
+     * а DELETE делается условным по ее версии - так же, как в {@link #update(Grades)}.
      *
      * @param id ID оценки, которую нужно удалить.
      * @return Количество удаленных строк (обычно 1, если удаление успешно, 0 если оценка не найдена).
      * @throws RuntimeException В случае ошибки при работе с базой данных.
      */
     public int deleteById(Integer id) {
-        String sql = "DELETE FROM grades WHERE id = ?";
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite()) {
+            if (!rollups.isReady()) {
+                int deleted;
+                try (Connection conn = dataSource.getConnection()) {
+                    deleted = executeDelete(conn, id, null);
+                }
+                if (deleted > 0) {
+                    columns.gradeRemoved(id);
+                    changeVersions.gradesChangedForAll();
+                }
+                return deleted;
+            }
+            Optional<Grades> old;
+            try (Connection conn = dataSource.getConnection()) {
+                old = deleteChecked(conn, id);
+            }
+            if (old.isEmpty()) {
+                return 0;
+            }
+            rollups.gradeRemoved(old.get());
+            columns.gradeRemoved(id);
+            changeVersions.gradesChanged(old.get().getStudentId());
+            return 1;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete grade: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Удаляет часть оценок удаленного студента (фоновая очистка). DELETE ... LIMIT идет по индексу
+     * idx_grades_student_date, поэтому блокирует только строки этого студента и только limit штук за раз.
+     * Агрегаты и счетчики не трогаются: оценки удаленного студента из них убраны еще при удалении.
+     *
+     * @param studentId ID удаленного студента.
+     * @param limit Максимум строк за один вызов.
+     * @return Сколько оценок удалено (меньше limit - у студента оценок больше нет).
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public int deleteGradesOfStudent(Integer studentId, int limit) {
+        String sql = "DELETE FROM grades WHERE student_id = ? LIMIT ?";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, id);
+            ps.setInt(1, studentId);
+            ps.setInt(2, limit);
             return ps.executeUpdate();
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to delete grade: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to purge grades of student " + studentId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Читает строку и удаляет ее условно по прочитанной версии, пока DELETE не пройдет.
+     *
+     * @return Удаленная строка или Optional.empty(), если оценки нет или ее студент удален.
+     */
+    private Optional<Grades> deleteChecked(Connection conn, Integer id) throws SQLException {
+        while (true) {
+            Optional<Grades> old = findById(conn, id);
+            if (old.isEmpty() || deletedStudents.contains(old.get().getStudentId())) {
+                return Optional.empty();
+            }
+            if (executeDelete(conn, id, old.get().getVersion()) > 0) {
+                return old;
+            }
+        }
+    }
+
+    private int executeDelete(Connection conn, Integer id, Integer expectedVersion) throws SQLException {
+        String sql = "DELETE FROM grades WHERE id = ?" + (expectedVersion != null ? " AND version = ?" : "");
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            if (expectedVersion != null) {
+                ps.setInt(2, expectedVersion);
+            }
+            return ps.executeUpdate();
         }
     }
 
     /**
-     * Вспомогательный метод для маппинга строки ResultSet на объект Grade.
+     * Читает новую версию после UPDATE ... SET version = LAST_INSERT_ID(version + 1).
+     * MySQL кладет это значение в OK-пакет ответа на UPDATE, а драйвер отдает его как сгенерированный ключ,
+     * поэтому отдельный SELECT после обновления не нужен. Statement должен быть создан с RETURN_GENERATED_KEYS.
      *
-     * @param rs ResultSet, из которого нужно прочитать данные.
-     * @return Объект Grade, заполненный данными из текущей строки ResultSet.
-     * @throws SQLException Если происходит ошибка при доступе к данным в ResultSet.
+     * @param ps Выполненный UPDATE, который затронул одну строку.
+     * @return Новая версия строки.
+     * @throws SQLException Если драйвер не вернул значение.
+     */
+    static int readNewVersion(PreparedStatement ps) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("Update succeeded, but new version was not returned.");
+            }
+            return keys.getInt(1);
+        }
+    }
+
+    /**
+     * Нарушение ограничения целостности (внешний ключ, NOT NULL, уникальность) - SQLState класса 23.
      */
-    private Grades mapRowToGrade(ResultSet rs) throws SQLException {
-        Grades grade = new Grades();
-        grade.setId(rs.getInt("id"));
-        grade.setStudentId(rs.getInt("student_id"));
-        grade.setSubject(rs.getString("subject"));
-        grade.setScore(rs.getInt("score"));
-        // java.sql.Date в LocalDate
-        grade.setGradeDate(rs.getDate("grade_date").toLocalDate());
-        return grade;
+    static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
     }
 }
 
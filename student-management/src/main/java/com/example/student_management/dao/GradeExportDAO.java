@@ -0,0 +1,139 @@
+package com.example.student_management.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * DAO для выгрузки оценок вместе с данными студента (ведомость за период).
+ * Строки читаются одним forward-only запросом порциями по {@link GradeDAO#STREAM_FETCH_SIZE}
+ * и передаются потребителю по одной через один и тот же объект {@link Row}, так что память
+ * не зависит от количества строк.
+ */
+@Repository
+public class GradeExportDAO {
+    private final DataSource dataSource;
+
+    @Autowired
+    public GradeExportDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Строка выгрузки. Один экземпляр переиспользуется для всех строк: потребитель не должен
+     * хранить ссылку на него после возврата из accept.
+     */
+    public static final class Row {
+        private int gradeId;
+        private int studentId;
+        private String lastName;
+        private String firstName;
+        private String groupName;
+        private String subject;
+        private int score;
+        private LocalDate gradeDate;
+
+        public int getGradeId() {
+            return gradeId;
+        }
+
+        public int getStudentId() {
+            return studentId;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getGroupName() {
+            return groupName;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public LocalDate getGradeDate() {
+            return gradeDate;
+        }
+    }
+
+    /**
+     * Потоково выгружает оценки в порядке ID (по первичному ключу, без сортировки на стороне базы).
+     *
+     * @param groupName (Опционально) Только студенты этой группы.
+     * @param subject (Опционально) Только этот предмет.
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @param consumer Получает каждую строку (один и тот же объект Row).
+     * @return Сколько строк выгружено.
+     * @throws RuntimeException В случае ошибки при работе с базой данных или если consumer бросил исключение.
+     */
+    public long export(String groupName, String subject, LocalDate from, LocalDate to, Consumer<Row> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT g.id, g.student_id, s.last_name, s.first_name, s.group_name, "
+                + "g.subject, g.score, g.grade_date FROM grades g JOIN students s ON s.id = g.student_id "
+                + "WHERE s.deleted_at IS NULL");
+        List<Object> params = new ArrayList<>();
+        if (groupName != null) {
+            sql.append(" AND s.group_name = ?");
+            params.add(groupName);
+        }
+        if (subject != null) {
+            sql.append(" AND g.subject = ?");
+            params.add(subject);
+        }
+        if (from != null) {
+            sql.append(" AND g.grade_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND g.grade_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        sql.append(" ORDER BY g.id");
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(GradeDAO.STREAM_FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            Row row = new Row();
+            long count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    row.gradeId = rs.getInt(1);
+                    row.studentId = rs.getInt(2);
+                    row.lastName = rs.getString(3);
+                    row.firstName = rs.getString(4);
+                    row.groupName = rs.getString(5);
+                    row.subject = rs.getString(6);
+                    row.score = rs.getInt(7);
+                    row.gradeDate = rs.getObject(8, LocalDate.class);
+                    consumer.accept(row);
+                    count++;
+                }
+            }
+            return count;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to export grades: " + e.getMessage(), e);
+        }
+    }
+}
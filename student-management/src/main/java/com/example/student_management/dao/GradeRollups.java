@@ -0,0 +1,608 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.RollupCheck;
+import com.example.student_management.model.Students;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Предрасчитанные агрегаты оценок в памяти: count/sum/sumSquares/min/max по студенту,
+ * по паре (студент, предмет) и по паре (группа, предмет). Обновляются DAO на каждой записи,
+ * поэтому статистика без периода читается за O(1), а не сканирует таблицу grades.
+ * <p>
+ * Кроме сумм у каждого агрегата есть разреженная гистограмма "балл -> количество" (баллов не больше 101).
+ * Она нужна, чтобы после удаления оценки с минимальным/максимальным баллом знать новый минимум/максимум,
+ * и заодно дает перцентили.
+ * <p>
+ * Вместе с агрегатами поддерживаются рейтинги студентов по среднему баллу ({@link RankIndex}):
+ * общий, по группе, по предмету и по паре (группа, предмет).
+ * <p>
+ * Согласованность с базой: каждая запись в DAO идет внутри {@link #guardWrite()} (общая блокировка),
+ * а {@link #rebuild} и {@link #check} берут эксклюзивную блокировку. Так перестройка видит базу без
+ * "полузаписанных" изменений, а изменения, сделанные до готовности, просто попадают в перестройку.
+ */
+@Component
+public class GradeRollups {
+    private final boolean enabled;
+
+    /** Общая часть - записи в DAO, эксклюзивная - перестройка и проверка. */
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    /** Все обращения к таблицам - под монитором this. */
+    private Tables tables = new Tables();
+
+    @Autowired
+    public GradeRollups(@Value("${grades.rollups.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true, если агрегаты построены и поддерживаются в актуальном состоянии.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Блокировка на время записи в базу и обновления агрегатов. Ее нужно брать до получения соединения,
+     * чтобы во время перестройки писатели ждали без занятого соединения.
+     *
+     * @return Guard, который нужно закрыть после записи (try-with-resources).
+     */
+    public WriteGuard guardWrite() {
+        ReentrantReadWriteLock.ReadLock lock = rebuildLock.readLock();
+        lock.lock();
+        return lock::unlock;
+    }
+
+    /**
+     * Ждет, пока закончатся записи, начатые до вызова (все, кто сейчас держит {@link #guardWrite()}).
+     * Нельзя вызывать, держа guardWrite.
+     */
+    public void awaitWrites() {
+        rebuildLock.writeLock().lock();
+        rebuildLock.writeLock().unlock();
+    }
+
+    /**
+     * Оценка добавлена в базу.
+     */
+    public void gradeAdded(Grades grade) {
+        if (ready) {
+            synchronized (this) {
+                tables.add(grade.getStudentId(), grade.getSubject(), grade.getScore(), 1);
+            }
+        }
+    }
+
+    /**
+     * Оценка удалена из базы (old - значения, которые были в строке до удаления).
+     */
+    public void gradeRemoved(Grades old) {
+        if (ready) {
+            synchronized (this) {
+                tables.add(old.getStudentId(), old.getSubject(), old.getScore(), -1);
+            }
+        }
+    }
+
+    /**
+     * Оценка изменена: вычитаем старые значения и добавляем новые (студент и предмет тоже могли поменяться).
+     */
+    public void gradeChanged(Grades old, Grades updated) {
+        if (ready) {
+            synchronized (this) {
+                tables.add(old.getStudentId(), old.getSubject(), old.getScore(), -1);
+                tables.add(updated.getStudentId(), updated.getSubject(), updated.getScore(), 1);
+            }
+        }
+    }
+
+    /**
+     * Студент добавлен или изменен. Если сменилась группа, его оценки переезжают в агрегаты новой группы.
+     */
+    public void studentSaved(Students student) {
+        if (ready) {
+            synchronized (this) {
+                tables.setGroup(student.getId(), student.getGroupName());
+            }
+        }
+    }
+
+    /**
+     * Студент удален (оценки удалены каскадом): убираем его агрегаты и вычитаем их из агрегатов группы.
+     */
+    public void studentRemoved(Integer studentId) {
+        if (ready) {
+            synchronized (this) {
+                tables.removeStudent(studentId);
+            }
+        }
+    }
+
+    /**
+     * Полностью пересчитывает агрегаты из базы. Записи в это время ждут.
+     *
+     * @param studentSource Источник всех студентов (например, StudentDAO::streamAll).
+     * @param gradeSource Источник всех оценок (например, GradeDAO::streamAll).
+     */
+    public void rebuild(Consumer<Consumer<Students>> studentSource, Consumer<Consumer<Grades>> gradeSource) {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            Tables fresh = load(studentSource, gradeSource);
+            synchronized (this) {
+                tables = fresh;
+            }
+            ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Пересчитывает агрегаты из базы во временную копию и сравнивает с текущими. Текущие не меняются.
+     *
+     * @param studentSource Источник всех студентов.
+     * @param gradeSource Источник всех оценок.
+     * @param maxSamples Сколько расхождений перечислить в ответе.
+     * @return Результат проверки: сколько ключей проверено и какие разошлись.
+     */
+    public RollupCheck check(Consumer<Consumer<Students>> studentSource, Consumer<Consumer<Grades>> gradeSource,
+                             int maxSamples) {
+        if (!ready) {
+            return new RollupCheck(false, 0, 0, List.of());
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            Tables expected = load(studentSource, gradeSource);
+            List<String> mismatches = new ArrayList<>();
+            synchronized (this) {
+                tables.diff(expected, mismatches);
+                int keys = expected.keyCount();
+                return new RollupCheck(true, keys, mismatches.size(),
+                        mismatches.subList(0, Math.min(maxSamples, mismatches.size())));
+            }
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Копия агрегата по всем оценкам студента (пустой агрегат, если оценок нет).
+     */
+    public synchronized Rollup student(Integer studentId) {
+        return copyOrEmpty(tables.byStudent.get(studentId));
+    }
+
+    /**
+     * @return Копии агрегатов студента по каждому предмету, отсортированные по предмету.
+     */
+    public synchronized Map<String, Rollup> studentSubjects(Integer studentId) {
+        return copyAll(tables.byStudentSubject.get(studentId));
+    }
+
+    /**
+     * @return Копии агрегатов группы по каждому предмету, отсортированные по предмету.
+     */
+    public synchronized Map<String, Rollup> groupSubjects(String groupName) {
+        return copyAll(tables.byGroupSubject.get(groupName));
+    }
+
+    /**
+     * @return Агрегат по всем оценкам группы (сумма агрегатов ее предметов).
+     */
+    public synchronized Rollup group(String groupName) {
+        Rollup total = new Rollup();
+        Map<String, Rollup> subjects = tables.byGroupSubject.get(groupName);
+        if (subjects != null) {
+            subjects.values().forEach(rollup -> total.merge(rollup, 1));
+        }
+        return total;
+    }
+
+    /**
+     * @return Агрегат по всем оценкам предмета (сумма по всем группам).
+     */
+    public synchronized Rollup subject(String subject) {
+        Rollup total = new Rollup();
+        for (Map<String, Rollup> subjects : tables.byGroupSubject.values()) {
+            Rollup rollup = subjects.get(subject);
+            if (rollup != null) {
+                total.merge(rollup, 1);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Агрегаты по каждой группе, отсортированные по названию группы.
+     */
+    public synchronized Map<String, Rollup> groups() {
+        Map<String, Rollup> result = new TreeMap<>();
+        tables.byGroupSubject.forEach((group, subjects) -> {
+            Rollup total = new Rollup();
+            subjects.values().forEach(rollup -> total.merge(rollup, 1));
+            result.put(group, total);
+        });
+        return result;
+    }
+
+    /**
+     * @return Агрегаты по каждому предмету, отсортированные по названию предмета.
+     */
+    public synchronized Map<String, Rollup> subjects() {
+        Map<String, Rollup> result = new TreeMap<>();
+        for (Map<String, Rollup> subjects : tables.byGroupSubject.values()) {
+            subjects.forEach((subject, rollup) -> result.computeIfAbsent(subject, s -> new Rollup()).merge(rollup, 1));
+        }
+        return result;
+    }
+
+    /**
+     * Первые limit студентов рейтинга по среднему баллу.
+     *
+     * @param group Группа или null - все группы.
+     * @param subject Предмет или null - все предметы.
+     * @param limit Сколько строк вернуть.
+     * @return Снимок рейтинга (пустой, если в нем никого нет).
+     */
+    public synchronized RankIndex.Slice top(String group, String subject, int limit) {
+        RankIndex index = tables.rankings.get(new RankKey(group, subject));
+        return index != null ? new RankIndex.Slice(index.size(), index.top(limit)) : RankIndex.Slice.EMPTY;
+    }
+
+    /**
+     * Место одного студента в рейтинге.
+     *
+     * @param group Группа или null - все группы.
+     * @param subject Предмет или null - все предметы.
+     * @param studentId ID студента.
+     * @return Снимок с одной строкой или без строк, если у студента нет оценок по этому ключу.
+     */
+    public synchronized RankIndex.Slice rankOf(String group, String subject, int studentId) {
+        RankIndex index = tables.rankings.get(new RankKey(group, subject));
+        if (index == null) {
+            return RankIndex.Slice.EMPTY;
+        }
+        RankIndex.Entry entry = index.find(studentId);
+        return new RankIndex.Slice(index.size(), entry != null ? List.of(entry) : List.of());
+    }
+
+    private static Tables load(Consumer<Consumer<Students>> studentSource, Consumer<Consumer<Grades>> gradeSource) {
+        Tables fresh = new Tables();
+        studentSource.accept(student -> fresh.groupByStudent.put(student.getId(), student.getGroupName()));
+        gradeSource.accept(grade -> fresh.add(grade.getStudentId(), grade.getSubject(), grade.getScore(), 1));
+        return fresh;
+    }
+
+    private static Rollup copyOrEmpty(Rollup rollup) {
+        return rollup != null ? rollup.copy() : new Rollup();
+    }
+
+    private static Map<String, Rollup> copyAll(Map<String, Rollup> rollups) {
+        Map<String, Rollup> result = new TreeMap<>();
+        if (rollups != null) {
+            rollups.forEach((key, rollup) -> result.put(key, rollup.copy()));
+        }
+        return result;
+    }
+
+    /**
+     * Ключ рейтинга: группа и предмет, null означает "все".
+     */
+    private record RankKey(String group, String subject) {
+    }
+
+    /**
+     * Блокировка записи из {@link #guardWrite()}; close() не бросает проверяемых исключений.
+     */
+    public interface WriteGuard extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Все агрегаты одного "снимка". Перестройка собирает новый объект и подменяет им старый целиком.
+     */
+    private static final class Tables {
+        final Map<Integer, String> groupByStudent = new HashMap<>();
+        final Map<Integer, Rollup> byStudent = new HashMap<>();
+        final Map<Integer, Map<String, Rollup>> byStudentSubject = new HashMap<>();
+        final Map<String, Map<String, Rollup>> byGroupSubject = new HashMap<>();
+
+        /** Рейтинги студентов по среднему баллу; ключ с null в группе/предмете - "все группы"/"все предметы". */
+        final Map<RankKey, RankIndex> rankings = new HashMap<>();
+
+        /**
+         * Добавляет (n > 0) или вычитает (n < 0) оценку во всех трех агрегатах и переставляет студента в рейтингах.
+         */
+        void add(int studentId, String subject, int score, int n) {
+            apply(byStudent, studentId, score, n);
+            Map<String, Rollup> subjects = byStudentSubject.computeIfAbsent(studentId, id -> new HashMap<>());
+            apply(subjects, subject, score, n);
+            String group = groupByStudent.get(studentId);
+            if (group != null) {
+                apply(byGroupSubject.computeIfAbsent(group, g -> new HashMap<>()), subject, score, n);
+            }
+            rank(studentId, group, null, byStudent.get(studentId));
+            rank(studentId, group, subject, subjects.get(subject));
+        }
+
+        void setGroup(int studentId, String group) {
+            String oldGroup = groupByStudent.put(studentId, group);
+            if (Objects.equals(oldGroup, group)) {
+                return;
+            }
+            Map<String, Rollup> subjects = byStudentSubject.get(studentId);
+            if (subjects == null) {
+                return;
+            }
+            subjects.forEach((subject, rollup) -> {
+                if (oldGroup != null) {
+                    merge(byGroupSubject.get(oldGroup), subject, rollup, -1);
+                    unrank(new RankKey(oldGroup, subject), studentId);
+                }
+                if (group != null) {
+                    merge(byGroupSubject.computeIfAbsent(group, g -> new HashMap<>()), subject, rollup, 1);
+                    rank(new RankKey(group, subject), studentId, rollup);
+                }
+            });
+            Rollup total = byStudent.get(studentId);
+            if (oldGroup != null) {
+                unrank(new RankKey(oldGroup, null), studentId);
+            }
+            if (group != null && total != null) {
+                rank(new RankKey(group, null), studentId, total);
+            }
+        }
+
+        void removeStudent(int studentId) {
+            String group = groupByStudent.remove(studentId);
+            Map<String, Rollup> subjects = byStudentSubject.remove(studentId);
+            byStudent.remove(studentId);
+            if (subjects != null) {
+                subjects.forEach((subject, rollup) -> {
+                    if (group != null) {
+                        merge(byGroupSubject.get(group), subject, rollup, -1);
+                    }
+                    rank(studentId, group, subject, null);
+                });
+            }
+            rank(studentId, group, null, null);
+        }
+
+        /**
+         * Ставит студента в рейтинги "все группы" и его группы по ключу subject (null - по всем предметам).
+         * Если rollup == null (оценок не осталось), убирает его из них.
+         */
+        private void rank(int studentId, String group, String subject, Rollup rollup) {
+            rank(new RankKey(null, subject), studentId, rollup);
+            if (group != null) {
+                rank(new RankKey(group, subject), studentId, rollup);
+            }
+        }
+
+        private void rank(RankKey key, int studentId, Rollup rollup) {
+            if (rollup == null) {
+                unrank(key, studentId);
+            } else {
+                rankings.computeIfAbsent(key, k -> new RankIndex()).put(studentId, rollup.getAverage(), rollup.getCount());
+            }
+        }
+
+        private void unrank(RankKey key, int studentId) {
+            RankIndex index = rankings.get(key);
+            if (index != null) {
+                index.remove(studentId);
+                if (index.size() == 0) {
+                    rankings.remove(key);
+                }
+            }
+        }
+
+        int keyCount() {
+            int keys = byStudent.size() + byGroupSubject.values().stream().mapToInt(Map::size).sum();
+            return keys + byStudentSubject.values().stream().mapToInt(Map::size).sum() + rankings.size();
+        }
+
+        /**
+         * Записывает в mismatches все ключи, где этот снимок расходится с expected.
+         */
+        void diff(Tables expected, List<String> mismatches) {
+            diffMaps("student", byStudent, expected.byStudent, mismatches);
+            diffNested("student/subject", byStudentSubject, expected.byStudentSubject, mismatches);
+            diffNested("group/subject", byGroupSubject, expected.byGroupSubject, mismatches);
+            Map<RankKey, RankIndex> keys = new HashMap<>(expected.rankings);
+            rankings.forEach(keys::putIfAbsent);
+            for (RankKey key : keys.keySet()) {
+                List<RankIndex.Entry> a = topAll(rankings.get(key));
+                List<RankIndex.Entry> e = topAll(expected.rankings.get(key));
+                if (!a.equals(e)) {
+                    mismatches.add("ranking " + key + ": expected " + e + ", actual " + a);
+                }
+            }
+        }
+
+        private static List<RankIndex.Entry> topAll(RankIndex index) {
+            return index != null ? index.top(index.size()) : List.of();
+        }
+
+        private static <K> void diffNested(String kind, Map<K, Map<String, Rollup>> actual,
+                                           Map<K, Map<String, Rollup>> expected, List<String> mismatches) {
+            Map<K, Map<String, Rollup>> keys = new HashMap<>(expected);
+            actual.forEach(keys::putIfAbsent);
+            keys.keySet().forEach(key -> diffMaps(kind + " " + key,
+                    actual.getOrDefault(key, Map.of()), expected.getOrDefault(key, Map.of()), mismatches));
+        }
+
+        private static <K> void diffMaps(String kind, Map<K, Rollup> actual, Map<K, Rollup> expected,
+                                         List<String> mismatches) {
+            Map<K, Rollup> keys = new HashMap<>(expected);
+            actual.forEach(keys::putIfAbsent);
+            for (K key : keys.keySet()) {
+                Rollup a = actual.getOrDefault(key, Rollup.EMPTY);
+                Rollup e = expected.getOrDefault(key, Rollup.EMPTY);
+                if (!a.sameAs(e)) {
+                    mismatches.add(kind + " " + key + ": expected " + e + ", actual " + a);
+                }
+            }
+        }
+
+        private static <K> void apply(Map<K, Rollup> rollups, K key, int score, int n) {
+            Rollup rollup = rollups.computeIfAbsent(key, k -> new Rollup());
+            rollup.add(score, n);
+            if (rollup.getCount() <= 0) {
+                rollups.remove(key);
+            }
+        }
+
+        private static void merge(Map<String, Rollup> rollups, String key, Rollup other, int sign) {
+            if (rollups == null) {
+                return;
+            }
+            Rollup rollup = rollups.computeIfAbsent(key, k -> new Rollup());
+            rollup.merge(other, sign);
+            if (rollup.getCount() <= 0) {
+                rollups.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Агрегат оценок одного ключа: count, sum, sum of squares и разреженная гистограмма баллов
+     * (отсортированные массивы балл/количество), из которой берутся min и max.
+     */
+    public static final class Rollup {
+        static final Rollup EMPTY = new Rollup();
+
+        private long count;
+        private long sum;
+        private long sumSquares;
+        private int[] scores = new int[4];
+        private long[] counts = new long[4];
+        private int distinct;
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getSumSquares() {
+            return sumSquares;
+        }
+
+        public Integer getMin() {
+            return distinct > 0 ? scores[0] : null;
+        }
+
+        public Integer getMax() {
+            return distinct > 0 ? scores[distinct - 1] : null;
+        }
+
+        public Double getAverage() {
+            return count > 0 ? (double) sum / count : null;
+        }
+
+        /**
+         * @return Стандартное отклонение (по генеральной совокупности) или null, если оценок нет.
+         */
+        public Double getStdDev() {
+            if (count == 0) {
+                return null;
+            }
+            double mean = (double) sum / count;
+            return Math.sqrt(Math.max(0.0, (double) sumSquares / count - mean * mean));
+        }
+
+        /**
+         * @return Распределение "балл -> количество" длиной {@link GradeStatisticsDAO#MAX_SCORE} + 1.
+         */
+        public long[] toDistribution() {
+            long[] distribution = new long[GradeStatisticsDAO.MAX_SCORE + 1];
+            for (int i = 0; i < distinct; i++) {
+                if (scores[i] >= 0 && scores[i] < distribution.length) {
+                    distribution[scores[i]] += counts[i];
+                }
+            }
+            return distribution;
+        }
+
+        void add(int score, long n) {
+            int i = Arrays.binarySearch(scores, 0, distinct, score);
+            if (i < 0) {
+                if (n < 0) {
+                    return; // такого балла нет - агрегат уже разошелся с базой, это покажет check()
+                }
+                i = -i - 1;
+                if (distinct == scores.length) {
+                    scores = Arrays.copyOf(scores, distinct * 2);
+                    counts = Arrays.copyOf(counts, distinct * 2);
+                }
+                System.arraycopy(scores, i, scores, i + 1, distinct - i);
+                System.arraycopy(counts, i, counts, i + 1, distinct - i);
+                scores[i] = score;
+                counts[i] = 0;
+                distinct++;
+            }
+            long applied = Math.max(n, -counts[i]);
+            counts[i] += applied;
+            count += applied;
+            sum += applied * score;
+            sumSquares += applied * score * score;
+            if (counts[i] == 0) {
+                System.arraycopy(scores, i + 1, scores, i, distinct - i - 1);
+                System.arraycopy(counts, i + 1, counts, i, distinct - i - 1);
+                distinct--;
+            }
+        }
+
+        void merge(Rollup other, int sign) {
+            for (int i = 0; i < other.distinct; i++) {
+                add(other.scores[i], sign * other.counts[i]);
+            }
+        }
+
+        Rollup copy() {
+            Rollup copy = new Rollup();
+            copy.count = count;
+            copy.sum = sum;
+            copy.sumSquares = sumSquares;
+            copy.scores = Arrays.copyOf(scores, Math.max(distinct, 1));
+            copy.counts = Arrays.copyOf(counts, Math.max(distinct, 1));
+            copy.distinct = distinct;
+            return copy;
+        }
+
+        boolean sameAs(Rollup other) {
+            return count == other.count && sum == other.sum && sumSquares == other.sumSquares
+                    && Arrays.equals(scores, 0, distinct, other.scores, 0, other.distinct)
+                    && Arrays.equals(counts, 0, distinct, other.counts, 0, other.distinct);
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count + ", sum=" + sum + ", sumSquares=" + sumSquares
+                    + ", min=" + getMin() + ", max=" + getMax() + "}";
+        }
+    }
+}
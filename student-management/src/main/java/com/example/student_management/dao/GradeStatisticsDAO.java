@@ -0,0 +1,170 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.GradeStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO для агрегатов по оценкам. Все считается в базе через GROUP BY,
+ * так что по сети идут только итоговые строки, а не вся таблица grades.
+ */
+@Repository
+public class GradeStatisticsDAO {
+    /** Оценки в системе целые от 0 до 100 (см. GradeService). */
+    public static final int MAX_SCORE = 100;
+
+    private static final String SUMMARY_COLUMNS = " COUNT(*) AS cnt, AVG(g.score) AS avg_score, MIN(g.score) AS min_score,"
+            + " MAX(g.score) AS max_score, STDDEV_POP(g.score) AS std_dev";
+
+    /**
+     * По какому полю группировать оценки.
+     */
+    public enum Dimension {
+        STUDENT("g.student_id", false),
+        GROUP("s.group_name", true),
+        SUBJECT("g.subject", false);
+
+        private final String column;
+        private final boolean needsStudentsJoin;
+
+        Dimension(String column, boolean needsStudentsJoin) {
+            this.column = column;
+            this.needsStudentsJoin = needsStudentsJoin;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final DeletedStudents deletedStudents;
+
+    @Autowired
+    public GradeStatisticsDAO(DataSource dataSource, DeletedStudents deletedStudents) {
+        this.dataSource = dataSource;
+        this.deletedStudents = deletedStudents;
+    }
+
+    /**
+     * Считает count/avg/min/max для каждого значения измерения (каждой группы, предмета или студента).
+     *
+     * @param dimension По чему группировать.
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @return Статистика по каждому ключу, отсортированная по ключу.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<GradeStatistics> summarizeAll(Dimension dimension, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(dimension.column)
+                .append(" AS dim_key,").append(SUMMARY_COLUMNS);
+        appendFromAndWhere(sql, params, dimension, null, from, to);
+        sql.append(" GROUP BY ").append(dimension.column).append(" ORDER BY ").append(dimension.column);
+        return summarize(sql.toString(), params, dimension.name().toLowerCase(), "by " + dimension);
+    }
+
+    /**
+     * Считает count/avg/min/max по каждому предмету внутри одного ключа (например, предметы одного студента или группы).
+     *
+     * @param dimension По какому полю фильтровать.
+     * @param key Значение ключа (ID студента, название группы или предмет).
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @return Статистика по каждому предмету, отсортированная по предмету.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public List<GradeStatistics> summarizeSubjects(Dimension dimension, Object key, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT g.subject AS dim_key,").append(SUMMARY_COLUMNS);
+        appendFromAndWhere(sql, params, dimension, key, from, to);
+        sql.append(" GROUP BY g.subject ORDER BY g.subject");
+        return summarize(sql.toString(), params, Dimension.SUBJECT.name().toLowerCase(), "subjects by " + dimension);
+    }
+
+    private List<GradeStatistics> summarize(String sql, List<Object> params, String dimensionName, String description) {
+        List<GradeStatistics> result = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new GradeStatistics(dimensionName, rs.getString("dim_key"),
+                            rs.getLong("cnt"), rs.getDouble("avg_score"), rs.getInt("min_score"), rs.getInt("max_score"),
+                            rs.getDouble("std_dev"), null, null));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to summarize grades " + description + ": " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает распределение баллов для одного ключа: сколько оценок с каждым баллом от 0 до 100.
+     * Результат запроса - максимум 101 строка при любом количестве оценок, а из него
+     * точно считаются count/avg/min/max, гистограмма и перцентили.
+     *
+     * @param dimension По какому полю фильтровать.
+     * @param key Значение ключа (ID студента, название группы или предмет).
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @return Массив длиной {@link #MAX_SCORE} + 1, где индекс - балл, а значение - количество оценок.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public long[] scoreDistribution(Dimension dimension, Object key, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT g.score AS score, COUNT(*) AS cnt");
+        appendFromAndWhere(sql, params, dimension, key, from, to);
+        sql.append(" GROUP BY g.score");
+
+        long[] distribution = new long[MAX_SCORE + 1];
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int score = rs.getInt("score");
+                    if (score >= 0 && score <= MAX_SCORE) {
+                        distribution[score] = rs.getLong("cnt");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load score distribution by " + dimension + ": " + e.getMessage(), e);
+        }
+        return distribution;
+    }
+
+    private void appendFromAndWhere(StringBuilder sql, List<Object> params, Dimension dimension,
+                                    Object key, LocalDate from, LocalDate to) {
+        sql.append(" FROM grades g");
+        if (dimension.needsStudentsJoin) {
+            sql.append(" JOIN students s ON s.id = g.student_id WHERE s.deleted_at IS NULL");
+        } else {
+            sql.append(" WHERE 1=1").append(deletedStudents.exclusion("g.student_id"));
+        }
+        if (key != null) {
+            sql.append(" AND ").append(dimension.column).append(" = ?");
+            params.add(key);
+        }
+        if (from != null) {
+            sql.append(" AND g.grade_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND g.grade_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.GradebookMatrix;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * DAO для журнала группы. Вся группа читается двумя запросами на одном соединении:
+ * список студентов (по индексу idx_students_group_last) и все их оценки одним JOIN
+ * (по индексу idx_grades_student_date). Оценки сразу складываются в примитивные массивы,
+ * без создания объекта Grades на каждую строку.
+ */
+@Repository
+public class GradebookDAO {
+    private final DataSource dataSource;
+
+    @Autowired
+    public GradebookDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Загружает журнал одной группы.
+     *
+     * @param groupName Название группы.
+     * @param from (Опционально) Начало периода по grade_date включительно.
+     * @param to (Опционально) Конец периода по grade_date включительно.
+     * @return Optional с матрицей или Optional.empty(), если в группе нет студентов.
+     * @throws RuntimeException В случае ошибки при работе с базой данных.
+     */
+    public Optional<GradebookMatrix> loadGroup(String groupName, LocalDate from, LocalDate to) {
+        String studentsSql = "SELECT id, first_name, last_name FROM students "
+                + "WHERE group_name = ? AND deleted_at IS NULL ORDER BY last_name, first_name, id";
+
+        StringBuilder gradesSql = new StringBuilder("SELECT g.id, g.student_id, g.subject, g.score, g.grade_date "
+                + "FROM students s JOIN grades g ON g.student_id = s.id "
+                + "WHERE s.group_name = ? AND s.deleted_at IS NULL");
+        List<Object> gradeParams = new ArrayList<>();
+        gradeParams.add(groupName);
+        if (from != null) {
+            gradesSql.append(" AND g.grade_date >= ?");
+            gradeParams.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            gradesSql.append(" AND g.grade_date <= ?");
+            gradeParams.add(Date.valueOf(to));
+        }
+        gradesSql.append(" ORDER BY g.student_id, g.grade_date, g.id");
+
+        try (Connection conn = dataSource.getConnection()) {
+            // оба запроса в одной транзакции только на чтение, чтобы студенты и оценки были из одного снимка
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try {
+                List<Integer> studentIds = new ArrayList<>();
+                List<String> firstNames = new ArrayList<>();
+                List<String> lastNames = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(studentsSql)) {
+                    ps.setString(1, groupName);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            studentIds.add(rs.getInt("id"));
+                            firstNames.add(rs.getString("first_name"));
+                            lastNames.add(rs.getString("last_name"));
+                        }
+                    }
+                }
+                if (studentIds.isEmpty()) {
+                    conn.commit();
+                    return Optional.empty();
+                }
+
+                Map<Integer, Integer> rowByStudent = new HashMap<>();
+                for (int row = 0; row < studentIds.size(); row++) {
+                    rowByStudent.put(studentIds.get(row), row);
+                }
+                Map<String, Integer> columnBySubject = new LinkedHashMap<>();
+
+                IntStream.Builder ids = IntStream.builder();
+                IntStream.Builder rows = IntStream.builder();
+                IntStream.Builder columns = IntStream.builder();
+                IntStream.Builder scores = IntStream.builder();
+                List<String> dates = new ArrayList<>();
+
+                try (PreparedStatement ps = conn.prepareStatement(gradesSql.toString())) {
+                    for (int i = 0; i < gradeParams.size(); i++) {
+                        ps.setObject(i + 1, gradeParams.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Integer row = rowByStudent.get(rs.getInt("student_id"));
+                            if (row == null) {
+                                continue; // студента перевели в другую группу между запросами
+                            }
+                            String subject = rs.getString("subject");
+                            ids.add(rs.getInt("id"));
+                            rows.add(row);
+                            columns.add(columnBySubject.computeIfAbsent(subject, s -> columnBySubject.size()));
+                            scores.add(rs.getInt("score"));
+                            dates.add(rs.getObject("grade_date", LocalDate.class).toString());
+                        }
+                    }
+                }
+                conn.commit();
+
+                return Optional.of(buildMatrix(groupName, studentIds, firstNames, lastNames, columnBySubject,
+                        ids.build().toArray(), rows.build().toArray(), columns.build().toArray(),
+                        scores.build().toArray(), dates.toArray(new String[0])));
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setReadOnly(false);
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load gradebook for group " + groupName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static GradebookMatrix buildMatrix(String groupName, List<Integer> studentIds, List<String> firstNames,
+                                               List<String> lastNames, Map<String, Integer> columnBySubject,
+                                               int[] gradeIds, int[] rows, int[] columns, int[] scores, String[] dates) {
+        int studentCount = studentIds.size();
+        int subjectCount = columnBySubject.size();
+
+        // средние по ячейкам считаем за один проход по оценкам
+        long[][] sums = new long[studentCount][subjectCount];
+        int[][] counts = new int[studentCount][subjectCount];
+        for (int i = 0; i < scores.length; i++) {
+            sums[rows[i]][columns[i]] += scores[i];
+            counts[rows[i]][columns[i]]++;
+        }
+        Double[][] averages = new Double[studentCount][subjectCount];
+        for (int row = 0; row < studentCount; row++) {
+            for (int column = 0; column < subjectCount; column++) {
+                if (counts[row][column] > 0) {
+                    averages[row][column] = (double) sums[row][column] / counts[row][column];
+                }
+            }
+        }
+
+        return new GradebookMatrix(groupName,
+                studentIds.stream().mapToInt(Integer::intValue).toArray(),
+                firstNames.toArray(new String[0]),
+                lastNames.toArray(new String[0]),
+                columnBySubject.keySet().toArray(new String[0]),
+                gradeIds, rows, columns, scores, dates, averages);
+    }
+}
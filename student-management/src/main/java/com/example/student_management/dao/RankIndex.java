@@ -0,0 +1,177 @@
+package com.example.student_management.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рейтинг студентов одного ключа (группа и/или предмет), упорядоченный по среднему баллу по убыванию,
+ * при равном среднем - по ID студента по возрастанию.
+ * <p>
+ * Хранится в отсортированных параллельных массивах примитивов: место студента и позиция для вставки
+ * находятся бинарным поиском за O(log n), первые N берутся прямо из начала массивов.
+ * Рейтинги без группы (общий и по предмету) держат всех студентов, поэтому при изменении среднего
+ * сдвигаются только строки между старым и новым местом студента: новая оценка обычно меняет среднее
+ * ненамного, и студент переезжает на несколько позиций, а не сдвигает весь хвост массива.
+ * Целиком хвост сдвигается только при появлении студента в рейтинге и при его удалении - один раз на студента.
+ * <p>
+ * Класс не потокобезопасен: все изменения и чтения идут под монитором {@link GradeRollups}.
+ */
+public final class RankIndex {
+    private double[] averages = new double[8];
+    private int[] studentIds = new int[8];
+    private long[] counts = new long[8];
+    private int size;
+
+    /** Текущий средний балл студента - по нему находится его позиция в массивах. */
+    private final Map<Integer, Double> averageById = new HashMap<>();
+
+    /**
+     * Строка рейтинга.
+     *
+     * @param rank Место, начиная с 1.
+     * @param studentId ID студента.
+     * @param average Средний балл.
+     * @param count Количество оценок.
+     */
+    public record Entry(int rank, int studentId, double average, long count) {
+    }
+
+    /**
+     * Часть рейтинга вместе с общим числом студентов в нем (снимок, снятый под одной блокировкой).
+     *
+     * @param total Сколько всего студентов в рейтинге.
+     * @param entries Запрошенные строки.
+     */
+    public record Slice(int total, List<Entry> entries) {
+        public static final Slice EMPTY = new Slice(0, List.of());
+    }
+
+    /**
+     * @return Количество студентов в рейтинге.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Первые limit строк рейтинга.
+     */
+    public List<Entry> top(int limit) {
+        int n = Math.min(limit, size);
+        List<Entry> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(entry(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return Строка рейтинга студента или null, если его нет в рейтинге.
+     */
+    public Entry find(int studentId) {
+        Double average = averageById.get(studentId);
+        return average != null ? entry(search(average, studentId)) : null;
+    }
+
+    /**
+     * Добавляет студента или переставляет его на место, соответствующее новому среднему.
+     */
+    void put(int studentId, double average, long count) {
+        Double old = averageById.put(studentId, average);
+        if (old != null) {
+            move(search(old, studentId), studentId, average, count);
+            return;
+        }
+        int at = -(search(average, studentId) + 1);
+        if (size == averages.length) {
+            int capacity = size * 2;
+            averages = Arrays.copyOf(averages, capacity);
+            studentIds = Arrays.copyOf(studentIds, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(averages, at, averages, at + 1, size - at);
+        System.arraycopy(studentIds, at, studentIds, at + 1, size - at);
+        System.arraycopy(counts, at, counts, at + 1, size - at);
+        averages[at] = average;
+        studentIds[at] = studentId;
+        counts[at] = count;
+        size++;
+    }
+
+    /**
+     * Убирает студента из рейтинга (если он там есть).
+     */
+    void remove(int studentId) {
+        Double old = averageById.remove(studentId);
+        if (old != null) {
+            removeAt(search(old, studentId));
+        }
+    }
+
+    /**
+     * Переставляет строку с позиции from на место нового среднего, сдвигая на одну позицию
+     * только строки между старым и новым местом.
+     */
+    private void move(int from, int studentId, double average, long count) {
+        if (averages[from] == average) {
+            counts[from] = count;
+            return;
+        }
+        // точка вставки считается по массиву, где студент еще стоит на старом месте
+        int to = -(search(average, studentId) + 1);
+        if (to > from) {
+            to--;
+            System.arraycopy(averages, from + 1, averages, from, to - from);
+            System.arraycopy(studentIds, from + 1, studentIds, from, to - from);
+            System.arraycopy(counts, from + 1, counts, from, to - from);
+        } else {
+            System.arraycopy(averages, to, averages, to + 1, from - to);
+            System.arraycopy(studentIds, to, studentIds, to + 1, from - to);
+            System.arraycopy(counts, to, counts, to + 1, from - to);
+        }
+        averages[to] = average;
+        studentIds[to] = studentId;
+        counts[to] = count;
+    }
+
+    private void removeAt(int at) {
+        int tail = size - at - 1;
+        System.arraycopy(averages, at + 1, averages, at, tail);
+        System.arraycopy(studentIds, at + 1, studentIds, at, tail);
+        System.arraycopy(counts, at + 1, counts, at, tail);
+        size--;
+    }
+
+    private Entry entry(int at) {
+        return new Entry(at + 1, studentIds[at], averages[at], counts[at]);
+    }
+
+    /**
+     * Бинарный поиск в порядке (среднее по убыванию, ID по возрастанию).
+     *
+     * @return Позиция пары или -(точка вставки + 1), как в {@link Arrays#binarySearch(int[], int)}.
+     */
+    private int search(double average, int studentId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Double.compare(average, averages[mid]);
+            if (cmp == 0) {
+                cmp = Integer.compare(studentIds[mid], studentId);
+            }
+            // cmp > 0: искомая пара должна стоять левее mid
+            if (cmp > 0) {
+                high = mid - 1;
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
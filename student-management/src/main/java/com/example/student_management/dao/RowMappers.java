@@ -0,0 +1,61 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Маппинг строк ResultSet в модели по индексам колонок.
+ * <p>
+ * Индексы ищутся по именам один раз на ResultSet, когда создается маппер, а дальше каждая строка
+ * читается по номеру колонки - без поиска имени в метаданных на каждое поле каждой строки.
+ * Дата читается сразу как LocalDate через getObject(i, LocalDate.class), без промежуточного java.sql.Date.
+ * Один маппер используется для всех строк своего ResultSet.
+ */
+public final class RowMappers {
+
+    /**
+     * Маппер текущей строки ResultSet в объект.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private RowMappers() {
+    }
+
+    /**
+     * @param rs Результат запроса с колонками id, student_id, subject, score, grade_date, version.
+     * @return Маппер оценок для этого ResultSet.
+     * @throws SQLException Если какой-то колонки нет.
+     */
+    public static RowMapper<Grades> grades(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id");
+        int studentId = rs.findColumn("student_id");
+        int subject = rs.findColumn("subject");
+        int score = rs.findColumn("score");
+        int gradeDate = rs.findColumn("grade_date");
+        int version = rs.findColumn("version");
+        return row -> new Grades(row.getInt(id), row.getInt(studentId), row.getString(subject), row.getInt(score),
+                row.getObject(gradeDate, LocalDate.class), row.getInt(version));
+    }
+
+    /**
+     * @param rs Результат запроса с колонками id, first_name, last_name, group_name, version.
+     * @return Маппер студентов для этого ResultSet.
+     * @throws SQLException Если какой-то колонки нет.
+     */
+    public static RowMapper<Students> students(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("id");
+        int firstName = rs.findColumn("first_name");
+        int lastName = rs.findColumn("last_name");
+        int groupName = rs.findColumn("group_name");
+        int version = rs.findColumn("version");
+        return row -> new Students(row.getInt(id), row.getString(firstName), row.getString(lastName),
+                row.getString(groupName), row.getInt(version));
+    }
+}
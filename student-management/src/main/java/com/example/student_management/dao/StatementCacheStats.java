@@ -0,0 +1,173 @@
+package com.example.student_management.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Насколько хорошо работает кэш подготовленных запросов (cachePrepStmts в application.properties).
+ * <p>
+ * С useServerPrepStmts драйвер готовит запрос на сервере (COM_STMT_PREPARE) и кэширует его на соединении
+ * по тексту SQL, поэтому повторный вызов DAO с тем же запросом сразу выполняет готовый (COM_STMT_EXECUTE).
+ * Счетчики сервера Com_stmt_prepare / Com_stmt_execute показывают, сколько выполнений обошлось без разбора:
+ * hit ratio = 1 - prepare / execute (разница от первого замера). Счетчики глобальные для сервера,
+ * поэтому включают и других клиентов базы. Значения читаются не чаще раза в {@link #SAMPLE_MILLIS},
+ * чтобы каждая метрика при сборе не делала свой запрос. Замер идет под ReentrantLock через tryLock: пока один
+ * поток ждет соединения и ответа базы, остальные сразу получают прошлый замер (и не занимают поток-носитель,
+ * как заняли бы на мониторе synchronized). Если база не MySQL (H2 в тестах) - метрики NaN.
+ */
+@Component
+public class StatementCacheStats {
+    private static final Logger log = LoggerFactory.getLogger(StatementCacheStats.class);
+
+    static final long SAMPLE_MILLIS = 1000;
+
+    private static final String SQL = "SHOW GLOBAL STATUS WHERE Variable_name IN "
+            + "('Com_stmt_prepare', 'Com_stmt_execute', 'Com_stmt_reprepare', 'Prepared_stmt_count')";
+
+    /**
+     * Замер счетчиков сервера.
+     *
+     * @param prepares Сколько раз запросы готовились на сервере.
+     * @param executions Сколько раз выполнялись подготовленные запросы.
+     * @param reprepares Сколько раз сервер переготовил запрос сам (после изменения таблиц).
+     * @param open Сколько подготовленных запросов сейчас открыто на сервере (предел - max_prepared_stmt_count).
+     */
+    record Sample(long prepares, long executions, long reprepares, long open) {
+        static final Sample EMPTY = new Sample(-1, -1, -1, -1);
+
+        boolean isEmpty() {
+            return this == EMPTY;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final ReentrantLock sampling = new ReentrantLock();
+
+    private volatile Sample baseline;
+    private volatile Sample last = Sample.EMPTY;
+    private volatile long lastSampledAt;
+    private volatile boolean unsupported;
+
+    @Autowired
+    public StatementCacheStats(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return Сколько запросов подготовлено на сервере с первого замера (NaN, если счетчики недоступны).
+     */
+    public double prepares() {
+        Sample sample = sample();
+        return sample.isEmpty() ? Double.NaN : sample.prepares() - baseline.prepares();
+    }
+
+    /**
+     * @return Сколько подготовленных запросов выполнено с первого замера (NaN, если счетчики недоступны).
+     */
+    public double executions() {
+        Sample sample = sample();
+        return sample.isEmpty() ? Double.NaN : sample.executions() - baseline.executions();
+    }
+
+    /**
+     * @return Сколько запросов сервер переготовил сам с первого замера (NaN, если счетчики недоступны).
+     */
+    public double reprepares() {
+        Sample sample = sample();
+        return sample.isEmpty() ? Double.NaN : sample.reprepares() - baseline.reprepares();
+    }
+
+    /**
+     * @return Сколько подготовленных запросов сейчас открыто на сервере (NaN, если счетчик недоступен).
+     */
+    public double open() {
+        Sample sample = sample();
+        return sample.isEmpty() ? Double.NaN : sample.open();
+    }
+
+    /**
+     * @return Доля выполнений, которым не понадобилось готовить запрос заново, от 0 до 1
+     * (NaN, пока не было ни одного выполнения или счетчики недоступны).
+     */
+    public double hitRatio() {
+        // prepare и execute из одного замера, иначе между ними может пройти новый замер
+        Sample sample = sample();
+        if (sample.isEmpty()) {
+            return Double.NaN;
+        }
+        return hitRatio(sample.prepares() - baseline.prepares(), sample.executions() - baseline.executions());
+    }
+
+    static double hitRatio(double prepares, double executions) {
+        if (!(executions > 0)) {
+            return Double.NaN;
+        }
+        return Math.max(0, 1 - prepares / executions);
+    }
+
+    private Sample sample() {
+        if (unsupported) {
+            return Sample.EMPTY;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSampledAt < SAMPLE_MILLIS) {
+            return last;
+        }
+        if (!sampling.tryLock()) {
+            // замер уже делает другой поток
+            return last;
+        }
+        try {
+            if (now - lastSampledAt < SAMPLE_MILLIS) {
+                return last;
+            }
+            Sample sample = read();
+            if (!sample.isEmpty() && baseline == null) {
+                baseline = sample;
+            }
+            last = sample;
+            lastSampledAt = now;
+            return sample;
+        } finally {
+            sampling.unlock();
+        }
+    }
+
+    private Sample read() {
+        long prepares = 0, executions = 0, reprepares = 0, open = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                long value = rs.getLong(2);
+                switch (rs.getString(1).toLowerCase()) {
+                    case "com_stmt_prepare" -> prepares = value;
+                    case "com_stmt_execute" -> executions = value;
+                    case "com_stmt_reprepare" -> reprepares = value;
+                    case "prepared_stmt_count" -> open = value;
+                    default -> { }
+                }
+            }
+            return new Sample(prepares, executions, reprepares, open);
+        } catch (SQLSyntaxErrorException e) {
+            // SHOW GLOBAL STATUS есть только в MySQL; на другой базе больше не пытаемся
+            unsupported = true;
+            log.info("Prepared statement counters are not available: {}", e.getMessage());
+            return Sample.EMPTY;
+        } catch (SQLException e) {
+            log.warn("Failed to read prepared statement counters: {}", e.getMessage());
+            return last;
+        }
+    }
+}
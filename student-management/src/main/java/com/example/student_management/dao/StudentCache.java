@@ -0,0 +1,188 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш студентов по ID внутри процесса.
+ * Используется в {@link StudentDAO#findById(Integer)}, чтобы проверки "существует ли студент"
+ * не ходили в базу на каждый запрос. Все записи в StudentDAO сбрасывают соответствующий ключ.
+ * <p>
+ * Внутри LinkedHashMap в режиме access-order: при переполнении вытесняется давно не читанный студент (LRU).
+ * Наружу всегда отдаются копии, потому что Students изменяемый, и вызывающий код не должен портить кэш.
+ */
+@Component
+public class StudentCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    /**
+     * Растет при каждой инвалидации. Нужен, чтобы не положить в кэш студента, прочитанного из базы
+     * до параллельного изменения: такое значение уже устарело, хотя инвалидация прошла раньше put.
+     */
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * @param maxSize Максимальное количество студентов в кэше (0 - кэш выключен).
+     * @param ttl Сколько живет запись после загрузки из базы.
+     */
+    @Autowired
+    public StudentCache(@Value("${students.cache.max-size:10000}") int maxSize,
+                        @Value("${students.cache.ttl:5m}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    StudentCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative.");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > StudentCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Ищет студента в кэше.
+     *
+     * @param id ID студента.
+     * @return Копия закэшированного студента или Optional.empty(), если его нет или запись устарела.
+     */
+    public Optional<Students> get(Integer id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (nanoClock.getAsLong() - entry.loadedAt > ttlNanos) {
+                entries.remove(id);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(copyOf(entry.student));
+        }
+    }
+
+    /**
+     * Текущее поколение кэша. Его нужно запомнить перед чтением из базы и передать в {@link #put(Students, long)}.
+     *
+     * @return Номер поколения.
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Кладет студента в кэш после чтения из базы, если с момента чтения не было инвалидаций.
+     *
+     * @param student Студент с заполненным ID.
+     * @param readGeneration Значение {@link #generation()}, взятое до запроса в базу.
+     */
+    public void put(Students student, long readGeneration) {
+        if (maxSize == 0 || student == null || student.getId() == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (generation != readGeneration) {
+                return; // пока читали из базы, кто-то изменил студентов - значение могло устареть
+            }
+            entries.put(student.getId(), new Entry(copyOf(student), nanoClock.getAsLong()));
+        }
+    }
+
+    /**
+     * Убирает студента из кэша. Вызывается при любом изменении или удалении студента.
+     *
+     * @param id ID студента.
+     */
+    public void invalidate(Integer id) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Полностью очищает кэш.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return Текущие счетчики попаданий/промахов и размер кэша.
+     */
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, maxSize, hits.get(), misses.get(), evictions.get(), expirations.get());
+    }
+
+    private static Students copyOf(Students student) {
+        return new Students(student.getId(), student.getFirstName(), student.getLastName(), student.getGroupName(),
+                student.getVersion());
+    }
+
+    private record Entry(Students student, long loadedAt) {
+    }
+
+    /**
+     * Снимок метрик кэша.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+
+        /**
+         * @return Доля попаданий от 0 до 1 (0, если обращений еще не было).
+         */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
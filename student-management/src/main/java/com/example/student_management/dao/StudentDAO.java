@@ -7,22 +7,56 @@ import org.springframework.stereotype.Repository;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class StudentDAO {
+    /** Максимум параметров в одном IN (...), чтобы не упереться в лимиты драйвера на длину запроса. */
+    static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     private final DataSource dataSource;
+    private final StudentCache studentCache;
+    private final StudentSearchIndex searchIndex;
+    private final StudentGroupIndex groupIndex;
+    private final DeletedStudents deletedStudents;
+    private final GradeRollups rollups;
+    private final GradeColumns columns;
+    private final ChangeVersions changeVersions;
 
     /**
      * Конструктор для StudentDAO.
      * Spring автоматически передаст сюда объект DataSource, который помогает подключиться к базе данных.
      *
      * @param dataSource Объект, предоставляющий подключение к базе данных.
+     * @param studentCache Кэш студентов по ID для findById.
+     * @param searchIndex Триграммный индекс имен, который нужно держать в актуальном состоянии.
+     * @param groupIndex Индекс "группа -> студенты", который тоже обновляется на каждой записи.
+     * @param deletedStudents Удаленные студенты, чьи оценки еще не вычищены.
+     * @param rollups Агрегаты оценок: им нужно знать группу каждого студента.
+     * @param columns Колоночная копия оценок, где у каждой оценки продублирована группа студента.
+     * @param changeVersions Счетчики изменений для ETag.
      */
     @Autowired
-    public StudentDAO(DataSource dataSource) {
+    public StudentDAO(DataSource dataSource, StudentCache studentCache, StudentSearchIndex searchIndex,
+                      StudentGroupIndex groupIndex, DeletedStudents deletedStudents, GradeRollups rollups, GradeColumns columns, ChangeVersions changeVersions) {
         this.dataSource = dataSource;
+        this.studentCache = studentCache;
+        this.searchIndex = searchIndex;
+        this.groupIndex = groupIndex;
+        this.deletedStudents = deletedStudents;
+        this.rollups = rollups;
+        this.columns = columns;
+        this.changeVersions = changeVersions;
     }
 
     /**
@@ -36,7 +70,8 @@ public class StudentDAO {
      */
     public Students save(Students students) {
         String sql = "INSERT INTO students (first_name, last_name, group_name) VALUES (?, ?, ?)";
-        try (Connection connection = dataSource.getConnection();
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite();
+             Connection connection = dataSource.getConnection();
              PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, students.getFirstName());
             ps.setString(2, students.getLastName());
@@ -51,6 +86,13 @@ public class StudentDAO {
             try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     students.setId(generatedKeys.getInt(1));
+                    students.setVersion(0);
+                    studentCache.invalidate(students.getId());
+                    searchIndex.put(students);
+                    groupIndex.put(students);
+                    rollups.studentSaved(students);
+                    columns.studentSaved(students);
+                    changeVersions.studentsChanged();
                 } else {
                     throw new SQLException("Creating student failed, no ID obtained.\n" +
                             "Не удалось создать студента, идентификатор не получен.");
@@ -63,69 +105,248 @@ public class StudentDAO {
         }
     }
 
+    /**
+     * Сохраняет сразу много студентов одной транзакцией через пакетную вставку (JDBC batch),
+     * порциями по {@link GradeDAO#INSERT_BATCH_SIZE}. Сгенерированные ID записываются обратно в объекты.
+     * Если хоть одна порция не вставилась, вся транзакция откатывается.
+     *
+     * @param students Список уже проверенных студентов.
+     * @param externalKeys Внешние ключи студентов в том же порядке (null - без ключа).
+     * @return Тот же список, но у каждого студента заполнен ID.
+     * @throws RuntimeException В случае ошибки при работе с базой данных (в том числе если ключ уже занят).
+     */
+    public List<Students> saveAll(List<Students> students, List<String> externalKeys) {
+        if (students.isEmpty()) {
+            return students;
+        }
+        String sql = "INSERT INTO students (first_name, last_name, group_name, external_key) VALUES (?, ?, ?, ?)";
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite();
+             Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < students.size(); from += GradeDAO.INSERT_BATCH_SIZE) {
+                    int to = Math.min(from + GradeDAO.INSERT_BATCH_SIZE, students.size());
+                    for (int i = from; i < to; i++) {
+                        Students student = students.get(i);
+                        ps.setString(1, student.getFirstName());
+                        ps.setString(2, student.getLastName());
+                        ps.setString(3, student.getGroupName());
+                        ps.setString(4, externalKeys.get(i));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                        for (int i = from; i < to; i++) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("Creating students failed, not all IDs obtained.");
+                            }
+                            students.get(i).setId(generatedKeys.getInt(1));
+                            students.get(i).setVersion(0);
+                        }
+                    }
+                }
+                conn.commit();
+                for (Students student : students) {
+                    studentCache.invalidate(student.getId());
+                    searchIndex.put(student);
+                    groupIndex.put(student);
+                    rollups.studentSaved(student);
+                    columns.studentSaved(student);
+                }
+                changeVersions.studentsChanged();
+            } catch (SQLException e) {
+                conn.rollback();
+                students.forEach(student -> {
+                    student.setId(null);
+                    student.setVersion(null);
+                });
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return students;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save students batch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Находит ID студентов по внешним ключам (WHERE external_key IN (...) по тысяче ключей за запрос).
+     *
+     * @param externalKeys Внешние ключи (null и повторы игнорируются).
+     * @return Ключ -> ID для тех ключей, которые есть в базе.
+     * @throws RuntimeException Если произошла ошибка при обращении к базе данных.
+     */
+    public Map<String, Integer> findIdsByExternalKeys(Collection<String> externalKeys) {
+        List<String> distinctKeys = externalKeys.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, Integer> ids = new HashMap<>();
+        if (distinctKeys.isEmpty()) {
+            return ids;
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < distinctKeys.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<String> chunk = distinctKeys.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, distinctKeys.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT external_key, id FROM students WHERE external_key IN (" + placeholders + ")";
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids.put(rs.getString(1), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find students by external keys: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
+    /**
+     * Как искать фильтр по имени/фамилии.
+     * PREFIX превращается в LIKE 'фильтр%' и идет по индексам idx_students_last_first / idx_students_first_last.
+     * CONTAINS - это LIKE '%фильтр%', который индекс использовать не может и читает всю таблицу.
+     */
+    public enum NameMatch {
+        PREFIX,
+        CONTAINS;
+
+        /**
+         * @param value Строка из запроса ("prefix" или "contains"), null - по умолчанию CONTAINS.
+         * @return Соответствующий режим.
+         * @throws IllegalArgumentException Если значение неизвестно.
+         */
+        public static NameMatch fromParam(String value) {
+            if (value == null || value.isEmpty() || "contains".equalsIgnoreCase(value)) {
+                return CONTAINS;
+            }
+            if ("prefix".equalsIgnoreCase(value)) {
+                return PREFIX;
+            }
+            throw new IllegalArgumentException("Unknown match mode: " + value);
+        }
+    }
+
+    /**
+     * Получает список всех студентов из базы данных (фильтр ищет вхождение в любом месте строки).
+     * То же самое, что {@link #findAll(String, String, NameMatch, String, String)} с {@link NameMatch#CONTAINS}.
+     */
+    public List<Students> findAll(String firstNameFilter, String lastNameFilter, String sortBy, String sortOrder) {
+        return findAll(firstNameFilter, lastNameFilter, NameMatch.CONTAINS, sortBy, sortOrder);
+    }
+
     /**
      * Получает список всех студентов из базы данных.
      * Вы можете использовать этот метод, чтобы фильтровать студентов по имени или фамилии,
      * а также сортировать их по определенному полю (имени, фамилии или ID) в нужном порядке.
+     * <p>
+     * Запрос собирается так, чтобы MySQL мог использовать составные индексы из schema.sql:
+     * в режиме PREFIX фильтр по фамилии идет по (last_name, first_name), а сортировка
+     * по фамилии/имени совпадает с порядком колонок в индексе и не требует filesort.
+     * Текст запроса берется готовым из {@link StudentQueries}, меняются только параметры.
      *
      * @param firstNameFilter (Опционально) Часть имени для поиска (например, "Иван" найдет "Иван" и "Иванна").
      * @param lastNameFilter (Опционально) Часть фамилии для поиска.
+     * @param match Искать фильтр с начала строки (PREFIX, быстро по индексу) или в любом месте (CONTAINS).
      * @param sortBy Поле, по которому нужно отсортировать студентов ('firstName', 'lastName' или 'id').
-     * Если не указано, сортировка будет по ID.
+     * Если не указано, сортировка будет по ID. При равенстве значений студенты всегда идут по ID.
      * @param sortOrder Порядок сортировки ('asc' для возрастания, 'desc' для убывания).
      * Если не указано, по умолчанию будет "по возрастанию".
      * @return Список студентов, которые соответствуют вашим критериям фильтрации и сортировки.
      * @throws RuntimeException Если произошла ошибка при получении данных из базы данных.
      */
-    public List<Students> findAll(String firstNameFilter, String lastNameFilter, String sortBy, String sortOrder) {
-        List<Students> students = new ArrayList<>();
+    public List<Students> findAll(String firstNameFilter, String lastNameFilter, NameMatch match, String sortBy, String sortOrder) {
+        String sql = StudentQueries.findAll(hasText(lastNameFilter), hasText(firstNameFilter), sortBy, sortOrder);
+        return query(sql, nameParams(firstNameFilter, lastNameFilter, match));
+    }
 
-        StringBuilder sqlBuilder = new StringBuilder("SELECT id, first_name, last_name, group_name FROM students WHERE 1=1");
+    /**
+     * Получает одну страницу студентов с теми же фильтрами и сортировкой, что у findAll (keyset-пагинация).
+     * Порядок всегда однозначный: к полю сортировки добавляется id, а следующая страница начинается
+     * строго после последней строки предыдущей через сравнение кортежей (last_name, first_name, id) > (?, ?, ?).
+     * Такое условие идет по тому же индексу, что и сортировка, и не зависит от номера страницы (в отличие от OFFSET).
+     *
+     * @param firstNameFilter (Опционально) Фильтр по имени.
+     * @param lastNameFilter (Опционально) Фильтр по фамилии.
+     * @param match Режим поиска фильтра.
+     * @param sortBy Поле сортировки ('firstName', 'lastName' или 'id').
+     * @param sortOrder Порядок сортировки ('asc' или 'desc').
+     * @param after (Опционально) Последний студент предыдущей страницы; null - первая страница.
+     * @param limit Максимум студентов на странице.
+     * @return Студенты страницы в порядке сортировки.
+     * @throws RuntimeException Если произошла ошибка при получении данных из базы данных.
+     */
+    public List<Students> findPage(String firstNameFilter, String lastNameFilter, NameMatch match,
+                                   String sortBy, String sortOrder, Students after, int limit) {
+        String sql = StudentQueries.findPage(hasText(lastNameFilter), hasText(firstNameFilter), sortBy, sortOrder, after != null);
+        List<Object> params = nameParams(firstNameFilter, lastNameFilter, match);
+        if (after != null) {
+            for (String column : StudentQueries.sortColumns(sortBy)) {
+                params.add(switch (column) {
+                    case "first_name" -> after.getFirstName();
+                    case "last_name" -> after.getLastName();
+                    default -> after.getId();
+                });
+            }
+        }
+        params.add(limit);
 
-        List<Object> params = new ArrayList<>();
+        return query(sql, params);
+    }
 
-        // фильтр для имени
-        if (firstNameFilter != null && !firstNameFilter.isEmpty()) {
-            sqlBuilder.append(" AND first_name LIKE ?");
-            params.add("%" + firstNameFilter + "%"); // '%фильтр%' = "содержит"
-        }
+    /**
+     * Приблизительное количество студентов под фильтр - оценка оптимизатора из EXPLAIN (rows * filtered).
+     * Стоит как один план запроса и не читает строки, поэтому годится для отрисовки пейджера,
+     * но точным не является.
+     *
+     * @param firstNameFilter (Опционально) Фильтр по имени.
+     * @param lastNameFilter (Опционально) Фильтр по фамилии.
+     * @param match Режим поиска фильтра.
+     * @return Оценка количества строк или null, если база ее не дала.
+     */
+    public Long estimateCount(String firstNameFilter, String lastNameFilter, NameMatch match) {
+        String sql = StudentQueries.estimateCount(hasText(lastNameFilter), hasText(firstNameFilter));
+        List<Object> params = nameParams(firstNameFilter, lastNameFilter, match);
 
-        // фильтр для фамилий
-        if (lastNameFilter != null && !lastNameFilter.isEmpty()) {
-            sqlBuilder.append(" AND last_name LIKE ?");
-            params.add("%" + lastNameFilter + "%");
-        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
 
-        // Если указан параметр для сортировки, добавляем его
-        if (sortBy != null && !sortBy.isEmpty()) {
-            sqlBuilder.append(" ORDER BY ");
-            // Проверяем, чтобы поле для сортировки было безопасным (защита от SQL-инъекций)
-            if ("firstName".equalsIgnoreCase(sortBy)) {
-                sqlBuilder.append("first_name");
-            } else if ("lastName".equalsIgnoreCase(sortBy)) {
-                sqlBuilder.append("last_name");
-            } else {
-                sqlBuilder.append("id");
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
             }
-
-            // порядок сортировки
-            if (sortOrder != null && ("asc".equalsIgnoreCase(sortOrder) || "desc".equalsIgnoreCase(sortOrder))) {
-                sqlBuilder.append(" ").append(sortOrder.toUpperCase());
-            } else {
-                sqlBuilder.append(" ASC"); // по умолчанию asc
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    double filtered = rs.getDouble("filtered");
+                    return Math.round(rs.getLong("rows") * (filtered > 0 ? filtered : 100.0) / 100.0);
+                }
             }
+        } catch (SQLException e) {
+            // оценка не обязательна: без нее фронтенд просто не покажет общее количество
+            return null;
         }
+        return null;
+    }
 
+    private List<Students> query(String sql, List<Object> params) {
+        List<Students> students = new ArrayList<>();
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sqlBuilder.toString())) {
+             PreparedStatement ps = conn.prepareStatement(sql)) {
 
             for (int i = 0; i < params.size(); i++) {
                 ps.setObject(i + 1, params.get(i));
             }
 
             try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Students> mapper = RowMappers.students(rs);
                 while (rs.next()) {
-                    students.add(mapRowToStudent(rs));
+                    students.add(mapper.map(rs));
                 }
             }
         } catch (SQLException e) {
@@ -134,8 +355,108 @@ public class StudentDAO {
         return students;
     }
 
+    /**
+     * Параметры фильтров в том же порядке, что и условия в {@link StudentQueries}: сначала фамилия, потом имя.
+     */
+    private static List<Object> nameParams(String firstNameFilter, String lastNameFilter, NameMatch match) {
+        List<Object> params = new ArrayList<>();
+        if (hasText(lastNameFilter)) {
+            params.add(likePattern(lastNameFilter, match));
+        }
+        if (hasText(firstNameFilter)) {
+            params.add(likePattern(firstNameFilter, match));
+        }
+        return params;
+    }
+
+    private static boolean hasText(String filter) {
+        return filter != null && !filter.isEmpty();
+    }
+
+    /**
+     * Потоково читает всех студентов и отдает их по одному в consumer (для построения индексов в памяти).
+     *
+     * @param consumer Обработчик, который вызывается для каждого студента в порядке возрастания ID.
+     * @throws RuntimeException Если произошла ошибка при получении данных из базы данных.
+     */
+    public void streamAll(Consumer<Students> consumer) {
+        String sql = "SELECT id, first_name, last_name, group_name, version FROM students WHERE deleted_at IS NULL ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(GradeDAO.STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Students> mapper = RowMappers.students(rs);
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to stream students: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Студенты одной группы, отсортированные по фамилии и имени (индекс idx_students_group_last).
+     *
+     * @param groupName Название группы.
+     * @return Список студентов (пустой, если в группе никого нет).
+     * @throws RuntimeException Если произошла ошибка при получении данных из базы данных.
+     */
+    public List<Students> findByGroup(String groupName) {
+        List<Students> students = new ArrayList<>();
+        String sql = "SELECT id, first_name, last_name, group_name, version FROM students WHERE group_name = ? AND deleted_at IS NULL "
+                + "ORDER BY last_name, first_name, id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, groupName);
+            try (ResultSet rs = ps.executeQuery()) {
+                RowMappers.RowMapper<Students> mapper = RowMappers.students(rs);
+                while (rs.next()) {
+                    students.add(mapper.map(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve students of group " + groupName + ": " + e.getMessage(), e);
+        }
+        return students;
+    }
+
+    /**
+     * Количество студентов в каждой группе (проход только по индексу idx_students_group_last).
+     * Нужен, пока {@link StudentGroupIndex} не построен.
+     *
+     * @return Группа -> количество студентов, по алфавиту.
+     * @throws RuntimeException Если произошла ошибка при получении данных из базы данных.
+     */
+    public Map<String, Integer> countByGroup() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        String sql = "SELECT group_name, COUNT(*) FROM students WHERE deleted_at IS NULL GROUP BY group_name ORDER BY group_name";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count students by group: " + e.getMessage(), e);
+        }
+        return counts;
+    }
+
+    /**
+     * Строит шаблон для LIKE. Спецсимволы % и _ из пользовательского ввода экранируются,
+     * иначе "a_b" нашел бы и "axb", а префиксный поиск с % внутри перестал бы быть префиксным.
+     */
+    private static String likePattern(String filter, NameMatch match) {
+        String escaped = filter.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return match == NameMatch.PREFIX ? escaped + "%" : "%" + escaped + "%"; // 'фильтр%' = "начинается с", '%фильтр%' = "содержит"
+    }
+
     /**
      * Находит одного студента по его уникальному идентификатору (ID).
+     * Сначала смотрит в {@link StudentCache}, и только при промахе идет в базу и кладет результат в кэш.
      *
      * @param id Уникальный номер студента, которого мы ищем.
      * @return Объект Optional, который будет содержать студента, если он найден,
@@ -143,14 +464,22 @@ public class StudentDAO {
      * @throws RuntimeException Если произошла ошибка при поиске студента в базе данных.
      */
     public Optional<Students> findById(Integer id) {
-        String sql = "SELECT id, first_name, last_name, group_name FROM students WHERE id = ?";
+        Optional<Students> cached = studentCache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        long cacheGeneration = studentCache.generation();
+        String sql = "SELECT id, first_name, last_name, group_name, version FROM students WHERE id = ? AND deleted_at IS NULL";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapRowToStudent(rs));
+                    Students student = RowMappers.students(rs).map(rs);
+                    studentCache.put(student, cacheGeneration);
+                    return Optional.of(student);
                 }
             }
         } catch (SQLException e) {
@@ -159,66 +488,193 @@ public class StudentDAO {
         return Optional.empty();
     }
 
+    /**
+     * Проверяет сразу много ID одним запросом на каждую тысячу ID (WHERE id IN (...))
+     * вместо отдельного findById для каждого.
+     *
+     * @param ids ID студентов, которые нужно проверить (null и повторы игнорируются).
+     * @return Множество тех ID, для которых студент действительно есть в базе.
+     * @throws RuntimeException Если произошла ошибка при обращении к базе данных.
+     */
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        List<Integer> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Set<Integer> existing = new HashSet<>();
+        if (distinctIds.isEmpty()) {
+            return existing;
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < distinctIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<Integer> chunk = distinctIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, distinctIds.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT id FROM students WHERE id IN (" + placeholders + ") AND deleted_at IS NULL";
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            existing.add(rs.getInt(1));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to check student IDs: " + e.getMessage(), e);
+        }
+        return existing;
+    }
+
     /**
      * Обновляет информацию о существующем студенте в базе данных.
      * Вы передаете объект студента с новыми данными, и метод найдет студента по его ID
      * и обновит его имя, фамилию и название группы.
+     * <p>
+     * Все делается одним запросом: если у студента указан version, строка обновится только при совпадении
+     * версии (optimistic lock), а новая версия приходит в ответе на UPDATE (см. {@link GradeDAO#readNewVersion})
+     * и записывается в объект.
      *
      * @param student Объект Students, содержащий обновленные данные. ID студента в этом объекте
      * используется для того, чтобы знать, какого студента обновлять.
-     * @return Количество строк, которые были изменены в базе данных (обычно 1, если обновление прошло успешно).
+     * @return Количество строк, которые были изменены в базе данных (1 - обновлено, 0 - студента нет или версия не совпала).
      * @throws RuntimeException Если произошла ошибка при обновлении студента.
      */
     public int update(Students student) {
-        String sql = "UPDATE students SET first_name = ?, last_name = ?, group_name = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        String sql = "UPDATE students SET first_name = ?, last_name = ?, group_name = ?, "
+                + "version = LAST_INSERT_ID(version + 1) WHERE id = ? AND deleted_at IS NULL"
+                + (student.getVersion() != null ? " AND version = ?" : "");
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite();
+             Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, student.getFirstName());
             ps.setString(2, student.getLastName());
             ps.setString(3, student.getGroupName());
             ps.setInt(4, student.getId());
+            if (student.getVersion() != null) {
+                ps.setInt(5, student.getVersion());
+            }
 
-            return ps.executeUpdate();
+            int updated = ps.executeUpdate();
+            if (updated > 0) {
+                student.setVersion(GradeDAO.readNewVersion(ps));
+                searchIndex.put(student);
+                groupIndex.put(student);
+                rollups.studentSaved(student);
+                columns.studentSaved(student);
+                changeVersions.studentsChanged();
+            }
+            return updated;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update student: " + e.getMessage(), e);
+        } finally {
+            studentCache.invalidate(student.getId());
+        }
+    }
+
+    /**
+     * Текущая версия студента (мимо кэша). Нужна только после неудачного условного update,
+     * чтобы отличить "студента нет" от "студента уже кто-то изменил".
+     *
+     * @param id ID студента.
+     * @return Optional с версией или Optional.empty(), если студента нет.
+     * @throws RuntimeException Если произошла ошибка при обращении к базе данных.
+     */
+    public Optional<Integer> findVersion(Integer id) {
+        String sql = "SELECT version FROM students WHERE id = ? AND deleted_at IS NULL";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(rs.getInt(1)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve student version: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Удаляет студента из базы данных по его уникальному идентификатору (ID).
+     * Удаляет студента: помечает строку deleted_at, сразу убирает его из всех индексов и агрегатов в памяти
+     * и добавляет в {@link DeletedStudents}, чтобы его оценки перестали попадать в ответы.
+     * Сами оценки и строку студента потом небольшими пачками удаляет фоновая очистка
+     * ({@link #purgeStudentRow(Integer)} и {@link GradeDAO#deleteGradesOfStudent(Integer, int)}),
+     * поэтому удаление студента с тысячами оценок не держит блокировки на grades.
+     * Внешний ключ студента освобождается сразу, чтобы его можно было снова импортировать.
      *
      * @param id Уникальный номер студента, которого мы хотим удалить.
-     * @return Количество строк, которые были удалены из базы данных (обычно 1, если студент был найден и удален).
+     * @return Количество удаленных студентов (1 или 0, если студента нет или он уже удален).
      * @throws RuntimeException Если произошла ошибка при удалении студента.
      */
     public int deleteById(Integer id) {
-        String sql = "DELETE FROM students WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
+        String sql = "UPDATE students SET deleted_at = CURRENT_TIMESTAMP, external_key = NULL, version = version + 1 "
+                + "WHERE id = ? AND deleted_at IS NULL";
+        try (GradeRollups.WriteGuard guard = rollups.guardWrite();
+             Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            return ps.executeUpdate();
+            int deleted = ps.executeUpdate();
+            searchIndex.remove(id);
+            groupIndex.remove(id);
+            if (deleted > 0) {
+                deletedStudents.add(id);
+                rollups.studentRemoved(id);
+                columns.studentRemoved(id);
+                changeVersions.studentsChanged();
+                changeVersions.gradesChanged(id);
+            }
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to delete student: " + e.getMessage(), e);
+        } finally {
+            studentCache.invalidate(id);
         }
     }
 
     /**
-     * Вспомогательный метод для маппинга строки ResultSet на объект Student.
-     * Этот метод берет одну строку данных из результата запроса к базе данных
-     * (ResultSet) и превращает ее в удобный объект Students.
+     * @return ID удаленных студентов, чьи строки еще не вычищены (для {@link DeletedStudents} после старта).
+     * @throws RuntimeException Если произошла ошибка при обращении к базе данных.
+     */
+    public List<Integer> findDeletedIds() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT id FROM students WHERE deleted_at IS NOT NULL ORDER BY id";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to retrieve deleted students: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
+    /**
+     * Окончательно удаляет строку уже помеченного студента, когда его оценки вычищены.
+     * Оценки, добавленные в гонке с удалением, удалит каскад - их единицы. В памяти их нет
+     * (см. {@link DeletedStudents#applyUnlessDeleted}), а из {@link DeletedStudents} студент убирается только
+     * после того, как закончат все записи, начатые до DELETE: вставка, прошедшая до каскада,
+     * тоже увидит студента удаленным.
      *
-     * @param rs ResultSet, из которого нужно прочитать данные текущей строки.
-     * @return Объект Students, заполненный данными из текущей строки ResultSet.
-     * @throws SQLException Если происходит ошибка при чтении данных из ResultSet (например, если колонки нет).
+     * @param id ID удаленного студента.
+     * @return true, если строка удалена.
+     * @throws RuntimeException Если произошла ошибка при обращении к базе данных.
      */
-    private Students mapRowToStudent(ResultSet rs) throws SQLException {
-        Students student = new Students();
-        student.setId(rs.getInt("id"));
-        student.setFirstName(rs.getString("first_name"));
-        student.setLastName(rs.getString("last_name"));
-        student.setGroupName(rs.getString("group_name"));
-        return student;
+    public boolean purgeStudentRow(Integer id) {
+        String sql = "DELETE FROM students WHERE id = ? AND deleted_at IS NOT NULL";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+            boolean purged = ps.executeUpdate() > 0;
+            rollups.awaitWrites();
+            deletedStudents.remove(id);
+            return purged;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to purge student: " + e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,171 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Индекс "группа -> ID студентов" в памяти. В таблице students группа - просто строка,
+ * поэтому без индекса список групп и их размеры считаются только GROUP BY по всей таблице,
+ * а оценки группы - JOIN со students.
+ * <p>
+ * Индекс обновляется из StudentDAO при save/update/deleteById (так же, как {@link StudentSearchIndex}),
+ * а целиком строится при старте приложения. Пока он не построен ({@link #isReady()} == false),
+ * запросы по группам нужно делать через базу.
+ */
+@Component
+public class StudentGroupIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> groupById = new HashMap<>();
+    /** TreeMap, чтобы список групп сразу был по алфавиту, а TreeSet - чтобы ID шли по возрастанию. */
+    private final TreeMap<String, TreeSet<Integer>> idsByGroup = new TreeMap<>();
+
+    /** ID, которые менялись во время перестроения: строки из базы для них уже устарели. */
+    private Set<Integer> touchedDuringRebuild;
+    private volatile boolean ready;
+
+    /**
+     * @return true, если индекс построен и им можно отвечать на запросы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Полностью перестраивает индекс. Записи, которые идут параллельно (put/remove),
+     * не теряются: для таких ID данные из загрузки игнорируются.
+     *
+     * @param source Источник всех студентов, например StudentDAO::streamAll.
+     */
+    public void rebuild(Consumer<Consumer<Students>> source) {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            groupById.clear();
+            idsByGroup.clear();
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            source.accept(student -> {
+                lock.writeLock().lock();
+                try {
+                    if (!touchedDuringRebuild.contains(student.getId())) {
+                        putInternal(student.getId(), student.getGroupName());
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+    }
+
+    /**
+     * Добавляет студента или переносит его в новую группу.
+     *
+     * @param student Студент с заполненным ID.
+     */
+    public void put(Students student) {
+        if (student == null || student.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(student.getId());
+            }
+            removeInternal(student.getId());
+            putInternal(student.getId(), student.getGroupName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Убирает студента из индекса.
+     *
+     * @param id ID студента.
+     */
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(id);
+            }
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Группа -> количество студентов, по алфавиту (только непустые группы).
+     */
+    public Map<String, Integer> counts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            idsByGroup.forEach((group, ids) -> counts.put(group, ids.size()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Количество студентов в группе (0, если такой группы нет).
+     */
+    public int count(String groupName) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Integer> ids = idsByGroup.get(groupName);
+            return ids != null ? ids.size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ID студентов группы по возрастанию (пустой список, если такой группы нет).
+     */
+    public List<Integer> studentIds(String groupName) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Integer> ids = idsByGroup.get(groupName);
+            return ids != null ? new ArrayList<>(ids) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putInternal(Integer id, String groupName) {
+        groupById.put(id, groupName);
+        idsByGroup.computeIfAbsent(groupName, group -> new TreeSet<>()).add(id);
+    }
+
+    private void removeInternal(Integer id) {
+        String groupName = groupById.remove(id);
+        if (groupName == null) {
+            return;
+        }
+        TreeSet<Integer> ids = idsByGroup.get(groupName);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            idsByGroup.remove(groupName);
+        }
+    }
+}
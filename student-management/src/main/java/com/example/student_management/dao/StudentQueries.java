@@ -0,0 +1,143 @@
+package com.example.student_management.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Заранее собранные тексты запросов списка студентов (StudentDAO.findAll, findPage, estimateCount).
+ * <p>
+ * Запрос списка зависит только от того, заданы ли фильтры по фамилии и имени, от поля и порядка сортировки
+ * и от вида запроса (весь список, первая страница, следующая страница) - всего {@link #shapeCount()} вариантов.
+ * Сами значения фильтров всегда идут параметрами. Поэтому все варианты собираются один раз при загрузке класса,
+ * и на каждый вызов DAO берет готовую строку: не тратится время на StringBuilder, а одинаковые запросы
+ * всегда дают один и тот же текст - это ключ кэша подготовленных запросов драйвера (cachePrepStmts),
+ * и каждый вариант готовится на соединении только один раз.
+ */
+final class StudentQueries {
+    private static final String SELECT = "SELECT id, first_name, last_name, group_name, version FROM students WHERE deleted_at IS NULL";
+    private static final String EXPLAIN = "EXPLAIN SELECT id FROM students WHERE deleted_at IS NULL";
+
+    /** Колонки сортировки в порядке индекса: по id, по имени, по фамилии. В конце всегда id. */
+    private static final String[][] SORT_COLUMNS = {
+            {"id"},
+            {"first_name", "last_name", "id"},
+            {"last_name", "first_name", "id"}
+    };
+    private static final String[] DIRECTIONS = {"ASC", "DESC"};
+
+    private static final int ALL = 0;
+    private static final int FIRST_PAGE = 1;
+    private static final int NEXT_PAGE = 2;
+    private static final int KINDS = 3;
+
+    /** [вид][фильтры][сортировка][порядок]; фильтры - битовая маска: 1 - фамилия, 2 - имя. */
+    private static final String[][][][] LISTS = new String[KINDS][4][SORT_COLUMNS.length][DIRECTIONS.length];
+    private static final String[] ESTIMATES = new String[4];
+
+    static {
+        for (int filters = 0; filters < 4; filters++) {
+            ESTIMATES[filters] = EXPLAIN + nameFilters(filters);
+            for (int kind = 0; kind < KINDS; kind++) {
+                for (int sort = 0; sort < SORT_COLUMNS.length; sort++) {
+                    for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+                        LISTS[kind][filters][sort][direction] = build(kind, filters, sort, direction);
+                    }
+                }
+            }
+        }
+    }
+
+    private StudentQueries() {
+    }
+
+    /**
+     * @return Запрос всего списка студентов (без LIMIT).
+     */
+    static String findAll(boolean byLastName, boolean byFirstName, String sortBy, String sortOrder) {
+        return LISTS[ALL][filters(byLastName, byFirstName)][sortIndex(sortBy)][directionIndex(sortOrder)];
+    }
+
+    /**
+     * @param keyset true - следующая страница: после фильтров идут параметры последней строки
+     * предыдущей страницы (по одному на колонку {@link #sortColumns(String)}), затем LIMIT.
+     * @return Запрос одной страницы студентов.
+     */
+    static String findPage(boolean byLastName, boolean byFirstName, String sortBy, String sortOrder, boolean keyset) {
+        return LISTS[keyset ? NEXT_PAGE : FIRST_PAGE][filters(byLastName, byFirstName)][sortIndex(sortBy)][directionIndex(sortOrder)];
+    }
+
+    /**
+     * @return EXPLAIN для оценки количества студентов под фильтр.
+     */
+    static String estimateCount(boolean byLastName, boolean byFirstName) {
+        return ESTIMATES[filters(byLastName, byFirstName)];
+    }
+
+    /**
+     * Колонки сортировки в порядке индекса. Неизвестное поле сортируется по id,
+     * поэтому в текст запроса никогда не попадает ввод пользователя (защита от SQL-инъекций).
+     */
+    static String[] sortColumns(String sortBy) {
+        return SORT_COLUMNS[sortIndex(sortBy)].clone();
+    }
+
+    /**
+     * @return Сколько всего разных текстов запросов списка - столько мест они займут в кэше драйвера на соединение.
+     */
+    static int shapeCount() {
+        return KINDS * 4 * SORT_COLUMNS.length * DIRECTIONS.length + ESTIMATES.length;
+    }
+
+    private static String build(int kind, int filters, int sort, int direction) {
+        StringBuilder sql = new StringBuilder(SELECT).append(nameFilters(filters));
+        String[] columns = SORT_COLUMNS[sort];
+        if (kind == NEXT_PAGE) {
+            // сравнение кортежей идет по тому же индексу, что и сортировка
+            sql.append(" AND (").append(String.join(", ", columns)).append(")")
+                    .append(direction == 1 ? " < (" : " > (")
+                    .append(String.join(", ", Collections.nCopies(columns.length, "?"))).append(")");
+        }
+        List<String> orderBy = new ArrayList<>();
+        for (String column : columns) {
+            orderBy.add(column + " " + DIRECTIONS[direction]);
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+        if (kind != ALL) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Фамилия идет первой, т.к. это ведущая колонка индекса idx_students_last_first.
+     */
+    private static String nameFilters(int filters) {
+        String sql = "";
+        if ((filters & 1) != 0) {
+            sql += " AND last_name LIKE ?";
+        }
+        if ((filters & 2) != 0) {
+            sql += " AND first_name LIKE ?";
+        }
+        return sql;
+    }
+
+    private static int filters(boolean byLastName, boolean byFirstName) {
+        return (byLastName ? 1 : 0) | (byFirstName ? 2 : 0);
+    }
+
+    private static int sortIndex(String sortBy) {
+        if ("firstName".equalsIgnoreCase(sortBy)) {
+            return 1;
+        } else if ("lastName".equalsIgnoreCase(sortBy)) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static int directionIndex(String sortOrder) {
+        // порядок сортировки, по умолчанию asc
+        return "desc".equalsIgnoreCase(sortOrder) ? 1 : 0;
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Триграммный индекс по имени и фамилии студентов в памяти.
+ * Нужен для поиска "по вхождению", который в MySQL превращается в LIKE '%x%' и всегда читает всю таблицу.
+ * <p>
+ * Каждое имя/фамилия нормализуется (нижний регистр, без диакритики - как в коллации utf8mb4 ai_ci)
+ * и режется на триграммы по кодовым точкам, так что кириллица и казахские буквы (қ, ә, ұ, ң...) работают
+ * так же, как латиница. Для каждой триграммы хранится отсортированный массив ID студентов.
+ * Запрос пересекает списки своих триграмм (начиная с самого короткого) и проверяет кандидатов по самой строке.
+ * К началу каждого значения приписывается служебный символ, поэтому поиск по префиксу тоже идет по индексу.
+ * <p>
+ * Индекс обновляется из StudentDAO при save/update/deleteById, а целиком строится при старте приложения.
+ * Пока он не построен ({@link #isReady()} == false), поиск нужно делать через базу.
+ */
+@Component
+public class StudentSearchIndex {
+    /** Метка начала строки: триграмма "^ив" значит "значение начинается с ив". */
+    private static final char BEGIN = '\u0001';
+    private static final char FIRST_NAME = 'f';
+    private static final char LAST_NAME = 'l';
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** TreeMap, чтобы короткие запросы без триграмм просматривали студентов сразу в порядке ID. */
+    private final TreeMap<Integer, Entry> entries = new TreeMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /** ID, которые менялись во время перестроения: строки из базы для них уже устарели. */
+    private Set<Integer> touchedDuringRebuild;
+    private volatile boolean ready;
+
+    /**
+     * @return true, если индекс построен и им можно отвечать на запросы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return Количество студентов в индексе.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс. Записи, которые идут параллельно (put/remove),
+     * не теряются: для таких ID данные из загрузки игнорируются.
+     *
+     * @param source Источник всех студентов, например StudentDAO::streamAll.
+     */
+    public void rebuild(Consumer<Consumer<Students>> source) {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            entries.clear();
+            postings.clear();
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            source.accept(student -> {
+                lock.writeLock().lock();
+                try {
+                    if (!touchedDuringRebuild.contains(student.getId())) {
+                        putInternal(student);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+    }
+
+    /**
+     * Добавляет или обновляет студента в индексе.
+     *
+     * @param student Студент с заполненным ID.
+     */
+    public void put(Students student) {
+        if (student == null || student.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(student.getId());
+            }
+            removeInternal(student.getId());
+            putInternal(student);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Убирает студента из индекса.
+     *
+     * @param id ID студента.
+     */
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(id);
+            }
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет строку в имени ИЛИ фамилии (для поля поиска с подсказками).
+     *
+     * @param query Что ищем.
+     * @param match PREFIX - имя или фамилия начинается с query, CONTAINS - содержит query.
+     * @param limit Максимум результатов.
+     * @return Копии найденных студентов в порядке возрастания ID.
+     */
+    public List<Students> search(String query, StudentDAO.NameMatch match, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            int[] byFirst = candidates(FIRST_NAME, q, match);
+            int[] byLast = candidates(LAST_NAME, q, match);
+            if (byFirst == null || byLast == null) {
+                return scan(entry -> matches(entry.firstName, q, match) || matches(entry.lastName, q, match), limit);
+            }
+            List<Students> result = new ArrayList<>();
+            for (int id : union(byFirst, byLast)) {
+                Entry entry = entries.get(id);
+                if (matches(entry.firstName, q, match) || matches(entry.lastName, q, match)) {
+                    result.add(copyOf(entry.student));
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет студентов, у которых имя подходит под firstNameFilter И фамилия под lastNameFilter
+     * (та же семантика, что у StudentDAO.findAll).
+     *
+     * @param firstNameFilter (Опционально) Фильтр по имени.
+     * @param lastNameFilter (Опционально) Фильтр по фамилии.
+     * @param match Режим сравнения.
+     * @return Копии найденных студентов в порядке возрастания ID.
+     */
+    public List<Students> find(String firstNameFilter, String lastNameFilter, StudentDAO.NameMatch match) {
+        String first = normalize(firstNameFilter);
+        String last = normalize(lastNameFilter);
+        lock.readLock().lock();
+        try {
+            int[] candidates = null;
+            if (!first.isEmpty()) {
+                candidates = candidates(FIRST_NAME, first, match);
+            }
+            if (!last.isEmpty()) {
+                int[] byLast = candidates(LAST_NAME, last, match);
+                candidates = candidates == null ? byLast : byLast == null ? candidates : intersect(candidates, byLast);
+            }
+
+            if (candidates == null) {
+                return scan(entry -> matches(entry.firstName, first, match) && matches(entry.lastName, last, match),
+                        Integer.MAX_VALUE);
+            }
+            List<Students> result = new ArrayList<>();
+            for (int id : candidates) {
+                Entry entry = entries.get(id);
+                if (matches(entry.firstName, first, match) && matches(entry.lastName, last, match)) {
+                    result.add(copyOf(entry.student));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Приводит строку к виду, в котором она хранится в индексе: без диакритики и в нижнем регистре.
+     * "Ё" станет "е", "Й" - "и", а казахские "Қ", "Ә", "Ұ" останутся отдельными буквами.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private void putInternal(Students student) {
+        Entry entry = new Entry(copyOf(student), normalize(student.getFirstName()), normalize(student.getLastName()));
+        entries.put(student.getId(), entry);
+        for (String gram : grams(FIRST_NAME, entry.firstName)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(student.getId());
+        }
+        for (String gram : grams(LAST_NAME, entry.lastName)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(student.getId());
+        }
+    }
+
+    private void removeInternal(Integer id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        Set<String> oldGrams = grams(FIRST_NAME, old.firstName);
+        oldGrams.addAll(grams(LAST_NAME, old.lastName));
+        for (String gram : oldGrams) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /** Все триграммы значения (с меткой начала) плюс биграмма "^x" для префикса из одной буквы. */
+    private static Set<String> grams(char field, String normalized) {
+        Set<String> result = new HashSet<>();
+        int[] cps = (BEGIN + normalized).codePoints().toArray();
+        if (cps.length >= 2) {
+            result.add(field + new String(cps, 0, 2));
+        }
+        for (int i = 0; i + 3 <= cps.length; i++) {
+            result.add(field + new String(cps, i, 3));
+        }
+        return result;
+    }
+
+    /**
+     * Кандидаты по индексу для одного поля: отсортированные ID, в которых есть все триграммы запроса.
+     *
+     * @return null, если запрос слишком короткий для индекса и нужно просмотреть всех студентов.
+     */
+    private int[] candidates(char field, String q, StudentDAO.NameMatch match) {
+        int[] cps = (match == StudentDAO.NameMatch.PREFIX ? BEGIN + q : q).codePoints().toArray();
+        List<String> queryGrams = new ArrayList<>();
+        if (cps.length == 2 && match == StudentDAO.NameMatch.PREFIX) {
+            queryGrams.add(field + new String(cps, 0, 2));
+        }
+        for (int i = 0; i + 3 <= cps.length; i++) {
+            queryGrams.add(field + new String(cps, i, 3));
+        }
+        if (queryGrams.isEmpty()) {
+            return null;
+        }
+
+        List<Postings> lists = new ArrayList<>(queryGrams.size());
+        for (String gram : queryGrams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            Postings list = lists.get(i);
+            int n = 0;
+            for (int id : result) {
+                if (list.contains(id)) {
+                    result[n++] = id;
+                }
+            }
+            result = Arrays.copyOf(result, n);
+        }
+        return result;
+    }
+
+    private List<Students> scan(Predicate<Entry> predicate, int limit) {
+        List<Students> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (predicate.test(entry)) {
+                result.add(copyOf(entry.student));
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(String value, String q, StudentDAO.NameMatch match) {
+        if (q.isEmpty()) {
+            return true;
+        }
+        return match == StudentDAO.NameMatch.PREFIX ? value.startsWith(q) : value.contains(q);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static Students copyOf(Students student) {
+        return new Students(student.getId(), student.getFirstName(), student.getLastName(), student.getGroupName(),
+                student.getVersion());
+    }
+
+    private record Entry(Students student, String firstName, String lastName) {
+    }
+
+    /**
+     * Отсортированный по возрастанию список ID для одной триграммы.
+     * Новые студенты получают растущие ID, поэтому добавление почти всегда идет в конец за O(1).
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Событие ленты изменений (GET /api/changes): студент или оценка добавлены, изменены или удалены.
+ * <p>
+ * id растет монотонно и передается клиенту как id SSE-события - по нему клиент продолжает ленту
+ * после переподключения (Last-Event-ID). studentId и groupName нужны для фильтров подписки;
+ * null означает "неизвестно" (такое событие получают все подписчики). data - новая версия
+ * студента или оценки, для удаления - null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEvent {
+    public enum Entity { STUDENT, GRADE }
+
+    public enum Action { CREATED, UPDATED, DELETED }
+
+    private long id;
+    private Entity entity;
+    private Action action;
+    private Integer entityId;
+    private Integer studentId;
+    private String groupName;
+    private Object data;
+    private Instant timestamp;
+}
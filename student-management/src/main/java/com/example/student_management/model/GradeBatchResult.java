@@ -0,0 +1,32 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат пакетной загрузки оценок.
+ * ids идет в том же порядке, что и оценки в запросе: для отклоненной строки там null,
+ * а причина отказа лежит в errors с тем же индексом строки.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeBatchResult {
+    private int received;
+    private int inserted;
+    private List<Integer> ids = new ArrayList<>();
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * Ошибка валидации одной строки пакета.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int index;
+        private String message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Одна страница оценок для keyset-пагинации.
+ * nextCursor - это ID последней оценки на странице, его нужно передать в параметре after,
+ * чтобы получить следующую страницу. Если nextCursor == null, то страниц больше нет.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradePage {
+    private List<Grades> items;
+    private Integer nextCursor;
+    private int limit;
+}
@@ -0,0 +1,39 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Агрегированная статистика оценок по одному ключу: студенту, группе или предмету.
+ * histogram и percentiles заполняются только в ответах по одному ключу,
+ * в списках по всем группам/предметам там null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeStatistics {
+    private String dimension;
+    private String key;
+    private long count;
+    private Double average;
+    private Integer min;
+    private Integer max;
+    /** Стандартное отклонение баллов (по генеральной совокупности). */
+    private Double stdDev;
+    private List<HistogramBucket> histogram;
+    private Map<String, Integer> percentiles;
+
+    /**
+     * Один столбец гистограммы: количество оценок с баллом от from до to включительно.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HistogramBucket {
+        private int from;
+        private int to;
+        private long count;
+    }
+}
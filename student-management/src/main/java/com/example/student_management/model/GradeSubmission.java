@@ -0,0 +1,22 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+/**
+ * Состояние оценки, принятой в очередь отложенной записи (POST с Prefer: respond-async).
+ * Пока оценка в очереди, status = PENDING и gradeId == null; после записи - WRITTEN и ID оценки,
+ * при ошибке записи - FAILED и причина в error.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeSubmission {
+    private String trackingId;
+    private Status status;
+    private Integer gradeId;
+    private String error;
+
+    public enum Status {
+        PENDING, WRITTEN, FAILED
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+/**
+ * Журнал группы "студенты x предметы" в колоночном виде: один ответ вместо списка студентов
+ * и отдельного запроса оценок на каждого.
+ * <p>
+ * Студенты - это строки матрицы (studentIds/firstNames/lastNames одинаковой длины),
+ * предметы - столбцы (subjects). Оценки лежат параллельными массивами одинаковой длины:
+ * i-я оценка принадлежит студенту studentIds[gradeStudentIndex[i]] по предмету subjects[gradeSubjectIndex[i]].
+ * averages[строка][столбец] - средний балл студента по предмету (null, если оценок нет).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradebookMatrix {
+    private String groupName;
+
+    private int[] studentIds;
+    private String[] firstNames;
+    private String[] lastNames;
+
+    private String[] subjects;
+
+    private int[] gradeIds;
+    private int[] gradeStudentIndex;
+    private int[] gradeSubjectIndex;
+    private int[] gradeScores;
+    private String[] gradeDates;
+
+    private Double[][] averages;
+}
@@ -11,6 +11,12 @@ public class Grades {
     private String subject;
     private Integer score;
     private LocalDate gradeDate;
+    /** Номер версии строки, растет при каждом обновлении. Если передан в PUT, обновление условное (optimistic lock). */
+    private Integer version;
+
+    public Grades(Integer id, Integer studentId, String subject, Integer score, LocalDate gradeDate) {
+        this(id, studentId, subject, score, gradeDate, null);
+    }
 
     public Integer getId() {
         return id;
@@ -51,4 +57,12 @@ public class Grades {
     public void setGradeDate(LocalDate gradeDate) {
         this.gradeDate = gradeDate;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+/**
+ * Группа и количество студентов в ней.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupSummary {
+    private String groupName;
+    private int studentCount;
+}
@@ -0,0 +1,55 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Состояние CSV-импорта: сколько строк обработано, вставлено и отклонено, и ошибки по номерам строк файла.
+ * Пока импорт идет, GET /api/imports/{id} отдает текущий снимок.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+
+    public enum Kind {
+        STUDENTS,
+        GRADES
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String id;
+    private Kind kind;
+    private Status status;
+    /** Сколько строк данных (без заголовка) уже проверено и записано или отклонено. */
+    private long processed;
+    private long inserted;
+    private long failed;
+    private Instant startedAt;
+    private Instant finishedAt;
+    /** Причина, если импорт прерван (status = FAILED). Уже записанные пачки остаются в базе. */
+    private String message;
+    /** true, если ошибок больше, чем хранится в errors. */
+    private boolean errorsTruncated;
+    private List<LineError> errors = new ArrayList<>();
+
+    /**
+     * Ошибка в одной строке файла.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError {
+        /** Номер строки в файле, начиная с 1 (заголовок - строка 1). */
+        private long line;
+        private String message;
+    }
+}
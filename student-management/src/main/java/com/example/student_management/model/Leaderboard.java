@@ -0,0 +1,19 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Рейтинг студентов по среднему баллу в группе и/или по предмету.
+ * groupName/subject равны null, если рейтинг по всем группам/предметам.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Leaderboard {
+    private String groupName;
+    private String subject;
+    private int totalStudents;
+    private List<LeaderboardEntry> entries;
+}
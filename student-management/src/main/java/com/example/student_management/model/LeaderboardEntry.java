@@ -0,0 +1,20 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+/**
+ * Строка рейтинга: место (с 1), студент, его средний балл и количество оценок.
+ * При равном среднем выше стоит студент с меньшим ID.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntry {
+    private int rank;
+    private Integer studentId;
+    private String firstName;
+    private String lastName;
+    private String groupName;
+    private double average;
+    private long gradeCount;
+}
@@ -0,0 +1,19 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Результат сверки агрегатов в памяти с базой (GradeRollups.check).
+ * mismatches содержит только первые расхождения, полное их количество - в mismatchCount.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupCheck {
+    private boolean ready;
+    private int checkedKeys;
+    private int mismatchCount;
+    private List<String> mismatches;
+}
@@ -0,0 +1,22 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Одна страница студентов для GET /api/students?size=...
+ * Чтобы получить следующую страницу, nextCursor передается в параметре cursor с теми же фильтрами
+ * и сортировкой (его же содержит ссылка в заголовке Link: rel="next", по которой фронтенд может
+ * заранее подгрузить следующую страницу). approximateTotal - оценка, а не точное количество.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentPage {
+    private List<Students> items;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+    private Long approximateTotal;
+}
@@ -10,6 +10,12 @@ public class Students {
     private String firstName;
     private String lastName;
     private String groupName;
+    /** Номер версии строки, растет при каждом обновлении. Если передан в PUT, обновление условное (optimistic lock). */
+    private Integer version;
+
+    public Students(Integer id, String firstName, String lastName, String groupName) {
+        this(id, firstName, lastName, groupName, null);
+    }
 
     public Integer getId() {
         return id;
@@ -42,4 +48,12 @@ public class Students {
     public void setGroupName(String groupName) {
         this.groupName = groupName;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,46 @@
+package com.example.student_management.model;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Семестровый отчет: средний балл, отклонение и доля сдавших по каждой группе, каждому предмету
+ * и каждой паре "группа x предмет" за период.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TermReport {
+    private LocalDate from;
+    private LocalDate to;
+    /** Балл, начиная с которого оценка считается сданной. */
+    private int passScore;
+    /** Сколько потоков считало отчет (1 - без пула). */
+    private int parallelism;
+    private long elapsedMs;
+    private Line total;
+    private List<Line> groups;
+    private List<Line> subjects;
+    private List<Line> cells;
+
+    /**
+     * Итоги одной строки отчета. В итогах по группе subject = null, по предмету groupName = null.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private String groupName;
+        private String subject;
+        private long count;
+        private Double average;
+        /** Стандартное отклонение баллов (по генеральной совокупности). */
+        private Double stdDev;
+        private Integer min;
+        private Integer max;
+        /** Доля оценок не ниже passScore, от 0 до 1. */
+        private Double passRate;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.student_management.service;
+
+import com.example.student_management.model.ChangeEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лента изменений студентов и оценок для дашбордов (Server-Sent Events) вместо периодического
+ * перечитывания полных списков.
+ * <p>
+ * Публикация не блокируется: событие получает номер, попадает в кольцевую историю и раскладывается
+ * по ограниченным очередям подписчиков через offer. Каждый подписчик обслуживается своим виртуальным
+ * потоком, который ждет на очереди и пишет события в SseEmitter, поэтому сотни открытых дашбордов
+ * стоят сотни спящих виртуальных потоков и по одной небольшой очереди.
+ * <p>
+ * Медленный подписчик не тормозит остальных: если его очередь переполнилась, ему дописывается то, что
+ * уже в очереди, и соединение закрывается. EventSource в браузере переподключается с Last-Event-ID
+ * и получает пропущенное из истории. Если история такой глубины уже не хранится (или приложение
+ * перезапускалось), первым приходит событие "reset" - клиент должен перечитать данные целиком.
+ */
+@Component
+public class ChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    /** Имя SSE-события, после которого клиент должен перечитать данные целиком. */
+    public static final String RESET_EVENT = "reset";
+
+    private final int bufferSize;
+    private final int historySize;
+    private final int maxSubscribers;
+    private final long heartbeatMillis;
+    private final long timeoutMillis;
+    private final long reconnectMillis;
+
+    /** Последние события для продолжения ленты; изменяется вместе с раздачей под монитором history. */
+    private final ArrayDeque<ChangeEvent> history;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Номер последнего события. Начинается со времени старта в мс, поэтому номера после перезапуска
+     * больше старых и Last-Event-ID из прошлого запуска распознается как разрыв.
+     */
+    private long sequence = System.currentTimeMillis();
+
+    @Autowired
+    public ChangeFeed(@Value("${changes.feed.buffer-size:256}") int bufferSize,
+                      @Value("${changes.feed.history-size:1000}") int historySize,
+                      @Value("${changes.feed.max-subscribers:1000}") int maxSubscribers,
+                      @Value("${changes.feed.heartbeat:15s}") Duration heartbeat,
+                      @Value("${changes.feed.timeout:30m}") Duration timeout,
+                      @Value("${changes.feed.reconnect:1s}") Duration reconnect) {
+        if (bufferSize < 1 || historySize < 0 || maxSubscribers < 0) {
+            throw new IllegalArgumentException("Change feed buffer size must be positive, other limits non-negative.");
+        }
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatMillis = heartbeat.toMillis();
+        this.timeoutMillis = timeout.toMillis();
+        this.reconnectMillis = reconnect.toMillis();
+        this.history = new ArrayDeque<>(historySize);
+    }
+
+    /**
+     * @return Сколько клиентов сейчас подписано.
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Публикует событие всем подходящим подписчикам. Никогда не ждет подписчиков.
+     *
+     * @param entity Что изменилось: студент или оценка.
+     * @param action Тип изменения.
+     * @param entityId ID студента или оценки.
+     * @param studentId ID студента, к которому относится изменение (null - неизвестно).
+     * @param groupName Группа студента (null - неизвестно).
+     * @param data Новое состояние (для удаления - null).
+     */
+    public void publish(ChangeEvent.Entity entity, ChangeEvent.Action action, Integer entityId,
+                        Integer studentId, String groupName, Object data) {
+        synchronized (history) {
+            ChangeEvent event = new ChangeEvent(++sequence, entity, action, entityId, studentId, groupName,
+                    data, Instant.now());
+            if (historySize > 0) {
+                if (history.size() == historySize) {
+                    history.removeFirst();
+                }
+                history.addLast(event);
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Подписывает клиента на ленту.
+     *
+     * @param studentId (Опционально) Только события этого студента и его оценок.
+     * @param groupName (Опционально) Только события студентов этой группы и их оценок.
+     * @param lastEventId (Опционально) Последнее полученное событие: сначала придет все, что было после него.
+     * @return SseEmitter, который нужно вернуть из контроллера.
+     * @throws IllegalStateException Если подписчиков уже max-subscribers.
+     */
+    public SseEmitter subscribe(Integer studentId, String groupName, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many change feed subscribers.");
+        }
+        Subscriber subscriber = new Subscriber(studentId, groupName, new SseEmitter(timeoutMillis));
+        synchronized (history) {
+            if (lastEventId != null) {
+                long oldest = history.isEmpty() ? sequence + 1 : history.peekFirst().getId();
+                if (lastEventId > sequence || lastEventId + 1 < oldest) {
+                    subscriber.resetId = sequence;
+                } else {
+                    for (ChangeEvent event : history) {
+                        if (event.getId() > lastEventId) {
+                            subscriber.offer(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(() -> {
+            // обычное завершение: клиент переподключится сам
+            subscriber.close();
+            subscriber.emitter.complete();
+        });
+        subscriber.emitter.onError(e -> subscriber.close());
+        subscriber.thread = Thread.ofVirtual().name("change-feed-subscriber").start(subscriber);
+        return subscriber.emitter;
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> {
+            subscriber.close();
+            subscriber.emitter.complete();
+        });
+    }
+
+    /**
+     * Один подписчик: фильтр, ограниченная очередь и поток, который пишет из нее в соединение.
+     */
+    private final class Subscriber implements Runnable {
+        private final Integer studentId;
+        private final String groupName;
+        private final SseEmitter emitter;
+        private final BlockingQueue<ChangeEvent> queue = new ArrayBlockingQueue<>(bufferSize);
+
+        /** Если не null, клиенту сначала уходит "reset" с этим id: нужной части истории уже нет. */
+        private Long resetId;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+        private volatile Thread thread;
+
+        Subscriber(Integer studentId, String groupName, SseEmitter emitter) {
+            this.studentId = studentId;
+            this.groupName = groupName;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Вызывается под монитором history. Событие с неизвестным студентом/группой проходит любой фильтр.
+         */
+        void offer(ChangeEvent event) {
+            if (overflowed || closed) {
+                return;
+            }
+            if (studentId != null && event.getStudentId() != null && !studentId.equals(event.getStudentId())) {
+                return;
+            }
+            if (groupName != null && event.getGroupName() != null && !groupName.equals(event.getGroupName())) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                overflowed = true;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                emitter.send(SseEmitter.event().comment("connected").reconnectTime(reconnectMillis));
+                if (resetId != null) {
+                    emitter.send(SseEmitter.event().id(String.valueOf(resetId)).name(RESET_EVENT).data(""));
+                }
+                while (!closed) {
+                    ChangeEvent event = overflowed ? queue.poll() : queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (event != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(event.getId()))
+                                .name(event.getEntity().name().toLowerCase() + "." + event.getAction().name().toLowerCase())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    } else if (overflowed) {
+                        // отстал: закрываем, клиент переподключится с Last-Event-ID и дочитает из истории
+                        emitter.complete();
+                        break;
+                    } else {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // клиент отключился или emitter уже завершен
+                log.debug("Change feed subscriber disconnected: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            Thread current = thread;
+            if (current != null && current != Thread.currentThread()) {
+                current.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.student_management.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Чтение CSV (RFC 4180) по записям. Поток читает только границы записей: строку целиком и четность кавычек,
+ * чтобы склеить поле в кавычках с переводом строки. Разбор полей ({@link #split(String, char)}) дорогой,
+ * поэтому он делается позже и параллельно, пачками записей.
+ * <p>
+ * Запись с переводами строк в кавычках не длиннее {@link #MAX_RECORD_CHARS}. Если кавычка так и не закрылась
+ * (до предела или до конца файла), это ошибка одной записи, а не всего файла: запись отклоняется
+ * с номером ее первой строки, а чтение продолжается со следующей строки - прочитанные наперед строки
+ * читаются заново как обычные записи. Так одна лишняя кавычка не склеивает весь остаток файла в одну строку.
+ */
+final class CsvRecords {
+    private static final char BOM = '\uFEFF';
+
+    /** Предел длины записи, склеенной из нескольких строк (символов). */
+    static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    /**
+     * Одна запись файла.
+     *
+     * @param line Номер строки, с которой начинается запись (с 1).
+     * @param text Текст записи; если поле в кавычках содержало переводы строк, они сохранены как \n.
+     * Для отклоненной записи - только ее первая строка.
+     * @param error Почему запись отклонена еще при чтении или null.
+     */
+    record Record(long line, String text, String error) {
+        Record(long line, String text) {
+            this(line, text, null);
+        }
+    }
+
+    private final BufferedReader reader;
+    private final int maxRecordChars;
+    /** Строки, прочитанные наперед за отклоненной записью; читаются заново раньше reader. */
+    private final Deque<String> replay = new ArrayDeque<>();
+    private long lineNumber;
+
+    CsvRecords(BufferedReader reader) {
+        this(reader, MAX_RECORD_CHARS);
+    }
+
+    CsvRecords(BufferedReader reader, int maxRecordChars) {
+        this.reader = reader;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * @return Следующая непустая запись или null в конце файла.
+     */
+    Record next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        long start = lineNumber;
+        if (!oddQuotes(line)) {
+            return new Record(start, line);
+        }
+        // незакрытая кавычка - запись продолжается на следующих строках
+        String first = line;
+        List<String> continuation = new ArrayList<>();
+        StringBuilder text = new StringBuilder(line);
+        while ((line = readLine()) != null) {
+            continuation.add(line);
+            text.append('\n').append(line);
+            if (oddQuotes(line)) {
+                return new Record(start, text.toString());
+            }
+            if (text.length() > maxRecordChars) {
+                return reject(start, first, continuation,
+                        "Quoted field is not closed within " + maxRecordChars + " characters.");
+            }
+        }
+        return reject(start, first, continuation, "Quoted field is not closed before the end of file.");
+    }
+
+    private Record reject(long start, String first, List<String> continuation, String error) {
+        for (int i = continuation.size() - 1; i >= 0; i--) {
+            replay.addFirst(continuation.get(i));
+        }
+        lineNumber = start;
+        return new Record(start, first, error);
+    }
+
+    private String readLine() throws IOException {
+        String line = replay.isEmpty() ? reader.readLine() : replay.pollFirst();
+        if (line != null && ++lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BOM) {
+            line = line.substring(1);
+        }
+        return line;
+    }
+
+    /**
+     * Разделитель по строке заголовка: ";" (так сохраняет Excel с русской локалью), если в ней нет запятых.
+     */
+    static char detectDelimiter(String header) {
+        return header.indexOf(',') < 0 && header.indexOf(';') >= 0 ? ';' : ',';
+    }
+
+    /**
+     * Разбирает запись на поля: снимает кавычки и "" превращает в ".
+     *
+     * @throws IllegalArgumentException Если кавычки в записи не закрыты или после закрывающей кавычки нет разделителя.
+     */
+    static List<String> split(String text, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = text.length();
+        while (true) {
+            field.setLength(0);
+            if (i < length && text.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field.");
+                    }
+                    char c = text.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < length && text.charAt(i) != delimiter) {
+                    throw new IllegalArgumentException("Unexpected character after quoted field.");
+                }
+            } else {
+                int end = text.indexOf(delimiter, i);
+                field.append(text, i, end < 0 ? length : end);
+                i = end < 0 ? length : end;
+            }
+            fields.add(field.toString());
+            if (i >= length) {
+                return fields;
+            }
+            i++; // разделитель
+        }
+    }
+
+    private static boolean oddQuotes(String line) {
+        boolean odd = false;
+        for (int at = line.indexOf('"'); at >= 0; at = line.indexOf('"', at + 1)) {
+            odd = !odd;
+        }
+        return odd;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeExportDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка оценок в CSV, который открывается в Excel без мастера импорта: UTF-8 с BOM
+ * (иначе кириллица превращается в кракозябры), строки через CRLF, поля по RFC 4180.
+ * <p>
+ * Строки пишутся прямо из ResultSet через буфер фиксированного размера, поэтому память не растет
+ * с объемом выгрузки. Каждая выгрузка держит одно соединение с базой все время, пока клиент читает файл,
+ * поэтому одновременных выгрузок не больше grades.export.max-concurrent.
+ */
+@Service
+public class GradeExportService {
+    /** Размер буфера между CSV-писателем и ответом: сеть получает данные кусками по 64 КБ. */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char UTF8_BOM = '\uFEFF';
+    private static final String HEADER = "id,studentId,lastName,firstName,groupName,subject,score,gradeDate";
+
+    /**
+     * Куда писать выгрузку. Вызывается один раз, после проверки параметров, - до этого момента
+     * ответ еще не начат и можно вернуть ошибку.
+     */
+    @FunctionalInterface
+    public interface Target {
+        /**
+         * @param contentType Тип содержимого ответа.
+         * @param fileName Имя файла для Content-Disposition.
+         * @return Поток ответа.
+         */
+        OutputStream open(String contentType, String fileName) throws IOException;
+    }
+
+    private final GradeExportDAO gradeExportDAO;
+    private final Semaphore permits;
+
+    @Autowired
+    public GradeExportService(GradeExportDAO gradeExportDAO,
+                              @Value("${grades.export.max-concurrent:2}") int maxConcurrent) {
+        this.gradeExportDAO = gradeExportDAO;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Выгружает оценки в CSV.
+     *
+     * @param groupName (Опционально) Группа.
+     * @param subject (Опционально) Предмет.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param delimiter Разделитель полей: "comma" или "semicolon" (Excel с русской локалью ждет ";").
+     * @param gzip Сжимать ли файл (отдается как .csv.gz).
+     * @param target Куда писать.
+     * @return Сколько строк выгружено.
+     * @throws IllegalArgumentException Если параметры неверные.
+     * @throws IllegalStateException Если уже идет максимум выгрузок.
+     * @throws UncheckedIOException Если не удалось записать ответ (клиент оборвал соединение).
+     */
+    public long exportCsv(String groupName, String subject, LocalDate from, LocalDate to,
+                          String delimiter, boolean gzip, Target target) throws IOException {
+        char separator = switch (delimiter.toLowerCase()) {
+            case "comma" -> ',';
+            case "semicolon" -> ';';
+            default -> throw new IllegalArgumentException("Delimiter must be 'comma' or 'semicolon'.");
+        };
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'.");
+        }
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many grade exports are running.");
+        }
+        try {
+            OutputStream out = target.open(gzip ? "application/gzip" : "text/csv; charset=UTF-8",
+                    gzip ? "grades.csv.gz" : "grades.csv");
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                writer.write(UTF8_BOM);
+                writer.write(separator == ',' ? HEADER : HEADER.replace(',', separator));
+                writer.write("\r\n");
+                StringBuilder line = new StringBuilder(128);
+                long count = gradeExportDAO.export(emptyToNull(groupName), emptyToNull(subject), from, to, row -> {
+                    line.setLength(0);
+                    line.append(row.getGradeId()).append(separator)
+                            .append(row.getStudentId()).append(separator);
+                    appendCell(line, row.getLastName(), separator);
+                    line.append(separator);
+                    appendCell(line, row.getFirstName(), separator);
+                    line.append(separator);
+                    appendCell(line, row.getGroupName(), separator);
+                    line.append(separator);
+                    appendCell(line, row.getSubject(), separator);
+                    line.append(separator)
+                            .append(row.getScore()).append(separator)
+                            .append(row.getGradeDate()).append("\r\n");
+                    try {
+                        writer.append(line);
+                    } catch (IOException e) {
+                        // клиент оборвал соединение - прерываем чтение из базы
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return count;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Дописывает текстовое поле CSV: в кавычках, если в нем есть разделитель, кавычка или перевод строки.
+     * Значения, которые Excel принял бы за формулу (начинаются с =, +, -, @, табуляции или CR),
+     * экранируются апострофом спереди.
+     */
+    static void appendCell(StringBuilder line, String value, char separator) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        char first = value.charAt(0);
+        boolean formula = first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+        boolean quote = formula;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == separator || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        if (formula) {
+            line.append('\'');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
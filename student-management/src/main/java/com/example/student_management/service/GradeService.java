@@ -1,24 +1,71 @@
 package com.example.student_management.service;
 
+import com.example.student_management.dao.ChangeVersions;
 import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradebookDAO;
 import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.model.ChangeEvent;
+import com.example.student_management.model.GradeBatchResult;
+import com.example.student_management.model.GradePage;
+import com.example.student_management.model.GradeSubmission;
+import com.example.student_management.model.GradebookMatrix;
 import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class GradeService {
+    /** Максимальный размер страницы, чтобы один запрос не мог снова выгрузить всю таблицу. */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Максимальное количество оценок в одном пакетном запросе. */
+    public static final int MAX_BATCH_SIZE = 10000;
+
     private final GradeDAO gradeDAO;
     private final StudentDAO studentDAO;
+    private final GradebookDAO gradebookDAO;
+    private final GradeWriteBehindQueue writeQueue;
+    private final ChangeVersions changeVersions;
+    private final ChangeFeed changeFeed;
 
     @Autowired
-    public GradeService(GradeDAO gradeDAO, StudentDAO studentDAO) {
+    public GradeService(GradeDAO gradeDAO, StudentDAO studentDAO, GradebookDAO gradebookDAO,
+                        GradeWriteBehindQueue writeQueue, ChangeVersions changeVersions, ChangeFeed changeFeed) {
         this.gradeDAO = gradeDAO;
         this.studentDAO = studentDAO;
+        this.gradebookDAO = gradebookDAO;
+        this.writeQueue = writeQueue;
+        this.changeVersions = changeVersions;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Текущая версия таблицы grades для ETag/Last-Modified. Читается без запроса к базе.
+     *
+     * @return Валидатор ответов, построенных по всем оценкам.
+     */
+    public ChangeVersions.Validator getGradesVersion() {
+        return changeVersions.grades();
+    }
+
+    /**
+     * Текущая версия оценок одного студента для ETag/Last-Modified.
+     *
+     * @param studentId ID студента.
+     * @return Валидатор ответа GET /api/students/{studentId}/grades.
+     */
+    public ChangeVersions.Validator getStudentGradesVersion(Integer studentId) {
+        return changeVersions.studentGrades(studentId);
     }
 
     /**
@@ -29,41 +76,169 @@ public class GradeService {
         return gradeDAO.findAll();
     }
 
+    /**
+     * Получает одну страницу оценок по курсору (ID последней оценки предыдущей страницы).
+     *
+     * @param after ID, после которого начинается страница (null - первая страница).
+     * @param limit Размер страницы, от 1 до {@link #MAX_PAGE_SIZE}.
+     * @return Страница оценок с курсором для следующего запроса.
+     * @throws IllegalArgumentException Если limit или after вне допустимых значений.
+     */
+    public GradePage getGradesPage(Integer after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (after != null && after < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative.");
+        }
+
+        // берем на одну строку больше, чтобы понять, есть ли следующая страница
+        List<Grades> grades = gradeDAO.findPage(after, limit + 1);
+        Integer nextCursor = null;
+        if (grades.size() > limit) {
+            grades = grades.subList(0, limit);
+            nextCursor = grades.get(limit - 1).getId();
+        }
+        return new GradePage(grades, nextCursor, limit);
+    }
+
+    /**
+     * Потоково отдает все оценки в consumer, не загружая их целиком в память.
+     *
+     * @param consumer Обработчик для каждой оценки.
+     */
+    public void streamAllGrades(Consumer<Grades> consumer) {
+        gradeDAO.streamAll(consumer);
+    }
+
     /**
      * Добавляет новую оценку студенту.
      * Включает валидацию и проверку существования студента.
      *
+     * Если включена отложенная запись ({@link GradeWriteBehindQueue}), оценка уходит в базу
+     * вместе с другими в одной транзакции, а метод ждет, пока ее пачка будет записана (не дольше result-timeout).
+     *
      * @param grade Объект Grade для добавления.
      * @return Сохраненный объект Grade с присвоенным ID.
      * @throws IllegalArgumentException Если данные оценки невалидны или студент не найден.
+     * @throws IllegalStateException Если очередь отложенной записи переполнена или оценка не записана за result-timeout.
      */
-
     public Grades addGrade(Grades grade) {
-        // Бизнес-валидация для оценки
-        if (grade.getStudentId() == null) {
-            throw new IllegalArgumentException("Student ID must be provided for a grade.");
+        validateGradeForInsert(grade);
+
+        if (!writeQueue.isEnabled()) {
+            Grades saved = gradeDAO.save(grade);
+            publish(ChangeEvent.Action.CREATED, saved, groupOf(saved.getStudentId()));
+            return saved;
         }
-        if (grade.getSubject() == null || grade.getSubject().trim().isEmpty()) {
-            throw new IllegalArgumentException("Subject cannot be empty.");
+        return writeQueue.await(submitToQueue(grade));
+    }
+
+    /**
+     * Принимает оценку в очередь отложенной записи и сразу возвращает управление.
+     * Валидация и проверка студента выполняются сразу, так что в очередь попадают только корректные оценки.
+     * Если отложенная запись выключена, оценка сохраняется сразу и возвращается уже записанная заявка.
+     *
+     * @param grade Объект Grade для добавления.
+     * @return Заявка с trackingId; состояние можно опросить через {@link #getSubmission(String)}.
+     * @throws IllegalArgumentException Если данные оценки невалидны или студент не найден.
+     * @throws IllegalStateException Если очередь переполнена (backpressure).
+     */
+    public GradeSubmission submitGrade(Grades grade) {
+        validateGradeForInsert(grade);
+
+        if (!writeQueue.isEnabled()) {
+            Grades saved = gradeDAO.save(grade);
+            publish(ChangeEvent.Action.CREATED, saved, groupOf(saved.getStudentId()));
+            return new GradeSubmission(null, GradeSubmission.Status.WRITTEN, saved.getId(), null);
         }
+        GradeWriteBehindQueue.Submission submission = submitToQueue(grade);
+        return writeQueue.getSubmission(submission.trackingId())
+                .orElseGet(() -> new GradeSubmission(submission.trackingId(), GradeSubmission.Status.PENDING, null, null));
+    }
 
-        // Оценка должна быть от 1 до 5 или от 0 до 100
-        if (grade.getScore() == null || grade.getScore() < 0 || grade.getScore() > 100) {
-            throw new IllegalArgumentException("Score must be between 0 and 100.");
+    /**
+     * Состояние оценки, принятой через {@link #submitGrade(Grades)}.
+     *
+     * @param trackingId ID заявки.
+     * @return Optional с состоянием или Optional.empty(), если заявка не найдена.
+     */
+    public Optional<GradeSubmission> getSubmission(String trackingId) {
+        return writeQueue.getSubmission(trackingId);
+    }
+
+    /**
+     * Общая проверка перед вставкой одной оценки: поля и существование студента (через кэш студентов).
+     */
+    private void validateGradeForInsert(Grades grade) {
+        validateGrade(grade);
+
+        if (studentDAO.findById(grade.getStudentId()).isEmpty()) {
+            throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found.");
         }
-        if (grade.getGradeDate() == null) {
-            // проверка, что дата не в будущем
-            throw new IllegalArgumentException("Grade date cannot be empty.");
+    }
+
+    /**
+     * Добавляет сразу много оценок (например, при импорте за семестр).
+     * Каждая строка проверяется теми же правилами, что и в {@link #addGrade(Grades)},
+     * существование всех студентов проверяется одним запросом, а все валидные строки
+     * вставляются одной пакетной транзакцией. Невалидные строки пропускаются и попадают в errors.
+     *
+     * @param grades Список оценок для добавления.
+     * @return Результат с ID вставленных оценок и ошибками по строкам.
+     * @throws IllegalArgumentException Если список пустой или больше {@link #MAX_BATCH_SIZE}.
+     */
+    public GradeBatchResult addGrades(List<Grades> grades) {
+        if (grades == null || grades.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty.");
         }
-        if (grade.getGradeDate().isAfter(LocalDate.now())) {
-            throw new IllegalArgumentException("Grade date cannot be in the future.");
+        if (grades.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " grades.");
         }
 
-        if (studentDAO.findById(grade.getStudentId()).isEmpty()) {
-            throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found.");
+        GradeBatchResult result = new GradeBatchResult();
+        result.setReceived(grades.size());
+
+        // сначала проверяем поля каждой строки
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < grades.size(); i++) {
+            try {
+                validateGrade(grades.get(i));
+                validIndexes.add(i);
+            } catch (IllegalArgumentException e) {
+                result.getErrors().add(new GradeBatchResult.RowError(i, e.getMessage()));
+            }
         }
 
-        return gradeDAO.save(grade);
+        // потом одним запросом проверяем, что все студенты существуют
+        Set<Integer> existingStudents = studentDAO.findExistingIds(
+                validIndexes.stream().map(i -> grades.get(i).getStudentId()).toList());
+
+        List<Grades> toInsert = new ArrayList<>(validIndexes.size());
+        boolean[] accepted = new boolean[grades.size()];
+        for (int i : validIndexes) {
+            Grades grade = grades.get(i);
+            if (existingStudents.contains(grade.getStudentId())) {
+                grade.setId(null);
+                toInsert.add(grade);
+                accepted[i] = true;
+            } else {
+                result.getErrors().add(new GradeBatchResult.RowError(i,
+                        "Student with ID " + grade.getStudentId() + " not found."));
+            }
+        }
+        result.getErrors().sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+
+        gradeDAO.saveAll(toInsert);
+        result.setInserted(toInsert.size());
+        Map<Integer, String> groups = new HashMap<>();
+        for (Grades grade : toInsert) {
+            publish(ChangeEvent.Action.CREATED, grade, groups.computeIfAbsent(grade.getStudentId(), this::groupOf));
+        }
+        for (int i = 0; i < grades.size(); i++) {
+            result.getIds().add(accepted[i] ? grades.get(i).getId() : null);
+        }
+        return result;
     }
 
     /**
@@ -81,6 +256,25 @@ public class GradeService {
         return gradeDAO.findGradesByStudentId(studentId);
     }
 
+    /**
+     * Получает журнал группы (все студенты группы и их оценки) за два запроса к базе.
+     *
+     * @param groupName Название группы.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Optional с журналом или Optional.empty(), если в группе нет студентов.
+     * @throws IllegalArgumentException Если группа не указана или период невалиден.
+     */
+    public Optional<GradebookMatrix> getGroupGradebook(String groupName, LocalDate from, LocalDate to) {
+        if (groupName == null || groupName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Group name cannot be empty.");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        return gradebookDAO.loadGroup(groupName, from, to);
+    }
+
     /**
      * Получает оценку по ее ID.
      *
@@ -93,52 +287,116 @@ public class GradeService {
 
     /**
      * Обновляет существующую оценку.
-     * Включает валидацию и проверку существования оценки.
+     * Включает валидацию, а существование оценки и студента проверяет сам UPDATE (внешний ключ),
+     * так что в базу уходит один запрос вместо трех.
+     * Если у оценки указан version, обновление условное: при несовпадении версии выбрасывается IllegalStateException.
      *
      * @param grade Объект Grade с обновленными данными (ID должен быть указан).
-     * @return true, если оценка была успешно обновлена; false, если оценка не найдена.
-     * @throws IllegalArgumentException Если данные оценки невалидны или оценка не найдена.
+     * @return Optional с обновленной оценкой (уже с новой версией) или Optional.empty(), если оценка не найдена.
+     * @throws IllegalArgumentException Если данные оценки невалидны или студент не найден.
+     * @throws IllegalStateException Если версия не совпала - оценку уже изменил кто-то другой.
      */
-    public boolean updateGrade(Grades grade) {
+    public Optional<Grades> updateGrade(Grades grade) {
         if (grade.getId() == null) {
             throw new IllegalArgumentException("Grade ID cannot be null for update.");
         }
+        validateGrade(grade);
+
+        Integer expectedVersion = grade.getVersion();
+        if (gradeDAO.update(grade) > 0) {
+            publish(ChangeEvent.Action.UPDATED, grade, groupOf(grade.getStudentId()));
+            return Optional.of(grade);
+        }
+        if (expectedVersion == null) {
+            return Optional.empty(); // Оценка не найдена
+        }
+        // второй запрос только на неудачном пути: оценки нет или версия устарела
+        Optional<Integer> currentVersion = gradeDAO.findVersion(grade.getId());
+        if (currentVersion.isEmpty()) {
+            return Optional.empty();
+        }
+        throw new IllegalStateException("Grade " + grade.getId() + " was modified: expected version "
+                + expectedVersion + ", current version " + currentVersion.get() + ".");
+    }
+
+    /**
+     * Удаляет оценку по ее ID.
+     *
+     * @param id ID оценки для удаления.
+     * @return true, если оценка была успешно удалена; false, если оценка не найдена.
+     */
+    public boolean deleteGrade(Integer id) {
+        // чей была оценка, нужно только подписчикам ленты: без них лишний SELECT не делаем
+        Optional<Grades> old = changeFeed.subscriberCount() > 0 ? gradeDAO.findById(id) : Optional.empty();
+        if (gradeDAO.deleteById(id) == 0) {
+            return false;
+        }
+        Integer studentId = old.map(Grades::getStudentId).orElse(null);
+        changeFeed.publish(ChangeEvent.Entity.GRADE, ChangeEvent.Action.DELETED, id, studentId,
+                studentId != null ? groupOf(studentId) : null, null);
+        return true;
+    }
+
+    /**
+     * Ставит оценку в очередь отложенной записи; событие в ленту уходит, когда она записана.
+     */
+    private GradeWriteBehindQueue.Submission submitToQueue(Grades grade) {
+        GradeWriteBehindQueue.Submission submission = writeQueue.submit(grade);
+        submission.result().thenAccept(saved ->
+                publish(ChangeEvent.Action.CREATED, saved, groupOf(saved.getStudentId())));
+        return submission;
+    }
+
+    private void publish(ChangeEvent.Action action, Grades grade, String groupName) {
+        changeFeed.publish(ChangeEvent.Entity.GRADE, action, grade.getId(), grade.getStudentId(), groupName, grade);
+    }
+
+    /**
+     * Группа студента для фильтра ленты изменений (через кэш студентов).
+     */
+    private String groupOf(Integer studentId) {
+        return studentDAO.findById(studentId).map(Students::getGroupName).orElse(null);
+    }
+
+    /**
+     * Бизнес-валидация полей оценки, общая для добавления, пакетной загрузки и обновления.
+     *
+     * @param grade Проверяемая оценка.
+     * @throws IllegalArgumentException Если какое-то поле невалидно.
+     */
+    static void validateGrade(Grades grade) {
+        if (grade == null) {
+            throw new IllegalArgumentException("Grade cannot be null.");
+        }
         if (grade.getStudentId() == null) {
             throw new IllegalArgumentException("Student ID must be provided for a grade.");
         }
+        validateGradeFields(grade);
+    }
+
+    /**
+     * Проверка полей оценки без студента - для CSV-импорта, где студент задан внешним ключом
+     * и его ID становится известен только после запроса к базе.
+     *
+     * @param grade Проверяемая оценка.
+     * @throws IllegalArgumentException Если какое-то поле невалидно.
+     */
+    static void validateGradeFields(Grades grade) {
         if (grade.getSubject() == null || grade.getSubject().trim().isEmpty()) {
             throw new IllegalArgumentException("Subject cannot be empty.");
         }
+
+        // Оценка должна быть от 1 до 5 или от 0 до 100
         if (grade.getScore() == null || grade.getScore() < 0 || grade.getScore() > 100) {
             throw new IllegalArgumentException("Score must be between 0 and 100.");
         }
         if (grade.getGradeDate() == null) {
             throw new IllegalArgumentException("Grade date cannot be empty.");
         }
+        // проверка, что дата не в будущем
         if (grade.getGradeDate().isAfter(LocalDate.now())) {
             throw new IllegalArgumentException("Grade date cannot be in the future.");
         }
-
-        if (gradeDAO.findById(grade.getId()).isEmpty()) {
-            return false; // Оценка не найдена
-        }
-
-
-        if (studentDAO.findById(grade.getStudentId()).isEmpty()) {
-            throw new IllegalArgumentException("Student with ID " + grade.getStudentId() + " not found for this grade.");
-        }
-
-        return gradeDAO.update(grade) > 0;
-    }
-
-    /**
-     * Удаляет оценку по ее ID.
-     *
-     * @param id ID оценки для удаления.
-     * @return true, если оценка была успешно удалена; false, если оценка не найдена.
-     */
-    public boolean deleteGrade(Integer id) {
-        return gradeDAO.deleteById(id) > 0;
     }
 
 }
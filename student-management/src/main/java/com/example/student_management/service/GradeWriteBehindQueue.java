@@ -0,0 +1,323 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.model.GradeSubmission;
+import com.example.student_management.model.Grades;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Очередь отложенной записи оценок (write-behind) с групповым коммитом.
+ * <p>
+ * Уже проверенные оценки кладутся в ограниченную очередь, а один фоновый поток забирает их пачками
+ * и пишет через {@link GradeDAO#saveAll(List)} одной транзакцией. Пачка уходит, когда набралось
+ * batch-size оценок или с момента первой оценки прошло max-delay. Так на сотню одновременных POST
+ * приходится один коммит (и один fsync в базе), а не сотня.
+ * <p>
+ * По умолчанию max-delay = 0: писатель забирает все, что накопилось, пока шел предыдущий коммит.
+ * Под нагрузкой пачки растут сами, а при редких запросах оценка не ждет лишнего. Ненулевая задержка
+ * имеет смысл, только если коммит в базе заметно дороже этой задержки.
+ * <p>
+ * Если очередь заполнена, {@link #submit(Grades)} ждет не дольше offer-timeout и затем отказывает
+ * (backpressure), чтобы не копить в памяти бесконечный хвост. При остановке приложения новые оценки
+ * не принимаются, а все, что уже в очереди, дописывается в базу. Если за drain-timeout дописать не удалось,
+ * оставшиеся оценки получают FAILED, так что ни один future не остается незавершенным.
+ * <p>
+ * Режим выключен по умолчанию (grades.write-behind.enabled=false): тогда поток не запускается и
+ * GradeService пишет каждую оценку сразу.
+ */
+@Component
+public class GradeWriteBehindQueue {
+    private static final Logger log = LoggerFactory.getLogger(GradeWriteBehindQueue.class);
+
+    /** Сколько последних результатов по trackingId хранится для GET /api/grades/submissions/{id}. */
+    private static final int TRACKED_SUBMISSIONS = 100_000;
+
+    private final GradeDAO gradeDAO;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutNanos;
+    private final Duration drainTimeout;
+    private final Duration resultTimeout;
+
+    private final BlockingQueue<PendingGrade> queue;
+    private final LinkedHashMap<String, GradeSubmission> submissions;
+
+    private volatile boolean accepting;
+    private Thread writer;
+
+    @Autowired
+    public GradeWriteBehindQueue(GradeDAO gradeDAO,
+                                 @Value("${grades.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${grades.write-behind.capacity:10000}") int capacity,
+                                 @Value("${grades.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${grades.write-behind.max-delay:0ms}") Duration maxDelay,
+                                 @Value("${grades.write-behind.offer-timeout:100ms}") Duration offerTimeout,
+                                 @Value("${grades.write-behind.drain-timeout:30s}") Duration drainTimeout,
+                                 @Value("${grades.write-behind.result-timeout:10s}") Duration resultTimeout) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Write-behind capacity and batch size must be positive.");
+        }
+        this.gradeDAO = gradeDAO;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.drainTimeout = drainTimeout;
+        this.resultTimeout = resultTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.submissions = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GradeSubmission> eldest) {
+                // в очереди не больше capacity оценок, поэтому вытесняются только давно завершенные
+                return size() > Math.max(TRACKED_SUBMISSIONS, capacity);
+            }
+        };
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        accepting = true;
+        writer = new Thread(this::runWriter, "grade-write-behind");
+        writer.start();
+        log.info("Grade write-behind queue started: capacity {}, batch size {}, max delay {} ms",
+                queue.remainingCapacity(), batchSize, TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+    }
+
+    /**
+     * @return true, если режим отложенной записи включен и очередь принимает оценки.
+     */
+    public boolean isEnabled() {
+        return enabled && accepting;
+    }
+
+    /**
+     * @return Сколько оценок сейчас ждет записи.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Ставит проверенную оценку в очередь на запись.
+     *
+     * @param grade Оценка, уже прошедшая валидацию (ID будет заполнен после записи).
+     * @return Заявка с trackingId и future, который завершится сохраненной оценкой или ошибкой записи.
+     * @throws IllegalStateException Если режим выключен, приложение останавливается
+     * или очередь не освободилась за offer-timeout.
+     */
+    public Submission submit(Grades grade) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Grade write-behind queue is not accepting grades.");
+        }
+        PendingGrade pending = new PendingGrade(UUID.randomUUID().toString(), grade, new CompletableFuture<>());
+        track(new GradeSubmission(pending.trackingId(), GradeSubmission.Status.PENDING, null, null));
+        boolean offered;
+        try {
+            offered = queue.offer(pending, offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            offered = false;
+        }
+        if (!offered) {
+            synchronized (submissions) {
+                submissions.remove(pending.trackingId());
+            }
+            throw new IllegalStateException("Grade write-behind queue is full.");
+        }
+        return new Submission(pending.trackingId(), pending.result());
+    }
+
+    /**
+     * Ждет записи принятой оценки, но не дольше result-timeout.
+     *
+     * @param submission Заявка из {@link #submit(Grades)}.
+     * @return Записанная оценка с ID.
+     * @throws IllegalStateException Если оценка не записана за result-timeout (она может записаться позже,
+     * состояние видно по trackingId) или очередь остановилась раньше, чем дошла до нее.
+     * @throws RuntimeException Ошибка записи этой оценки (например, IllegalArgumentException для удаленного студента).
+     */
+    public Grades await(Submission submission) {
+        try {
+            return submission.result().get(resultTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Grade " + submission.trackingId() + " was not written in " + resultTimeout + ".");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for grade " + submission.trackingId() + ".");
+        }
+    }
+
+    /**
+     * Состояние заявки по trackingId.
+     *
+     * @param trackingId ID, который вернул {@link #submit(Grades)}.
+     * @return Optional с состоянием или Optional.empty(), если такой заявки нет (или она слишком старая).
+     */
+    public Optional<GradeSubmission> getSubmission(String trackingId) {
+        synchronized (submissions) {
+            GradeSubmission submission = submissions.get(trackingId);
+            return Optional.ofNullable(submission).map(s ->
+                    new GradeSubmission(s.getTrackingId(), s.getStatus(), s.getGradeId(), s.getError()));
+        }
+    }
+
+    /**
+     * Перестает принимать оценки и дописывает в базу все, что уже стоит в очереди.
+     * Если писатель не успел за drain-timeout (или остановку прервали), он прерывается, а оценки,
+     * оставшиеся в очереди, завершаются ошибкой; пачку, которую он собирал, завершает он сам.
+     */
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        try {
+            writer.join(drainTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            writer.interrupt();
+            List<PendingGrade> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            log.warn("Grade write-behind writer did not finish in {}, {} grades left unwritten",
+                    drainTimeout, rest.size());
+            rest.forEach(pending -> fail(pending, new IllegalStateException("Grade write-behind queue stopped.")));
+            return;
+        }
+        // оценки, которые успели попасть в очередь между проверкой accepting и остановкой писателя
+        List<PendingGrade> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+        log.info("Grade write-behind queue drained and stopped");
+    }
+
+    private void runWriter() {
+        List<PendingGrade> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                PendingGrade first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!accepting) {
+                        return; // очередь пуста и новых оценок не будет
+                    }
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // остановка не дождалась: собранная, но не записанная пачка не должна повиснуть
+                for (PendingGrade pending : batch) {
+                    if (!pending.result().isDone()) {
+                        fail(pending, new IllegalStateException("Grade write-behind queue stopped."));
+                    }
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Grade write-behind writer failed to flush a batch", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Добирает пачку до batchSize, но ждет новые оценки не дольше maxDelay с момента первой.
+     * При остановке не ждет вовсе - только забирает то, что уже в очереди.
+     */
+    private void collectBatch(List<PendingGrade> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !accepting) {
+                return;
+            }
+            PendingGrade next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Пишет пачку одной транзакцией. Если пачка не записалась (например, студента удалили, пока оценка
+     * стояла в очереди, - {@link GradeDAO#saveAll(List)} отклоняет такие пачки целиком), оценки пишутся по одной,
+     * чтобы одна плохая строка не завалила остальные: оценка удаленного студента получает FAILED.
+     */
+    private void flush(List<PendingGrade> batch) {
+        List<Grades> grades = batch.stream().map(PendingGrade::grade).toList();
+        try {
+            gradeDAO.saveAll(grades);
+            batch.forEach(this::complete);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} grades failed, retrying one by one: {}", batch.size(), e.getMessage());
+        }
+        for (PendingGrade pending : batch) {
+            try {
+                gradeDAO.save(pending.grade());
+                complete(pending);
+            } catch (RuntimeException e) {
+                fail(pending, e);
+            }
+        }
+    }
+
+    private void complete(PendingGrade pending) {
+        track(new GradeSubmission(pending.trackingId(), GradeSubmission.Status.WRITTEN, pending.grade().getId(), null));
+        pending.result().complete(pending.grade());
+    }
+
+    private void fail(PendingGrade pending, RuntimeException e) {
+        track(new GradeSubmission(pending.trackingId(), GradeSubmission.Status.FAILED, null, e.getMessage()));
+        pending.result().completeExceptionally(e);
+    }
+
+    private void track(GradeSubmission submission) {
+        synchronized (submissions) {
+            submissions.put(submission.getTrackingId(), submission);
+        }
+    }
+
+    private record PendingGrade(String trackingId, Grades grade, CompletableFuture<Grades> result) {
+    }
+
+    /**
+     * Принятая в очередь оценка: trackingId для опроса состояния и future с результатом записи.
+     */
+    public record Submission(String trackingId, CompletableFuture<Grades> result) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.dao.StudentGroupIndex;
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.GroupSummary;
+import com.example.student_management.model.Students;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Запросы в разрезе групп. Список групп, их размеры и состав берутся из {@link StudentGroupIndex},
+ * пока он не построен - из базы.
+ */
+@Service
+public class GroupService {
+    private static final Logger log = LoggerFactory.getLogger(GroupService.class);
+
+    private final StudentDAO studentDao;
+    private final GradeDAO gradeDao;
+    private final StudentGroupIndex groupIndex;
+
+    @Autowired
+    public GroupService(StudentDAO studentDao, GradeDAO gradeDao, StudentGroupIndex groupIndex) {
+        this.studentDao = studentDao;
+        this.gradeDao = gradeDao;
+        this.groupIndex = groupIndex;
+    }
+
+    /**
+     * Строит индекс групп после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildGroupIndex() {
+        long start = System.nanoTime();
+        try {
+            groupIndex.rebuild(studentDao::streamAll);
+            log.info("Student group index built in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Failed to build student group index, group queries will use SQL: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return Все группы с количеством студентов, по алфавиту.
+     */
+    public List<GroupSummary> getGroups() {
+        Map<String, Integer> counts = groupIndex.isReady() ? groupIndex.counts() : studentDao.countByGroup();
+        List<GroupSummary> groups = new ArrayList<>(counts.size());
+        counts.forEach((groupName, count) -> groups.add(new GroupSummary(groupName, count)));
+        return groups;
+    }
+
+    /**
+     * @param groupName Название группы.
+     * @return Optional с размером группы или Optional.empty(), если в группе никого нет.
+     */
+    public Optional<GroupSummary> getGroup(String groupName) {
+        int count = groupIndex.isReady() ? groupIndex.count(groupName)
+                : studentDao.countByGroup().getOrDefault(groupName, 0);
+        return count > 0 ? Optional.of(new GroupSummary(groupName, count)) : Optional.empty();
+    }
+
+    /**
+     * Студенты группы, отсортированные по фамилии и имени.
+     *
+     * @param groupName Название группы.
+     * @return Optional со списком или Optional.empty(), если в группе никого нет.
+     */
+    public Optional<List<Students>> getGroupStudents(String groupName) {
+        if (groupIndex.isReady() && groupIndex.count(groupName) == 0) {
+            return Optional.empty();
+        }
+        List<Students> students = studentDao.findByGroup(groupName);
+        return students.isEmpty() ? Optional.empty() : Optional.of(students);
+    }
+
+    /**
+     * Оценки всех студентов группы за период, по студенту и дате.
+     *
+     * @param groupName Название группы.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Optional со списком оценок или Optional.empty(), если в группе никого нет.
+     * @throws IllegalArgumentException Если начало периода позже конца.
+     */
+    public Optional<List<Grades>> getGroupGrades(String groupName, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        if (groupIndex.isReady()) {
+            List<Integer> studentIds = groupIndex.studentIds(groupName);
+            if (studentIds.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(gradeDao.findGradesByStudentIds(studentIds, from, to));
+        }
+        if (!studentDao.countByGroup().containsKey(groupName)) {
+            return Optional.empty();
+        }
+        return Optional.of(gradeDao.findGradesByGroup(groupName, from, to));
+    }
+}
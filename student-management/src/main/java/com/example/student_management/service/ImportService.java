@@ -0,0 +1,479 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.model.GradeBatchResult;
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.ImportJob;
+import com.example.student_management.model.Students;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Потоковый импорт студентов и оценок из CSV (например, при подключении новой школы).
+ * <p>
+ * Файл читается по записям прямо из тела запроса. Записи собираются в пачки по imports.batch-size,
+ * пачки разбираются и проверяются параллельно в пуле imports.parallelism потоков теми же правилами,
+ * что и {@link StudentService#addStudent(Students)} / {@link GradeService#addGrade(Grades)}, а записываются
+ * по порядку, каждая пачка - отдельной транзакцией. Одновременно в работе не больше 2 * parallelism пачек:
+ * чтение ждет записи, поэтому память не зависит от размера файла.
+ * <p>
+ * Студентам можно задать внешний ключ (колонка externalKey), и в файле оценок ссылаться на студента
+ * по нему (studentKey) вместо ID. Повторный импорт тех же студентов с ключами безопасен: уже существующие
+ * ключи попадают в ошибки. Оценки ключей не имеют, и повторный импорт их продублирует.
+ * <p>
+ * Если импорт прерван (ошибка базы, обрыв соединения), уже записанные пачки остаются в базе,
+ * а в отчете видно, сколько строк обработано.
+ */
+@Service
+public class ImportService {
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    /** Сколько последних импортов хранится для GET /api/imports. */
+    private static final int TRACKED_JOBS = 100;
+
+    /** Длина колонки students.external_key. */
+    static final int MAX_EXTERNAL_KEY_LENGTH = 64;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Разбор и запись строк одного вида (студенты или оценки).
+     */
+    private interface Importer<T> {
+        /**
+         * Разбирает и проверяет одну запись; вызывается в потоке пула.
+         *
+         * @throws IllegalArgumentException Если строка невалидна.
+         */
+        void parse(List<String> fields, long line, Parsed<T> parsed);
+
+        /**
+         * Записывает проверенные строки пачки; вызывается по порядку пачек в потоке запроса.
+         */
+        void write(Parsed<T> parsed);
+    }
+
+    /**
+     * Пачка после разбора: принятые строки (с номерами строк и внешними ключами) и ошибки.
+     */
+    private static final class Parsed<T> {
+        final int records;
+        final List<Long> lines = new ArrayList<>();
+        final List<T> items = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        final List<ImportJob.LineError> errors = new ArrayList<>();
+        int inserted;
+
+        Parsed(int records) {
+            this.records = records;
+        }
+
+        void accept(long line, T item, String key) {
+            lines.add(line);
+            items.add(item);
+            keys.add(key);
+        }
+
+        void reject(long line, String message) {
+            errors.add(new ImportJob.LineError(line, message));
+        }
+    }
+
+    /**
+     * Изменяемое состояние импорта. Пишет только поток запроса, GET читает снимки.
+     */
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final ImportJob.Kind kind;
+        final Instant startedAt = Instant.now();
+        final int maxErrors;
+        private ImportJob.Status status = ImportJob.Status.RUNNING;
+        private long processed;
+        private long inserted;
+        private long failed;
+        private Instant finishedAt;
+        private String message;
+        private boolean errorsTruncated;
+        private final List<ImportJob.LineError> errors = new ArrayList<>();
+
+        Job(ImportJob.Kind kind, int maxErrors) {
+            this.kind = kind;
+            this.maxErrors = maxErrors;
+        }
+
+        synchronized void add(Parsed<?> parsed) {
+            processed += parsed.records;
+            inserted += parsed.inserted;
+            failed += parsed.errors.size();
+            parsed.errors.sort(Comparator.comparingLong(ImportJob.LineError::getLine));
+            for (ImportJob.LineError error : parsed.errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(error);
+                } else {
+                    errorsTruncated = true;
+                }
+            }
+        }
+
+        synchronized void finish(ImportJob.Status status, String message) {
+            this.status = status;
+            this.message = message;
+            this.finishedAt = Instant.now();
+        }
+
+        synchronized boolean isRunning() {
+            return status == ImportJob.Status.RUNNING;
+        }
+
+        synchronized ImportJob snapshot(boolean withErrors) {
+            return new ImportJob(id, kind, status, processed, inserted, failed, startedAt, finishedAt, message,
+                    errorsTruncated, withErrors ? new ArrayList<>(errors) : new ArrayList<>());
+        }
+    }
+
+    private final StudentDAO studentDAO;
+    private final StudentService studentService;
+    private final GradeService gradeService;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int maxInFlight;
+    private final ExecutorService parsers;
+    private final Semaphore permits;
+    private final LinkedHashMap<String, Job> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > TRACKED_JOBS && !eldest.getValue().isRunning();
+        }
+    };
+
+    @Autowired
+    public ImportService(StudentDAO studentDAO, StudentService studentService, GradeService gradeService,
+                         @Value("${imports.batch-size:1000}") int batchSize,
+                         @Value("${imports.parallelism:0}") int parallelism,
+                         @Value("${imports.max-errors:1000}") int maxErrors,
+                         @Value("${imports.max-concurrent:2}") int maxConcurrent) {
+        if (batchSize < 1 || batchSize > GradeService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Import batch size must be between 1 and " + GradeService.MAX_BATCH_SIZE + ".");
+        }
+        this.studentDAO = studentDAO;
+        this.studentService = studentService;
+        this.gradeService = gradeService;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = threads * 2;
+        this.parsers = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("csv-import-", 0).daemon().factory());
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    @PreDestroy
+    public void stop() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Импорт студентов. Колонки (по заголовку, регистр не важен): firstName, lastName, groupName
+     * и необязательная externalKey. Разделитель - запятая или точка с запятой (по заголовку).
+     *
+     * @param in Тело CSV в UTF-8.
+     * @return Итоговый отчет (status = FAILED, если импорт прерван).
+     * @throws IllegalArgumentException Если файл пустой или в заголовке нет нужных колонок.
+     * @throws IllegalStateException Если уже идет максимум импортов.
+     */
+    public ImportJob importStudents(InputStream in) throws IOException {
+        return run(ImportJob.Kind.STUDENTS, in, this::studentImporter);
+    }
+
+    /**
+     * Импорт оценок. Колонки: studentKey (внешний ключ студента) или studentId, subject, score,
+     * gradeDate (yyyy-MM-dd). Лишние колонки игнорируются, так что файл из GET /api/grades/export
+     * загружается обратно как есть.
+     *
+     * @param in Тело CSV в UTF-8.
+     * @return Итоговый отчет (status = FAILED, если импорт прерван).
+     * @throws IllegalArgumentException Если файл пустой или в заголовке нет нужных колонок.
+     * @throws IllegalStateException Если уже идет максимум импортов.
+     */
+    public ImportJob importGrades(InputStream in) throws IOException {
+        return run(ImportJob.Kind.GRADES, in, this::gradeImporter);
+    }
+
+    /**
+     * @return Текущее состояние импорта, в том числе еще идущего.
+     */
+    public Optional<ImportJob> getJob(String id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        return Optional.ofNullable(job).map(j -> j.snapshot(true));
+    }
+
+    /**
+     * @return Последние импорты, сначала новые (без списков ошибок).
+     */
+    public List<ImportJob> getJobs() {
+        List<Job> recent;
+        synchronized (jobs) {
+            recent = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(recent);
+        return recent.stream().map(job -> job.snapshot(false)).toList();
+    }
+
+    private <T> ImportJob run(ImportJob.Kind kind, InputStream in,
+                              Function<Map<String, Integer>, Importer<T>> importerFor) throws IOException {
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many imports are running.");
+        }
+        try {
+            CsvRecords records = new CsvRecords(
+                    new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+            CsvRecords.Record header = records.next();
+            if (header == null) {
+                throw new IllegalArgumentException("File is empty.");
+            }
+            char delimiter = CsvRecords.detectDelimiter(header.text());
+            Importer<T> importer = importerFor.apply(columns(CsvRecords.split(header.text(), delimiter)));
+
+            Job job = new Job(kind, maxErrors);
+            synchronized (jobs) {
+                jobs.put(job.id, job);
+            }
+            Deque<Future<Parsed<T>>> inFlight = new ArrayDeque<>();
+            try {
+                List<CsvRecords.Record> chunk = new ArrayList<>(batchSize);
+                CsvRecords.Record record;
+                while ((record = records.next()) != null) {
+                    chunk.add(record);
+                    if (chunk.size() == batchSize) {
+                        inFlight.add(submit(chunk, delimiter, importer));
+                        chunk = new ArrayList<>(batchSize);
+                        if (inFlight.size() >= maxInFlight) {
+                            write(inFlight.poll(), importer, job);
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    inFlight.add(submit(chunk, delimiter, importer));
+                }
+                while (!inFlight.isEmpty()) {
+                    write(inFlight.poll(), importer, job);
+                }
+                job.finish(ImportJob.Status.COMPLETED, null);
+            } catch (IOException | RuntimeException e) {
+                inFlight.forEach(future -> future.cancel(true));
+                job.finish(ImportJob.Status.FAILED, e.getMessage());
+                log.warn("Import {} of {} failed: {}", job.id, kind, e.getMessage());
+            }
+            return job.snapshot(true);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private <T> Future<Parsed<T>> submit(List<CsvRecords.Record> chunk, char delimiter, Importer<T> importer) {
+        return parsers.submit(() -> {
+            Parsed<T> parsed = new Parsed<>(chunk.size());
+            for (CsvRecords.Record record : chunk) {
+                if (record.error() != null) {
+                    parsed.reject(record.line(), record.error());
+                    continue;
+                }
+                try {
+                    importer.parse(CsvRecords.split(record.text(), delimiter), record.line(), parsed);
+                } catch (IllegalArgumentException e) {
+                    parsed.reject(record.line(), e.getMessage());
+                }
+            }
+            return parsed;
+        });
+    }
+
+    private <T> void write(Future<Parsed<T>> future, Importer<T> importer, Job job) {
+        Parsed<T> parsed;
+        try {
+            parsed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+        if (!parsed.items.isEmpty()) {
+            importer.write(parsed);
+        }
+        job.add(parsed);
+    }
+
+    private Importer<Students> studentImporter(Map<String, Integer> columns) {
+        int externalKey = column(columns, "externalKey", false);
+        int firstName = column(columns, "firstName", true);
+        int lastName = column(columns, "lastName", true);
+        int groupName = column(columns, "groupName", true);
+
+        return new Importer<>() {
+            @Override
+            public void parse(List<String> fields, long line, Parsed<Students> parsed) {
+                Students student = new Students(null, field(fields, firstName), field(fields, lastName),
+                        field(fields, groupName));
+                StudentService.validateStudent(student);
+                parsed.accept(line, student, externalKey(field(fields, externalKey)));
+            }
+
+            @Override
+            public void write(Parsed<Students> parsed) {
+                Map<String, Integer> existing = studentDAO.findIdsByExternalKeys(parsed.keys);
+                Set<String> seen = new HashSet<>();
+                List<Students> students = new ArrayList<>(parsed.items.size());
+                List<String> keys = new ArrayList<>(parsed.items.size());
+                for (int i = 0; i < parsed.items.size(); i++) {
+                    String key = parsed.keys.get(i);
+                    if (key != null && (existing.containsKey(key) || !seen.add(key))) {
+                        parsed.reject(parsed.lines.get(i), "Student with external key '" + key + "' already exists.");
+                    } else {
+                        students.add(parsed.items.get(i));
+                        keys.add(key);
+                    }
+                }
+                studentService.addImportedStudents(students, keys);
+                parsed.inserted = students.size();
+            }
+        };
+    }
+
+    private Importer<Grades> gradeImporter(Map<String, Integer> columns) {
+        int studentKey = column(columns, "studentKey", false);
+        int studentId = column(columns, "studentId", false);
+        if (studentKey < 0 && studentId < 0) {
+            throw new IllegalArgumentException("Missing column 'studentKey' or 'studentId'.");
+        }
+        int subject = column(columns, "subject", true);
+        int score = column(columns, "score", true);
+        int gradeDate = column(columns, "gradeDate", true);
+
+        return new Importer<>() {
+            @Override
+            public void parse(List<String> fields, long line, Parsed<Grades> parsed) {
+                Grades grade = new Grades();
+                grade.setSubject(field(fields, subject));
+                grade.setScore(parseNumber(field(fields, score), "Score must be a number."));
+                grade.setGradeDate(parseDate(field(fields, gradeDate)));
+                String key = externalKey(field(fields, studentKey));
+                if (key != null) {
+                    GradeService.validateGradeFields(grade);
+                } else {
+                    grade.setStudentId(parseNumber(field(fields, studentId), "Student ID must be a number."));
+                    GradeService.validateGrade(grade);
+                }
+                parsed.accept(line, grade, key);
+            }
+
+            @Override
+            public void write(Parsed<Grades> parsed) {
+                Map<String, Integer> ids = studentDAO.findIdsByExternalKeys(parsed.keys);
+                List<Grades> grades = new ArrayList<>(parsed.items.size());
+                List<Long> lines = new ArrayList<>(parsed.items.size());
+                for (int i = 0; i < parsed.items.size(); i++) {
+                    String key = parsed.keys.get(i);
+                    Grades grade = parsed.items.get(i);
+                    if (key != null) {
+                        Integer id = ids.get(key);
+                        if (id == null) {
+                            parsed.reject(parsed.lines.get(i), "Student with external key '" + key + "' not found.");
+                            continue;
+                        }
+                        grade.setStudentId(id);
+                    }
+                    grades.add(grade);
+                    lines.add(parsed.lines.get(i));
+                }
+                if (grades.isEmpty()) {
+                    return;
+                }
+                // те же проверки и пакетная вставка, что у POST /api/grades/batch
+                GradeBatchResult result = gradeService.addGrades(grades);
+                for (GradeBatchResult.RowError error : result.getErrors()) {
+                    parsed.reject(lines.get(error.getIndex()), error.getMessage());
+                }
+                parsed.inserted = result.getInserted();
+            }
+        };
+    }
+
+    /**
+     * @return Имя колонки в нижнем регистре -> ее индекс.
+     */
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private static int column(Map<String, Integer> columns, String name, boolean required) {
+        Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+        if (index == null && required) {
+            throw new IllegalArgumentException("Missing column '" + name + "'.");
+        }
+        return index != null ? index : -1;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String externalKey(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String key = value.trim();
+        if (key.length() > MAX_EXTERNAL_KEY_LENGTH) {
+            throw new IllegalArgumentException("External key cannot be longer than " + MAX_EXTERNAL_KEY_LENGTH + " characters.");
+        }
+        return key;
+    }
+
+    private static Integer parseNumber(String value, String message) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Grade date must be in yyyy-MM-dd format.");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeRollups;
+import com.example.student_management.dao.RankIndex;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.model.Leaderboard;
+import com.example.student_management.model.LeaderboardEntry;
+import com.example.student_management.model.Students;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Рейтинги студентов по среднему баллу. Сами рейтинги поддерживаются в памяти вместе с агрегатами
+ * оценок ({@link GradeRollups}) и обновляются на каждой записи оценки или студента, поэтому запрос
+ * первых N или места студента не сортирует оценки, а берет готовый порядок.
+ */
+@Service
+public class LeaderboardService {
+
+    /** Максимум строк в одном рейтинге. */
+    public static final int MAX_LIMIT = 100;
+
+    private final GradeRollups rollups;
+    private final StudentDAO studentDAO;
+
+    @Autowired
+    public LeaderboardService(GradeRollups rollups, StudentDAO studentDAO) {
+        this.rollups = rollups;
+        this.studentDAO = studentDAO;
+    }
+
+    /**
+     * Первые limit студентов по среднему баллу.
+     *
+     * @param groupName (Опционально) Группа; без нее - по всем группам.
+     * @param subject (Опционально) Предмет; без него - средний балл по всем предметам.
+     * @param limit Сколько строк вернуть (от 1 до {@link #MAX_LIMIT}).
+     * @return Рейтинг с общим количеством студентов в нем.
+     * @throws IllegalArgumentException Если limit вне допустимого диапазона.
+     * @throws IllegalStateException Если агрегаты оценок еще не построены или выключены.
+     */
+    public Leaderboard getTop(String groupName, String subject, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        String group = blankToNull(groupName);
+        String subj = blankToNull(subject);
+        checkReady();
+        return toLeaderboard(group, subj, rollups.top(group, subj, limit));
+    }
+
+    /**
+     * Место одного студента в рейтинге.
+     *
+     * @param studentId ID студента.
+     * @param groupName (Опционально) Группа; без нее - по всем группам.
+     * @param subject (Опционально) Предмет; без него - средний балл по всем предметам.
+     * @return Optional с рейтингом из одной строки (без строк, если у студента нет оценок по этому ключу)
+     * или Optional.empty(), если студента нет.
+     * @throws IllegalStateException Если агрегаты оценок еще не построены или выключены.
+     */
+    public Optional<Leaderboard> getRank(Integer studentId, String groupName, String subject) {
+        String group = blankToNull(groupName);
+        String subj = blankToNull(subject);
+        checkReady();
+        if (studentDAO.findById(studentId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(toLeaderboard(group, subj, rollups.rankOf(group, subj, studentId)));
+    }
+
+    private void checkReady() {
+        if (!rollups.isReady()) {
+            throw new IllegalStateException("Leaderboard is not available until grade rollups are built.");
+        }
+    }
+
+    /**
+     * Добавляет к строкам рейтинга имена студентов (findById идет через кэш студентов).
+     */
+    private Leaderboard toLeaderboard(String group, String subject, RankIndex.Slice slice) {
+        List<LeaderboardEntry> entries = new ArrayList<>(slice.entries().size());
+        for (RankIndex.Entry entry : slice.entries()) {
+            Students student = studentDAO.findById(entry.studentId()).orElse(null);
+            entries.add(new LeaderboardEntry(entry.rank(), entry.studentId(),
+                    student != null ? student.getFirstName() : null,
+                    student != null ? student.getLastName() : null,
+                    student != null ? student.getGroupName() : null,
+                    entry.average(), entry.count()));
+        }
+        return new Leaderboard(group, subject, slice.total(), entries);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
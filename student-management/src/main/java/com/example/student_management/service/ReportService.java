@@ -0,0 +1,207 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeColumns.Cell;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradeStatisticsDAO;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.model.TermReport;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Семестровые отчеты по всем оценкам: итоги по группам, предметам и парам "группа x предмет".
+ * <p>
+ * Считаются по колоночной копии оценок ({@link GradeColumns}) параллельно в своем пуле fork-join
+ * из reports.parallelism потоков. Если копия выключена или еще не загружена, для отчета загружается
+ * временный снимок через GradeDAO - только оценки за период отчета. Это дольше, но отчет все равно
+ * считается в памяти, а не в базе. Снимок занимает около 21 байт на оценку периода (как {@link GradeColumns}),
+ * и одновременно их может быть не больше reports.max-concurrent.
+ * <p>
+ * Отчет отменяется по тайм-ауту reports.timeout или через {@link #cancelRunning()}.
+ */
+@Service
+public class ReportService {
+    private static final Logger log = LoggerFactory.getLogger(ReportService.class);
+
+    private final GradeColumns columns;
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    private final int defaultPassScore;
+    private final Duration timeout;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService timer;
+    private final Semaphore permits;
+    /** Флаги отмены отчетов, которые сейчас считаются. */
+    private final Set<AtomicBoolean> running = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ReportService(GradeColumns columns, StudentDAO studentDAO, GradeDAO gradeDAO,
+                         @Value("${reports.pass-score:50}") int defaultPassScore,
+                         @Value("${reports.parallelism:0}") int parallelism,
+                         @Value("${reports.timeout:60s}") Duration timeout,
+                         @Value("${reports.max-concurrent:2}") int maxConcurrent) {
+        if (defaultPassScore < 0 || defaultPassScore > GradeStatisticsDAO.MAX_SCORE) {
+            throw new IllegalArgumentException("Pass score must be between 0 and " + GradeStatisticsDAO.MAX_SCORE + ".");
+        }
+        this.columns = columns;
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+        this.defaultPassScore = defaultPassScore;
+        this.timeout = timeout;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("report-timeout").daemon().factory());
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cancelRunning();
+        timer.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Семестровый отчет за период.
+     *
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param passScore (Опционально) Балл, начиная с которого оценка считается сданной (по умолчанию reports.pass-score).
+     * @return Отчет; строки групп, предметов и клеток отсортированы по названию.
+     * @throws IllegalArgumentException Если период или проходной балл невалидны.
+     * @throws IllegalStateException Если уже считается максимум отчетов или отчет отменен (в том числе по тайм-ауту).
+     */
+    public TermReport getTermReport(LocalDate from, LocalDate to, Integer passScore) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        int pass = passScore != null ? passScore : defaultPassScore;
+        if (pass < 0 || pass > GradeStatisticsDAO.MAX_SCORE) {
+            throw new IllegalArgumentException("Pass score must be between 0 and " + GradeStatisticsDAO.MAX_SCORE + ".");
+        }
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many reports are running.");
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        running.add(cancelled);
+        ScheduledFuture<?> deadline = timer.schedule(() -> cancelled.set(true), timeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            long start = System.nanoTime();
+            GradeColumns source = columns.isReady() ? columns : loadSnapshot(from, to, cancelled);
+            GradeColumns.Totals totals = source.aggregate(from, to, pass, pool, cancelled);
+            TermReport report = toReport(totals, from, to, pass);
+            report.setParallelism(pool.getParallelism());
+            report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+            return report;
+        } catch (CancellationException e) {
+            log.warn("Term report for {}..{} was cancelled: {}", from, to, e.getMessage());
+            throw new IllegalStateException("Report was cancelled or timed out.", e);
+        } finally {
+            deadline.cancel(false);
+            running.remove(cancelled);
+            permits.release();
+        }
+    }
+
+    /**
+     * Временный снимок оценок за период. Загрузка - самая долгая часть отчета без колоночной копии,
+     * поэтому отмена (тайм-аут или {@link #cancelRunning()}) проверяется на каждой строке и прерывает чтение.
+     */
+    private GradeColumns loadSnapshot(LocalDate from, LocalDate to, AtomicBoolean cancelled) {
+        GradeColumns snapshot = new GradeColumns(true);
+        snapshot.rebuild(
+                consumer -> studentDAO.streamAll(student -> {
+                    checkCancelled(cancelled);
+                    consumer.accept(student);
+                }),
+                consumer -> gradeDAO.streamByPeriod(from, to, grade -> {
+                    checkCancelled(cancelled);
+                    consumer.accept(grade);
+                }));
+        return snapshot;
+    }
+
+    private static void checkCancelled(AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            throw new CancellationException("Report snapshot loading was cancelled.");
+        }
+    }
+
+    /**
+     * Отменяет все отчеты, которые сейчас считаются. Они завершатся с IllegalStateException.
+     *
+     * @return Сколько отчетов отменено.
+     */
+    public int cancelRunning() {
+        int count = 0;
+        for (AtomicBoolean cancelled : running) {
+            if (!cancelled.getAndSet(true)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Сводит итоги клеток в строки отчета: клетки как есть, группы и предметы - суммой клеток.
+     */
+    static TermReport toReport(GradeColumns.Totals totals, LocalDate from, LocalDate to, int passScore) {
+        List<String> groups = totals.groups();
+        List<String> subjects = totals.subjects();
+        TreeMap<String, Cell> byGroup = new TreeMap<>();
+        TreeMap<String, Cell> bySubject = new TreeMap<>();
+        TreeMap<String, TreeMap<String, Cell>> cells = new TreeMap<>();
+        Cell total = Cell.EMPTY;
+        for (int g = 0; g < groups.size(); g++) {
+            for (int s = 0; s < subjects.size(); s++) {
+                Cell cell = totals.cell(g, s);
+                if (cell.count() == 0) {
+                    continue;
+                }
+                byGroup.merge(groups.get(g), cell, Cell::plus);
+                bySubject.merge(subjects.get(s), cell, Cell::plus);
+                cells.computeIfAbsent(groups.get(g), key -> new TreeMap<>()).put(subjects.get(s), cell);
+                total = total.plus(cell);
+            }
+        }
+
+        List<TermReport.Line> groupLines = new ArrayList<>(byGroup.size());
+        byGroup.forEach((group, cell) -> groupLines.add(line(group, null, cell)));
+        List<TermReport.Line> subjectLines = new ArrayList<>(bySubject.size());
+        bySubject.forEach((subject, cell) -> subjectLines.add(line(null, subject, cell)));
+        List<TermReport.Line> cellLines = new ArrayList<>();
+        cells.forEach((group, bySubjectInGroup) ->
+                bySubjectInGroup.forEach((subject, cell) -> cellLines.add(line(group, subject, cell))));
+        return new TermReport(from, to, passScore, 1, 0, line(null, null, total), groupLines, subjectLines, cellLines);
+    }
+
+    private static TermReport.Line line(String group, String subject, Cell cell) {
+        if (cell.count() == 0) {
+            return new TermReport.Line(group, subject, 0, null, null, null, null, null);
+        }
+        double average = (double) cell.sum() / cell.count();
+        double stdDev = Math.sqrt(Math.max(0.0, (double) cell.sumSquares() / cell.count() - average * average));
+        return new TermReport.Line(group, subject, cell.count(), average, stdDev, cell.min(), cell.max(),
+                (double) cell.passed() / cell.count());
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeColumns;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.GradeRollups;
+import com.example.student_management.dao.GradeRollups.Rollup;
+import com.example.student_management.dao.GradeStatisticsDAO;
+import com.example.student_management.dao.GradeStatisticsDAO.Dimension;
+import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.model.GradeStatistics;
+import com.example.student_management.model.RollupCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Service
+public class StatisticsService {
+    private static final Logger log = LoggerFactory.getLogger(StatisticsService.class);
+
+    /** Ширина столбца гистограммы по умолчанию: 0-9, 10-19, ..., 100. */
+    public static final int DEFAULT_BUCKET_WIDTH = 10;
+
+    /** Какие перцентили отдаются в ответе по одному ключу. */
+    private static final int[] PERCENTILES = {10, 25, 50, 75, 90};
+
+    /** Сколько расхождений перечислять в ответе проверки агрегатов. */
+    private static final int MAX_CHECK_SAMPLES = 50;
+
+    private final GradeStatisticsDAO statisticsDAO;
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    private final GradeRollups rollups;
+    private final GradeColumns columns;
+
+    @Autowired
+    public StatisticsService(GradeStatisticsDAO statisticsDAO, StudentDAO studentDAO, GradeDAO gradeDAO,
+                             GradeRollups rollups, GradeColumns columns) {
+        this.statisticsDAO = statisticsDAO;
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+        this.rollups = rollups;
+        this.columns = columns;
+    }
+
+    /**
+     * Строит агрегаты оценок в памяти после старта приложения.
+     * Пока они не готовы (или база недоступна), вся статистика считается запросами к базе.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildRollups() {
+        long start = System.nanoTime();
+        try {
+            rollups.rebuild(studentDAO::streamAll, gradeDAO::streamAll);
+            if (rollups.isReady()) {
+                log.info("Grade rollups built in {} ms", (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to build grade rollups, statistics will be computed in the database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Загружает колоночную копию оценок после старта приложения (если grades.columns.enabled=true).
+     * Пока она не готова, запросы за период считаются в базе.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildColumns() {
+        if (!columns.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            columns.rebuild(studentDAO::streamAll, gradeDAO::streamAll);
+            GradeColumns.Stats stats = columns.stats();
+            log.info("Grade columns loaded in {} ms: {} rows, {} KB", (System.nanoTime() - start) / 1_000_000,
+                    stats.rows(), stats.bytes() / 1024);
+        } catch (RuntimeException e) {
+            log.warn("Failed to load grade columns, period statistics will be computed in the database: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * @return Размер колоночной копии оценок и занятая ею память.
+     */
+    public GradeColumns.Stats getColumnsStats() {
+        return columns.stats();
+    }
+
+    /**
+     * Сверяет агрегаты в памяти с базой (пересчитывает их заново и сравнивает). Записи в это время ждут.
+     *
+     * @return Результат проверки с примерами расхождений.
+     */
+    public RollupCheck checkRollups() {
+        return rollups.check(studentDAO::streamAll, gradeDAO::streamAll, MAX_CHECK_SAMPLES);
+    }
+
+    /**
+     * Статистика оценок одного студента.
+     *
+     * @param studentId ID студента.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return Optional со статистикой или Optional.empty(), если студента нет.
+     * @throws IllegalArgumentException Если период или ширина столбца невалидны.
+     */
+    public Optional<GradeStatistics> getStudentStatistics(Integer studentId, LocalDate from, LocalDate to, int bucketWidth) {
+        validate(from, to, bucketWidth);
+        if (studentDAO.findById(studentId).isEmpty()) {
+            return Optional.empty();
+        }
+        long[] distribution;
+        if (useRollups(from, to)) {
+            distribution = rollups.student(studentId).toDistribution();
+        } else if (columns.isReady()) {
+            distribution = columns.distribution(studentId, null, null, from, to);
+        } else {
+            distribution = statisticsDAO.scoreDistribution(Dimension.STUDENT, studentId, from, to);
+        }
+        return Optional.of(fromDistribution(Dimension.STUDENT, String.valueOf(studentId), distribution, bucketWidth));
+    }
+
+    /**
+     * Статистика оценок всех студентов одной группы.
+     *
+     * @param groupName Название группы (например, "22-02").
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return Статистика по группе (count = 0, если оценок нет).
+     * @throws IllegalArgumentException Если период или ширина столбца невалидны.
+     */
+    public GradeStatistics getGroupStatistics(String groupName, LocalDate from, LocalDate to, int bucketWidth) {
+        validate(from, to, bucketWidth);
+        long[] distribution;
+        if (useRollups(from, to)) {
+            distribution = rollups.group(groupName).toDistribution();
+        } else if (columns.isReady()) {
+            distribution = columns.distribution(null, groupName, null, from, to);
+        } else {
+            distribution = statisticsDAO.scoreDistribution(Dimension.GROUP, groupName, from, to);
+        }
+        return fromDistribution(Dimension.GROUP, groupName, distribution, bucketWidth);
+    }
+
+    /**
+     * Статистика оценок по одному предмету.
+     *
+     * @param subject Название предмета.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @param bucketWidth Ширина столбца гистограммы в баллах.
+     * @return Статистика по предмету (count = 0, если оценок нет).
+     * @throws IllegalArgumentException Если период или ширина столбца невалидны.
+     */
+    public GradeStatistics getSubjectStatistics(String subject, LocalDate from, LocalDate to, int bucketWidth) {
+        validate(from, to, bucketWidth);
+        long[] distribution;
+        if (useRollups(from, to)) {
+            distribution = rollups.subject(subject).toDistribution();
+        } else if (columns.isReady()) {
+            distribution = columns.distribution(null, null, subject, from, to);
+        } else {
+            distribution = statisticsDAO.scoreDistribution(Dimension.SUBJECT, subject, from, to);
+        }
+        return fromDistribution(Dimension.SUBJECT, subject, distribution, bucketWidth);
+    }
+
+    /**
+     * Краткая статистика (count/avg/min/max) по каждой группе.
+     *
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Список статистик по группам.
+     * @throws IllegalArgumentException Если период невалиден.
+     */
+    public List<GradeStatistics> getAllGroupsStatistics(LocalDate from, LocalDate to) {
+        validate(from, to, DEFAULT_BUCKET_WIDTH);
+        if (useRollups(from, to)) {
+            return summaries(Dimension.GROUP, rollups.groups());
+        }
+        if (columns.isReady()) {
+            return distributionSummaries(Dimension.GROUP,
+                    columns.distributionsBy(Dimension.GROUP, null, null, null, from, to));
+        }
+        return statisticsDAO.summarizeAll(Dimension.GROUP, from, to);
+    }
+
+    /**
+     * Краткая статистика (count/avg/min/max) по каждому предмету.
+     *
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Список статистик по предметам.
+     * @throws IllegalArgumentException Если период невалиден.
+     */
+    public List<GradeStatistics> getAllSubjectsStatistics(LocalDate from, LocalDate to) {
+        validate(from, to, DEFAULT_BUCKET_WIDTH);
+        if (useRollups(from, to)) {
+            return summaries(Dimension.SUBJECT, rollups.subjects());
+        }
+        if (columns.isReady()) {
+            return distributionSummaries(Dimension.SUBJECT,
+                    columns.distributionsBy(Dimension.SUBJECT, null, null, null, from, to));
+        }
+        return statisticsDAO.summarizeAll(Dimension.SUBJECT, from, to);
+    }
+
+    /**
+     * Краткая статистика студента по каждому предмету (средний балл по предметам, как в ведомости).
+     *
+     * @param studentId ID студента.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Optional со списком по предметам или Optional.empty(), если студента нет.
+     * @throws IllegalArgumentException Если период невалиден.
+     */
+    public Optional<List<GradeStatistics>> getStudentSubjectStatistics(Integer studentId, LocalDate from, LocalDate to) {
+        validate(from, to, DEFAULT_BUCKET_WIDTH);
+        if (studentDAO.findById(studentId).isEmpty()) {
+            return Optional.empty();
+        }
+        if (useRollups(from, to)) {
+            return Optional.of(summaries(Dimension.SUBJECT, rollups.studentSubjects(studentId)));
+        }
+        if (columns.isReady()) {
+            return Optional.of(distributionSummaries(Dimension.SUBJECT,
+                    columns.distributionsBy(Dimension.SUBJECT, studentId, null, null, from, to)));
+        }
+        return Optional.of(statisticsDAO.summarizeSubjects(Dimension.STUDENT, studentId, from, to));
+    }
+
+    /**
+     * Краткая статистика группы по каждому предмету.
+     *
+     * @param groupName Название группы.
+     * @param from (Опционально) Начало периода.
+     * @param to (Опционально) Конец периода.
+     * @return Список по предметам (пустой, если оценок нет).
+     * @throws IllegalArgumentException Если период невалиден.
+     */
+    public List<GradeStatistics> getGroupSubjectStatistics(String groupName, LocalDate from, LocalDate to) {
+        validate(from, to, DEFAULT_BUCKET_WIDTH);
+        if (useRollups(from, to)) {
+            return summaries(Dimension.SUBJECT, rollups.groupSubjects(groupName));
+        }
+        if (columns.isReady()) {
+            return distributionSummaries(Dimension.SUBJECT,
+                    columns.distributionsBy(Dimension.SUBJECT, null, groupName, null, from, to));
+        }
+        return statisticsDAO.summarizeSubjects(Dimension.GROUP, groupName, from, to);
+    }
+
+    /**
+     * Агрегаты в памяти хранят итоги за все время, поэтому подходят только для запросов без периода.
+     */
+    private boolean useRollups(LocalDate from, LocalDate to) {
+        return from == null && to == null && rollups.isReady();
+    }
+
+    private static List<GradeStatistics> summaries(Dimension dimension, Map<String, Rollup> rollupsByKey) {
+        List<GradeStatistics> result = new ArrayList<>(rollupsByKey.size());
+        rollupsByKey.forEach((key, rollup) -> result.add(new GradeStatistics(dimension.name().toLowerCase(), key,
+                rollup.getCount(), rollup.getAverage(), rollup.getMin(), rollup.getMax(), rollup.getStdDev(), null, null)));
+        return result;
+    }
+
+    /**
+     * Краткая статистика из распределений колоночной копии: ключи по алфавиту, как ORDER BY в SQL.
+     */
+    private static List<GradeStatistics> distributionSummaries(Dimension dimension,
+                                                                Map<String, long[]> distributionsByKey) {
+        List<GradeStatistics> result = new ArrayList<>(distributionsByKey.size());
+        new TreeMap<>(distributionsByKey).forEach((key, distribution) -> {
+            GradeStatistics statistics = fromDistribution(dimension, key, distribution, DEFAULT_BUCKET_WIDTH);
+            statistics.setHistogram(null);
+            statistics.setPercentiles(null);
+            result.add(statistics);
+        });
+        return result;
+    }
+
+    private static void validate(LocalDate from, LocalDate to, int bucketWidth) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        if (bucketWidth < 1 || bucketWidth > GradeStatisticsDAO.MAX_SCORE + 1) {
+            throw new IllegalArgumentException("Bucket width must be between 1 and " + (GradeStatisticsDAO.MAX_SCORE + 1) + ".");
+        }
+    }
+
+    /**
+     * Собирает полную статистику из распределения "балл -> количество оценок".
+     * Так как баллов всего 101, все считается за один проход без сортировки самих оценок.
+     */
+    static GradeStatistics fromDistribution(Dimension dimension, String key, long[] distribution, int bucketWidth) {
+        long count = 0;
+        long sum = 0;
+        long sumSquares = 0;
+        Integer min = null;
+        Integer max = null;
+        for (int score = 0; score < distribution.length; score++) {
+            long n = distribution[score];
+            if (n > 0) {
+                count += n;
+                sum += n * score;
+                sumSquares += n * score * score;
+                if (min == null) {
+                    min = score;
+                }
+                max = score;
+            }
+        }
+
+        List<GradeStatistics.HistogramBucket> histogram = new ArrayList<>();
+        for (int from = 0; from < distribution.length; from += bucketWidth) {
+            int to = Math.min(from + bucketWidth, distribution.length) - 1;
+            long bucketCount = 0;
+            for (int score = from; score <= to; score++) {
+                bucketCount += distribution[score];
+            }
+            histogram.add(new GradeStatistics.HistogramBucket(from, to, bucketCount));
+        }
+
+        Map<String, Integer> percentiles = new LinkedHashMap<>();
+        if (count > 0) {
+            for (int p : PERCENTILES) {
+                percentiles.put("p" + p, percentile(distribution, count, p));
+            }
+        }
+
+        Double average = count > 0 ? (double) sum / count : null;
+        Double stdDev = count > 0 ? Math.sqrt(Math.max(0.0, (double) sumSquares / count - average * average)) : null;
+        return new GradeStatistics(dimension.name().toLowerCase(), key, count, average, min, max, stdDev,
+                histogram, percentiles);
+    }
+
+    /**
+     * Перцентиль методом ближайшего ранга: наименьший балл, у которого накопленное количество >= p% от всех оценок.
+     */
+    private static int percentile(long[] distribution, long count, int p) {
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long cumulative = 0;
+        for (int score = 0; score < distribution.length; score++) {
+            cumulative += distribution[score];
+            if (cumulative >= rank) {
+                return score;
+            }
+        }
+        return distribution.length - 1;
+    }
+}
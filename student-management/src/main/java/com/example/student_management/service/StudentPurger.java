@@ -0,0 +1,200 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.StudentDAO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая очистка удаленных студентов (см. {@link StudentDAO#deleteById(Integer)}).
+ * <p>
+ * Один поток берет студентов из {@link DeletedStudents} по очереди и удаляет их оценки пачками
+ * по students.purge.batch-size строк, делая паузу students.purge.batch-interval после каждой пачки.
+ * Так за раз блокируется не больше batch-size строк grades, а скорость очистки ограничена
+ * (batch-size / batch-interval строк в секунду) и не мешает обычным записям. Когда оценок не осталось,
+ * удаляется сама строка студента. Ход очистки виден в метриках students.purge.*.
+ * <p>
+ * Студент, на котором пачка упала, уходит в конец очереди: следующим берется студент с меньшим числом
+ * неудач, так что одна "застрявшая" строка не останавливает очистку остальных. Неудачи считаются
+ * в students.purge.failures.
+ */
+@Service
+public class StudentPurger {
+    private static final Logger log = LoggerFactory.getLogger(StudentPurger.class);
+
+    /** Как часто проверять очередь, когда удалять нечего. */
+    private static final long IDLE_MILLIS = 1000;
+
+    /** Пауза после ошибки базы, прежде чем пробовать снова. */
+    private static final long ERROR_BACKOFF_MILLIS = 5000;
+
+    private final StudentDAO studentDAO;
+    private final GradeDAO gradeDAO;
+    private final DeletedStudents deletedStudents;
+    private final int batchSize;
+    private final long batchIntervalMillis;
+
+    private final AtomicLong purgedGrades = new AtomicLong();
+    private final AtomicLong purgedStudents = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    /** Студент -> сколько раз на нем падала пачка. Только из потока очистки. */
+    private final Map<Integer, Integer> failures = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread purger;
+
+    @Autowired
+    public StudentPurger(StudentDAO studentDAO, GradeDAO gradeDAO, DeletedStudents deletedStudents,
+                         @Value("${students.purge.batch-size:500}") int batchSize,
+                         @Value("${students.purge.batch-interval:100ms}") Duration batchInterval) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Purge batch size must be positive.");
+        }
+        this.studentDAO = studentDAO;
+        this.gradeDAO = gradeDAO;
+        this.deletedStudents = deletedStudents;
+        this.batchSize = batchSize;
+        this.batchIntervalMillis = batchInterval.toMillis();
+    }
+
+    /**
+     * Загружает студентов, удаленных до перезапуска, и запускает поток очистки.
+     * Выполняется раньше остальных обработчиков старта, чтобы индексы и агрегаты
+     * строились уже без оценок удаленных студентов.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        try {
+            List<Integer> ids = studentDAO.findDeletedIds();
+            deletedStudents.addAll(ids);
+            if (!ids.isEmpty()) {
+                log.info("{} deleted students are waiting for grade purge", ids.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to load deleted students, purge will start with new deletes only: {}", e.getMessage());
+        }
+        running = true;
+        purger = new Thread(this::runPurger, "student-purger");
+        purger.setDaemon(true);
+        purger.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (purger != null) {
+            purger.interrupt();
+        }
+    }
+
+    /**
+     * @return Сколько студентов ждет очистки.
+     */
+    public int pendingStudents() {
+        return deletedStudents.size();
+    }
+
+    /**
+     * @return Сколько оценок удалено очисткой с момента старта.
+     */
+    public long purgedGrades() {
+        return purgedGrades.get();
+    }
+
+    /**
+     * @return Сколько студентов окончательно удалено с момента старта.
+     */
+    public long purgedStudents() {
+        return purgedStudents.get();
+    }
+
+    /**
+     * @return Сколько пачек DELETE выполнено с момента старта.
+     */
+    public long batches() {
+        return batches.get();
+    }
+
+    /**
+     * @return Сколько пачек очистки упало с ошибкой с момента старта.
+     */
+    public long failedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Одна пачка очистки: удаляет до batch-size оценок следующего студента в очереди,
+     * а если их оставалось меньше - и самого студента. Следующий - первый по ID среди студентов
+     * с наименьшим числом неудач.
+     *
+     * @return false, если удалять было нечего.
+     * @throws RuntimeException Ошибка базы; студент при этом уходит в конец очереди.
+     */
+    boolean purgeBatch() {
+        List<Integer> pending = deletedStudents.snapshot();
+        if (pending.isEmpty()) {
+            failures.clear();
+            return false;
+        }
+        failures.keySet().retainAll(pending);
+        Integer studentId = pending.stream()
+                .min(Comparator.comparingInt(id -> failures.getOrDefault(id, 0)))
+                .orElseThrow();
+        try {
+            int deleted = gradeDAO.deleteGradesOfStudent(studentId, batchSize);
+            batches.incrementAndGet();
+            purgedGrades.addAndGet(deleted);
+            if (deleted < batchSize) {
+                if (studentDAO.purgeStudentRow(studentId)) {
+                    purgedStudents.incrementAndGet();
+                }
+                failures.remove(studentId);
+                log.debug("Student {} purged", studentId);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            int failed = failures.merge(studentId, 1, Integer::sum);
+            log.warn("Purge of student {} failed ({} times so far), retrying in {} ms with the next student: {}",
+                    studentId, failed, ERROR_BACKOFF_MILLIS, e.getMessage());
+            throw e;
+        }
+    }
+
+    private void runPurger() {
+        while (running) {
+            try {
+                Thread.sleep(purgeBatch() ? batchIntervalMillis : IDLE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // уже записано в purgeBatch
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
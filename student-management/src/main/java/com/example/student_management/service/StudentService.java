@@ -1,21 +1,70 @@
 package com.example.student_management.service;
 
+import com.example.student_management.dao.ChangeVersions;
+import com.example.student_management.dao.StudentCache;
 import com.example.student_management.dao.StudentDAO;
+import com.example.student_management.dao.StudentSearchIndex;
+import com.example.student_management.model.ChangeEvent;
+import com.example.student_management.model.StudentPage;
 import com.example.student_management.model.Students;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 public class StudentService {
+    private static final Logger log = LoggerFactory.getLogger(StudentService.class);
+
+    /** Максимум подсказок в одном ответе поиска. */
+    public static final int MAX_SEARCH_LIMIT = 100;
+
+    /** Максимальный размер страницы для GET /api/students?size=... */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Разделитель полей внутри курсора (в именах студентов не встречается). */
+    private static final String CURSOR_SEPARATOR = "\u001F";
 
     private final StudentDAO studentDao;
+    private final StudentCache studentCache;
+    private final StudentSearchIndex searchIndex;
+    private final ChangeVersions changeVersions;
+    private final ChangeFeed changeFeed;
 
     @Autowired
-    public StudentService(StudentDAO studentDao) {
+    public StudentService(StudentDAO studentDao, StudentCache studentCache, StudentSearchIndex searchIndex,
+                          ChangeVersions changeVersions, ChangeFeed changeFeed) {
         this.studentDao = studentDao;
+        this.studentCache = studentCache;
+        this.searchIndex = searchIndex;
+        this.changeVersions = changeVersions;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Строит триграммный индекс имен после старта приложения (schema.sql к этому моменту уже выполнен).
+     * Если база недоступна, приложение все равно работает: поиск просто идет через SQL.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildSearchIndex() {
+        long start = System.nanoTime();
+        try {
+            searchIndex.rebuild(studentDao::streamAll);
+            log.info("Student search index built: {} students in {} ms",
+                    searchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Failed to build student search index, falling back to SQL search: {}", e.getMessage());
+        }
     }
 
     /**
@@ -27,7 +76,33 @@ public class StudentService {
      * @throws IllegalArgumentException Если данные студента невалидны (например, нет имени).
      */
     public Students addStudent(Students student) {
-        // Пример бизнес-валидации:
+        validateStudent(student);
+
+        Students saved = studentDao.save(student); // Делегируем сохранение DAO-слою
+        publish(ChangeEvent.Action.CREATED, saved);
+        return saved;
+    }
+
+    /**
+     * Сохраняет пачку уже проверенных студентов (CSV-импорт) одной транзакцией и публикует их в ленту изменений.
+     *
+     * @param students Студенты, прошедшие {@link #validateStudent(Students)}.
+     * @param externalKeys Внешние ключи в том же порядке (null - без ключа).
+     * @return Те же студенты с присвоенными ID.
+     */
+    public List<Students> addImportedStudents(List<Students> students, List<String> externalKeys) {
+        studentDao.saveAll(students, externalKeys);
+        students.forEach(student -> publish(ChangeEvent.Action.CREATED, student));
+        return students;
+    }
+
+    /**
+     * Бизнес-валидация полей студента, общая для добавления, обновления и импорта.
+     *
+     * @param student Проверяемый студент.
+     * @throws IllegalArgumentException Если какое-то поле невалидно.
+     */
+    static void validateStudent(Students student) {
         if (student.getFirstName() == null || student.getFirstName().trim().isEmpty()) {
             throw new IllegalArgumentException("First name cannot be empty.");
         }
@@ -37,8 +112,6 @@ public class StudentService {
         if (student.getGroupName() == null || student.getGroupName().trim().isEmpty()) {
             throw new IllegalArgumentException("Group name cannot be empty.");
         }
-
-        return studentDao.save(student); // Делегируем сохранение DAO-слою
     }
 
     /**
@@ -46,13 +119,87 @@ public class StudentService {
      *
      * @param firstNameFilter Фильтр по имени.
      * @param lastNameFilter  Фильтр по фамилии.
+     * @param match           Режим поиска: "prefix" (по индексу) или "contains" (по умолчанию).
      * @param sortBy          Поле для сортировки ("firstName", "lastName").
      * @param sortOrder       Порядок сортировки ("asc", "desc").
      * @return Список найденных студентов.
+     * @throws IllegalArgumentException Если режим поиска неизвестен.
      */
 
-    public List<Students> getAllStudents(String firstNameFilter, String lastNameFilter, String sortBy, String sortOrder) {
-        return studentDao.findAll(firstNameFilter, lastNameFilter, sortBy, sortOrder);
+    public List<Students> getAllStudents(String firstNameFilter, String lastNameFilter, String match, String sortBy, String sortOrder) {
+        StudentDAO.NameMatch nameMatch = StudentDAO.NameMatch.fromParam(match);
+        boolean hasFilter = (firstNameFilter != null && !firstNameFilter.isEmpty())
+                || (lastNameFilter != null && !lastNameFilter.isEmpty());
+
+        // LIKE '%x%' в MySQL всегда читает всю таблицу, поэтому поиск по вхождению отвечаем из индекса в памяти
+        if (hasFilter && nameMatch == StudentDAO.NameMatch.CONTAINS && searchIndex.isReady()) {
+            List<Students> students = searchIndex.find(firstNameFilter, lastNameFilter, nameMatch);
+            Comparator<Students> comparator = comparator(sortBy, sortOrder);
+            if (comparator != null) {
+                students.sort(comparator);
+            }
+            return students;
+        }
+        return studentDao.findAll(firstNameFilter, lastNameFilter, nameMatch, sortBy, sortOrder);
+    }
+
+    /**
+     * Получает одну страницу студентов с фильтрами и однозначной сортировкой (sortBy, id).
+     *
+     * @param firstNameFilter Фильтр по имени.
+     * @param lastNameFilter  Фильтр по фамилии.
+     * @param match           Режим поиска: "prefix" или "contains" (по умолчанию).
+     * @param sortBy          Поле для сортировки ("firstName", "lastName" или "id").
+     * @param sortOrder       Порядок сортировки ("asc", "desc").
+     * @param cursor          nextCursor из предыдущей страницы (null - первая страница).
+     * @param size            Размер страницы, от 1 до {@link #MAX_PAGE_SIZE}.
+     * @param includeTotal    Добавить ли приблизительное общее количество (одна оценка EXPLAIN, без COUNT(*)).
+     * @return Страница студентов.
+     * @throws IllegalArgumentException Если параметры невалидны или курсор от другой сортировки.
+     */
+    public StudentPage getStudentsPage(String firstNameFilter, String lastNameFilter, String match, String sortBy,
+                                       String sortOrder, String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        StudentDAO.NameMatch nameMatch = StudentDAO.NameMatch.fromParam(match);
+        String sortSpec = sortSpec(sortBy, sortOrder);
+        Students after = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor, sortSpec);
+
+        // берем на одну строку больше, чтобы понять, есть ли следующая страница
+        List<Students> students = studentDao.findPage(firstNameFilter, lastNameFilter, nameMatch,
+                sortBy, sortOrder, after, size + 1);
+        boolean hasNext = students.size() > size;
+        if (hasNext) {
+            students = students.subList(0, size);
+        }
+        String nextCursor = hasNext ? encodeCursor(students.get(size - 1), sortSpec) : null;
+        Long total = includeTotal ? studentDao.estimateCount(firstNameFilter, lastNameFilter, nameMatch) : null;
+        return new StudentPage(students, size, hasNext, nextCursor, total);
+    }
+
+    /**
+     * Поиск студентов для поля с подсказками: строка ищется и в имени, и в фамилии.
+     *
+     * @param query Строка поиска.
+     * @param match "prefix" - имя или фамилия начинается со строки, "contains" (по умолчанию) - содержит ее.
+     * @param limit Максимум результатов (от 1 до {@link #MAX_SEARCH_LIMIT}).
+     * @return Найденные студенты в порядке возрастания ID.
+     * @throws IllegalArgumentException Если параметры невалидны.
+     * @throws IllegalStateException Если индекс еще не построен.
+     */
+    public List<Students> searchStudents(String query, String match, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty.");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT + ".");
+        }
+        StudentDAO.NameMatch nameMatch = StudentDAO.NameMatch.fromParam(match);
+        if (!searchIndex.isReady()) {
+            throw new IllegalStateException("Student search index is not ready yet.");
+        }
+        return searchIndex.search(query, nameMatch, limit);
     }
 
     /**
@@ -67,42 +214,146 @@ public class StudentService {
 
     /**
      * Обновляет информацию о существующем студенте.
-     * Может включать бизнес-логику, например, проверку на то, что студент существует.
+     * Существование проверяет сам UPDATE (0 затронутых строк), отдельного findById перед ним нет.
+     * Если у студента указан version, обновление условное: при несовпадении версии выбрасывается IllegalStateException.
      *
-     * @param student Объект Student с обновленными данными.
-     * @return true, если студент был успешно обновлен; false, если студент не найден.
+     * @param student Объект Student с обновленными данными (ID должен быть указан).
+     * @return Optional с обновленным студентом (уже с новой версией) или Optional.empty(), если студент не найден.
      * @throws IllegalArgumentException Если данные студента невалидны.
+     * @throws IllegalStateException Если версия не совпала - студента уже изменил кто-то другой.
      */
-    public boolean updateStudent(Students student) {
+    public Optional<Students> updateStudent(Students student) {
         // Пример бизнес-валидации перед обновлением:
         if (student.getId() == null) {
             throw new IllegalArgumentException("Student ID cannot be null for update.");
         }
-        if (student.getFirstName() == null || student.getFirstName().trim().isEmpty()) {
-            throw new IllegalArgumentException("First name cannot be empty.");
+        validateStudent(student);
+
+        Integer expectedVersion = student.getVersion();
+        if (studentDao.update(student) > 0) {
+            publish(ChangeEvent.Action.UPDATED, student);
+            return Optional.of(student);
         }
-        if (student.getLastName() == null || student.getLastName().trim().isEmpty()) {
-            throw new IllegalArgumentException("Last name cannot be empty.");
+        if (expectedVersion == null) {
+            return Optional.empty(); // Студент не найден
         }
-        if (student.getGroupName() == null || student.getGroupName().trim().isEmpty()) {
-            throw new IllegalArgumentException("Group name cannot be empty.");
+        // второй запрос только на неудачном пути: студента нет или версия устарела
+        Optional<Integer> currentVersion = studentDao.findVersion(student.getId());
+        if (currentVersion.isEmpty()) {
+            return Optional.empty();
         }
-
-        if (!studentDao.findById(student.getId()).isPresent()) {
-            return false; // Студент не найден
-        }
-
-        return studentDao.update(student) > 0; // Возвращаем true, если обновлена хотя бы 1 строка
+        throw new IllegalStateException("Student " + student.getId() + " was modified: expected version "
+                + expectedVersion + ", current version " + currentVersion.get() + ".");
     }
 
     /**
-     * Удаляет студента по его ID.
+     * Удаляет студента по его ID. Студент и его оценки сразу пропадают из всех ответов,
+     * а из базы оценки удаляются в фоне небольшими пачками ({@link StudentPurger}).
      *
      * @param id ID студента для удаления.
      * @return true, если студент был успешно удален; false, если студент не найден.
      */
     public boolean deleteStudent(Integer id) {
-        // в этом DAO настроен CASCADE DELETE, так что оценки удалятся автоматически.
-        return studentDao.deleteById(id) > 0; // Возвращаем true, если удалена хотя бы 1 строка
+        // группа нужна подписчикам ленты с фильтром по группе (findById идет через кэш)
+        String groupName = studentDao.findById(id).map(Students::getGroupName).orElse(null);
+        if (studentDao.deleteById(id) == 0) {
+            return false;
+        }
+        changeFeed.publish(ChangeEvent.Entity.STUDENT, ChangeEvent.Action.DELETED, id, id, groupName, null);
+        return true; // удалена хотя бы 1 строка
+    }
+
+    private void publish(ChangeEvent.Action action, Students student) {
+        changeFeed.publish(ChangeEvent.Entity.STUDENT, action, student.getId(), student.getId(),
+                student.getGroupName(), student);
+    }
+
+    /**
+     * Нормализованное описание сортировки, которое зашивается в курсор,
+     * чтобы курсор от одной сортировки нельзя было применить к другой.
+     */
+    private static String sortSpec(String sortBy, String sortOrder) {
+        String key = "firstName".equalsIgnoreCase(sortBy) ? "firstName"
+                : "lastName".equalsIgnoreCase(sortBy) ? "lastName" : "id";
+        return key + ("desc".equalsIgnoreCase(sortOrder) ? ":desc" : ":asc");
+    }
+
+    /**
+     * Курсор - это значения ключа сортировки последнего студента страницы (плюс его ID) в base64url.
+     */
+    private static String encodeCursor(Students last, String sortSpec) {
+        String raw = String.join(CURSOR_SEPARATOR, sortSpec, String.valueOf(last.getId()),
+                last.getFirstName(), last.getLastName());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Students decodeCursor(String cursor, String sortSpec) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(CURSOR_SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor.");
+        }
+        if (parts.length != 4 || !parts[0].equals(sortSpec)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order.");
+        }
+        Students after = new Students();
+        try {
+            after.setId(Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor.");
+        }
+        after.setFirstName(parts[2]);
+        after.setLastName(parts[3]);
+        return after;
+    }
+
+    /**
+     * Сортировка в памяти с той же семантикой, что ORDER BY в StudentDAO.findAll.
+     * Строки сравниваются через Collator без учета регистра, чтобы порядок был близок к коллации MySQL,
+     * а при равенстве порядок задает ID.
+     *
+     * @return Компаратор или null, если сортировка не запрошена (тогда остается порядок по ID).
+     */
+    private static Comparator<Students> comparator(String sortBy, String sortOrder) {
+        if (sortBy == null || sortBy.isEmpty()) {
+            return null;
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.SECONDARY);
+
+        Comparator<Students> comparator;
+        if ("firstName".equalsIgnoreCase(sortBy)) {
+            comparator = Comparator.comparing(Students::getFirstName, collator)
+                    .thenComparing(Students::getLastName, collator)
+                    .thenComparing(Students::getId);
+        } else if ("lastName".equalsIgnoreCase(sortBy)) {
+            comparator = Comparator.comparing(Students::getLastName, collator)
+                    .thenComparing(Students::getFirstName, collator)
+                    .thenComparing(Students::getId);
+        } else {
+            comparator = Comparator.comparing(Students::getId);
+        }
+        return "desc".equalsIgnoreCase(sortOrder) ? comparator.reversed() : comparator;
+    }
+
+    /**
+     * Текущая версия таблицы students для ETag/Last-Modified. Читается без запроса к базе.
+     *
+     * @return Валидатор ответов, построенных по списку студентов.
+     */
+    public ChangeVersions.Validator getStudentsVersion() {
+        return changeVersions.students();
+    }
+
+    /**
+     * Получает метрики кэша студентов (попадания, промахи, вытеснения).
+     * Сам кэш сбрасывается в StudentDAO при save/update/deleteById, так что update и delete выше
+     * не оставляют в нем устаревших данных.
+     *
+     * @return Снимок метрик кэша.
+     */
+    public StudentCache.Stats getCacheStats() {
+        return studentCache.stats();
     }
 }
@@ -1,13 +1,39 @@
 -- Удаление таблицы, каждый раз когда запускаете бэк оно удаляется создается по новому (главное наличие базы)
 DROP TABLE IF EXISTS grades;
 DROP TABLE IF EXISTS students;
+DROP TABLE IF EXISTS schema_version;
+
+-- версия схемы: увеличивайте при каждом изменении таблиц или индексов и добавляйте строку ниже
+CREATE TABLE schema_version (
+    version INT PRIMARY KEY,
+    description VARCHAR(255) NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+INSERT INTO schema_version (version, description) VALUES (1, 'students and grades tables');
+INSERT INTO schema_version (version, description) VALUES (2, 'composite indexes for grade lookups and student name search');
+INSERT INTO schema_version (version, description) VALUES (3, 'row version columns for optimistic updates');
+INSERT INTO schema_version (version, description) VALUES (4, 'external student keys for CSV import');
+INSERT INTO schema_version (version, description) VALUES (5, 'soft delete of students with background grade purge');
 
 -- students
 CREATE TABLE students (
     id INT AUTO_INCREMENT PRIMARY KEY,
     first_name VARCHAR(255) NOT NULL,
     last_name VARCHAR(255) NOT NULL,
-    group_name VARCHAR(255) NOT NULL
+    group_name VARCHAR(255) NOT NULL,
+    -- растет при каждом UPDATE; PUT с version обновляет строку, только если ее никто не успел изменить
+    version INT NOT NULL DEFAULT 0,
+    -- ключ студента во внешней системе (из CSV-импорта), по нему импорт оценок находит сгенерированный ID
+    external_key VARCHAR(64) NULL,
+    UNIQUE INDEX ux_students_external_key (external_key),
+    -- время удаления: удаленный студент скрыт сразу, а его оценки и сама строка вычищаются в фоне
+    deleted_at TIMESTAMP NULL,
+    INDEX idx_students_deleted (deleted_at),
+    -- поиск по началу фамилии/имени и ORDER BY last_name, first_name без filesort
+    INDEX idx_students_last_first (last_name, first_name),
+    INDEX idx_students_first_last (first_name, last_name),
+    -- список группы, отсортированный по фамилии
+    INDEX idx_students_group_last (group_name, last_name)
 );
 
 -- grades
@@ -17,6 +43,11 @@ CREATE TABLE grades (
     subject VARCHAR(255) NOT NULL,
     score INT NOT NULL,
     grade_date DATE NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    -- оценки студента (и за период); score в конце, чтобы статистика считалась только по индексу
+    INDEX idx_grades_student_date (student_id, grade_date, score),
+    -- оценки по предмету за период
+    INDEX idx_grades_subject_date (subject, grade_date, score),
     FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
 );
 
@@ -0,0 +1,248 @@
+package com.example.student_management.benchmark;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Сравнение запросов StudentDAO/GradeDAO до и после составных индексов из schema.sql (версия 2).
+ * <p>
+ * Это не тест (в mvn test не запускается), а отдельная программа. Она создает в указанной базе таблицы
+ * bench_students и bench_grades, заполняет их (по умолчанию 1M студентов и 20M оценок), гоняет запросы
+ * на схеме как в версии 1 (только PK и FK), потом добавляет индексы версии 2 и гоняет те же запросы снова.
+ * Для каждого запроса печатается медиана, p95 и какой индекс выбрал MySQL (EXPLAIN).
+ * <p>
+ * Запуск (только на отдельной, не рабочей базе!):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:$(cat target/cp.txt) \
+ *      -Dbench.url="jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true" \
+ *      -Dbench.user=root -Dbench.password=... \
+ *      com.example.student_management.benchmark.IndexBenchmark
+ * </pre>
+ * Размер данных меняется через -Dbench.students, -Dbench.grades и -Dbench.iterations.
+ * Если таблицы уже заполнены нужным количеством строк, заполнение пропускается (-Dbench.reseed=true - заново).
+ */
+public class IndexBenchmark {
+
+	private static final String[] FIRST_NAMES = {"Айдар", "Алия", "Дархан", "Жанна", "Ерлан", "Қуаныш", "Әсел", "Нұрлан",
+			"Ivan", "Maria", "John", "Anna", "Dinmukhamed", "Tauasar", "Мадра", "Қақащи"};
+	private static final String[] LAST_NAME_PARTS = {"Ахмет", "Серік", "Жұмабай", "Иван", "Петр", "Смирн", "Aqtay", "Akniet",
+			"Kuz", "Nur", "Бек", "Сұлтан", "Минат", "Щесу", "Orm", "Tal"};
+	private static final String[] LAST_NAME_ENDINGS = {"ов", "ова", "ұлы", "қызы", "ev", "eva", "bek", "uly", "", "ин"};
+	private static final String[] SUBJECTS = {"Математика", "Физика", "История", "Химия", "Биология", "Информатика",
+			"Английский язык", "Казахский язык", "Литература", "География", "Экономика", "Философия"};
+
+	private static final int GROUPS = 200;
+	private static final int INSERT_CHUNK = 5000;
+
+	public static void main(String[] args) throws Exception {
+		String url = System.getProperty("bench.url");
+		if (url == null) {
+			System.err.println("Set -Dbench.url=jdbc:mysql://.../scratch_db (see class javadoc).");
+			System.exit(1);
+		}
+		int students = Integer.getInteger("bench.students", 1_000_000);
+		int grades = Integer.getInteger("bench.grades", 20_000_000);
+		int iterations = Integer.getInteger("bench.iterations", 20);
+		boolean reseed = Boolean.getBoolean("bench.reseed");
+
+		try (Connection conn = DriverManager.getConnection(url,
+				System.getProperty("bench.user", "root"), System.getProperty("bench.password", ""))) {
+			if (reseed || count(conn, "bench_students") != students || count(conn, "bench_grades") != grades) {
+				createTablesV1(conn);
+				seed(conn, students, grades);
+			} else {
+				dropIndexesV2(conn);
+			}
+
+			List<Query> queries = queries(students);
+			System.out.printf("%n=== schema v1: PK + FK only (%,d students, %,d grades) ===%n", students, grades);
+			run(conn, queries, iterations);
+
+			long start = System.nanoTime();
+			addIndexesV2(conn);
+			System.out.printf("%n(indexes v2 built in %.1f s)%n", (System.nanoTime() - start) / 1e9);
+
+			System.out.printf("%n=== schema v2: composite indexes ===%n");
+			run(conn, queries, iterations);
+		}
+	}
+
+	private record Query(String name, String sql, Object... params) {
+	}
+
+	private static List<Query> queries(int students) {
+		Random random = new Random(42);
+		int studentId = 1 + random.nextInt(students);
+		String group = groupName(random.nextInt(GROUPS));
+		return List.of(
+				new Query("GradeDAO.findGradesByStudentId",
+						"SELECT id, student_id, subject, score, grade_date FROM bench_grades WHERE student_id = ? ORDER BY grade_date",
+						studentId),
+				new Query("grades by subject + date range (score distribution)",
+						"SELECT score, COUNT(*) FROM bench_grades WHERE subject = ? AND grade_date BETWEEN ? AND ? GROUP BY score",
+						"Физика", Date.valueOf(LocalDate.of(2024, 3, 1)), Date.valueOf(LocalDate.of(2024, 3, 31))),
+				new Query("StudentDAO.findAll lastName prefix, sort by lastName",
+						"SELECT id, first_name, last_name, group_name FROM bench_students WHERE last_name LIKE ? "
+								+ "ORDER BY last_name ASC, first_name ASC",
+						"Жұмабайұ%"),
+				new Query("StudentDAO.findAll lastName contains (cannot use index)",
+						"SELECT id, first_name, last_name, group_name FROM bench_students WHERE last_name LIKE ? "
+								+ "ORDER BY last_name ASC, first_name ASC",
+						"%абайұ%"),
+				new Query("StudentDAO.findAll sort by lastName, first page",
+						"SELECT id, first_name, last_name, group_name FROM bench_students ORDER BY last_name ASC, first_name ASC LIMIT 50"),
+				new Query("students of one group ordered by last name",
+						"SELECT id, first_name, last_name, group_name FROM bench_students WHERE group_name = ? ORDER BY last_name",
+						group)
+		);
+	}
+
+	private static void run(Connection conn, List<Query> queries, int iterations) throws SQLException {
+		System.out.printf("%-55s %12s %12s %8s  %s%n", "query", "median ms", "p95 ms", "rows", "EXPLAIN key");
+		for (Query query : queries) {
+			long[] nanos = new long[iterations];
+			int rows = 0;
+			for (int i = 0; i < iterations; i++) {
+				long start = System.nanoTime();
+				rows = execute(conn, query);
+				nanos[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(nanos);
+			System.out.printf("%-55s %12.2f %12.2f %8d  %s%n", query.name,
+					nanos[iterations / 2] / 1e6, nanos[(int) Math.min(iterations - 1, Math.ceil(iterations * 0.95) - 1)] / 1e6,
+					rows, explainKey(conn, query));
+		}
+	}
+
+	private static int execute(Connection conn, Query query) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement(query.sql)) {
+			bind(ps, query.params);
+			int rows = 0;
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					rows++;
+				}
+			}
+			return rows;
+		}
+	}
+
+	private static String explainKey(Connection conn, Query query) throws SQLException {
+		try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + query.sql)) {
+			bind(ps, query.params);
+			try (ResultSet rs = ps.executeQuery()) {
+				List<String> parts = new ArrayList<>();
+				while (rs.next()) {
+					parts.add(rs.getString("type") + "/" + rs.getString("key") + " " + rs.getString("Extra"));
+				}
+				return String.join("; ", parts);
+			}
+		}
+	}
+
+	private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+		for (int i = 0; i < params.length; i++) {
+			ps.setObject(i + 1, params[i]);
+		}
+	}
+
+	private static long count(Connection conn, String table) {
+		try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			rs.next();
+			return rs.getLong(1);
+		} catch (SQLException e) {
+			return -1; // таблицы еще нет
+		}
+	}
+
+	/** Схема как в schema.sql версии 1: только PK и FK (для FK MySQL сам создает индекс по student_id). */
+	private static void createTablesV1(Connection conn) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP TABLE IF EXISTS bench_grades");
+			st.execute("DROP TABLE IF EXISTS bench_students");
+			st.execute("CREATE TABLE bench_students (id INT AUTO_INCREMENT PRIMARY KEY, first_name VARCHAR(255) NOT NULL, "
+					+ "last_name VARCHAR(255) NOT NULL, group_name VARCHAR(255) NOT NULL)");
+			st.execute("CREATE TABLE bench_grades (id INT AUTO_INCREMENT PRIMARY KEY, student_id INT NOT NULL, "
+					+ "subject VARCHAR(255) NOT NULL, score INT NOT NULL, grade_date DATE NOT NULL, "
+					+ "FOREIGN KEY (student_id) REFERENCES bench_students(id) ON DELETE CASCADE)");
+		}
+	}
+
+	/** Те же индексы, что в schema.sql версии 2. */
+	private static void addIndexesV2(Connection conn) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			st.execute("ALTER TABLE bench_students ADD INDEX idx_students_last_first (last_name, first_name), "
+					+ "ADD INDEX idx_students_first_last (first_name, last_name), "
+					+ "ADD INDEX idx_students_group_last (group_name, last_name)");
+			st.execute("ALTER TABLE bench_grades ADD INDEX idx_grades_student_date (student_id, grade_date, score), "
+					+ "ADD INDEX idx_grades_subject_date (subject, grade_date, score)");
+			st.execute("ANALYZE TABLE bench_students, bench_grades");
+		}
+	}
+
+	private static void dropIndexesV2(Connection conn) throws SQLException {
+		try (Statement st = conn.createStatement()) {
+			for (String sql : new String[]{
+					"ALTER TABLE bench_students DROP INDEX idx_students_last_first, DROP INDEX idx_students_first_last, "
+							+ "DROP INDEX idx_students_group_last",
+					"ALTER TABLE bench_grades DROP INDEX idx_grades_subject_date",
+					// индекс для FK нельзя удалить, пока нет другого, поэтому сначала создаем обычный по student_id
+					"ALTER TABLE bench_grades ADD INDEX student_id (student_id), DROP INDEX idx_grades_student_date"}) {
+				try {
+					st.execute(sql);
+				} catch (SQLException e) {
+					// индексов еще нет - это нормально
+				}
+			}
+		}
+	}
+
+	private static void seed(Connection conn, int students, int grades) throws SQLException {
+		Random random = new Random(7);
+		conn.setAutoCommit(false);
+		long start = System.nanoTime();
+		try (PreparedStatement ps = conn.prepareStatement(
+				"INSERT INTO bench_students (first_name, last_name, group_name) VALUES (?, ?, ?)")) {
+			for (int i = 1; i <= students; i++) {
+				ps.setString(1, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+				ps.setString(2, LAST_NAME_PARTS[random.nextInt(LAST_NAME_PARTS.length)]
+						+ LAST_NAME_ENDINGS[random.nextInt(LAST_NAME_ENDINGS.length)] + (char) ('а' + random.nextInt(32)));
+				ps.setString(3, groupName(random.nextInt(GROUPS)));
+				ps.addBatch();
+				if (i % INSERT_CHUNK == 0 || i == students) {
+					ps.executeBatch();
+					conn.commit();
+				}
+			}
+		}
+		System.out.printf("seeded %,d students in %.1f s%n", students, (System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		LocalDate firstDay = LocalDate.of(2023, 9, 1);
+		try (PreparedStatement ps = conn.prepareStatement(
+				"INSERT INTO bench_grades (student_id, subject, score, grade_date) VALUES (?, ?, ?, ?)")) {
+			for (int i = 1; i <= grades; i++) {
+				ps.setInt(1, 1 + random.nextInt(students));
+				ps.setString(2, SUBJECTS[random.nextInt(SUBJECTS.length)]);
+				ps.setInt(3, random.nextInt(101));
+				ps.setDate(4, Date.valueOf(firstDay.plusDays(random.nextInt(730))));
+				ps.addBatch();
+				if (i % INSERT_CHUNK == 0 || i == grades) {
+					ps.executeBatch();
+					conn.commit();
+				}
+			}
+		}
+		conn.setAutoCommit(true);
+		System.out.printf("seeded %,d grades in %.1f s%n", grades, (System.nanoTime() - start) / 1e9);
+	}
+
+	private static String groupName(int index) {
+		return String.format("%02d-%02d", 20 + index / 50, index % 50 + 1);
+	}
+}
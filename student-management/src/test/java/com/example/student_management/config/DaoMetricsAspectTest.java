@@ -0,0 +1,25 @@
+package com.example.student_management.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaoMetricsAspectTest {
+
+	/**
+	 * В лог медленных вызовов попадают типы и размеры, но не значения аргументов.
+	 */
+	@Test
+	void describesArgsWithoutValues() {
+		Consumer<String> consumer = value -> { };
+		String args = DaoMetricsAspect.describeArgs(new Object[]{
+				List.of("Мадра", "Щесуи"), 42, null, LocalDate.of(2025, 9, 1), new int[3], consumer});
+
+		assertEquals("List[2], Integer, null, LocalDate, int[3], Consumer", args);
+		assertFalse(args.contains("Мадра"));
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.student_management.config;
+
+import com.example.student_management.dao.ChangeVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpCachingTest {
+
+	/** Время в тестах стоит на месте: 250 мс от начала секунды. */
+	private static final Instant NOW = Instant.parse("2026-09-01T10:00:00.250Z");
+
+	private final ChangeVersions versions = new ChangeVersions();
+	private final HttpCaching caching = new HttpCaching(new MockEnvironment()
+			.withProperty("http.cache-control.students", "private, max-age=5")
+			.withProperty("http.cache-control.grades", ""), Clock.fixed(NOW, ZoneOffset.UTC));
+
+	private static ServletWebRequest request(String header, String value) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/students");
+		if (header != null) {
+			request.addHeader(header, value);
+		}
+		return new ServletWebRequest(request);
+	}
+
+	/**
+	 * ETag совпадает, пока таблица не менялась, и перестает совпадать после записи.
+	 */
+	@Test
+	void etagMatchesUntilTableChanges() {
+		ChangeVersions.Validator before = versions.students();
+		assertTrue(caching.isNotModified(request(HttpHeaders.IF_NONE_MATCH, before.etag()), before));
+		assertTrue(caching.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + before.etag()), before));
+		assertFalse(caching.isNotModified(request(null, null), before));
+
+		versions.gradesChanged(1);
+		assertEquals(before, versions.students(), "Grade writes must not invalidate student lists.");
+
+		versions.studentsChanged();
+		ChangeVersions.Validator after = versions.students();
+		assertNotEquals(before.etag(), after.etag());
+		assertFalse(caching.isNotModified(request(HttpHeaders.IF_NONE_MATCH, before.etag()), after));
+	}
+
+	/**
+	 * Версия оценок студента меняется только от его оценок и от изменений "неизвестно чьих" оценок.
+	 */
+	@Test
+	void studentGradesVersionIsPerStudent() {
+		ChangeVersions.Validator first = versions.studentGrades(1);
+		ChangeVersions.Validator second = versions.studentGrades(2);
+
+		versions.gradesChanged(2);
+		assertEquals(first, versions.studentGrades(1));
+		assertNotEquals(second.etag(), versions.studentGrades(2).etag());
+
+		versions.gradesChangedForAll();
+		assertNotEquals(first.etag(), versions.studentGrades(1).etag());
+	}
+
+	/**
+	 * If-Modified-Since сравнивается с точностью до секунды и не смотрится, если есть If-None-Match.
+	 */
+	@Test
+	void fallsBackToIfModifiedSince() {
+		ChangeVersions.Validator version = new ChangeVersions.Validator("\"s0\"", NOW.toEpochMilli() - 60_000);
+		String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME
+				.format(Instant.ofEpochMilli(version.lastModified()).atOffset(ZoneOffset.UTC));
+
+		assertTrue(caching.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, lastModified), version));
+		assertFalse(caching.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 01 Jan 1970 00:00:00 GMT"), version));
+		assertFalse(caching.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, "вчера"), version));
+
+		MockHttpServletRequest both = new MockHttpServletRequest("GET", "/api/students");
+		both.addHeader(HttpHeaders.IF_NONE_MATCH, "\"stale\"");
+		both.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		assertFalse(caching.isNotModified(new ServletWebRequest(both), version));
+	}
+
+	/**
+	 * Изменение в ту же секунду, что и прошлый ответ: If-Modified-Since не дает 304 на устаревшие данные,
+	 * а Last-Modified не отправляется, пока секунда не закончилась.
+	 */
+	@Test
+	void ignoresLastModifiedWithinCurrentSecond() {
+		ChangeVersions.Validator served = new ChangeVersions.Validator("\"s1\"", NOW.toEpochMilli() - 200);
+		String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(NOW.atOffset(ZoneOffset.UTC));
+		assertEquals(-1, caching.ok("students", served).build().getHeaders().getLastModified());
+
+		ChangeVersions.Validator changed = new ChangeVersions.Validator("\"s2\"", NOW.toEpochMilli());
+		assertFalse(caching.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, lastModified), changed));
+
+		ChangeVersions.Validator previousSecond = new ChangeVersions.Validator("\"s0\"", NOW.toEpochMilli() - 251);
+		assertEquals(previousSecond.lastModified() / 1000 * 1000,
+				caching.ok("students", previousSecond).build().getHeaders().getLastModified());
+	}
+
+	/**
+	 * Cache-Control берется из свойства эндпоинта, без него - значение по умолчанию, пустое - без заголовка.
+	 */
+	@Test
+	void appliesCacheControlPerEndpoint() {
+		ChangeVersions.Validator version = versions.students();
+		ResponseEntity<Void> notModified = caching.notModified("students", version);
+		assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+		assertEquals(version.etag(), notModified.getHeaders().getETag());
+		assertEquals("private, max-age=5", notModified.getHeaders().getCacheControl());
+
+		assertEquals("no-cache", caching.ok("student", version).build().getHeaders().getCacheControl());
+		assertNull(caching.ok("grades", version).build().getHeaders().getCacheControl());
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.student_management.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeletedStudentsTest {
+
+	/**
+	 * Пока удаленных студентов нет, к запросу ничего не добавляется; условие не зависит от самих ID,
+	 * после очистки оно снова пустое.
+	 */
+	@Test
+	void buildsStableExclusion() {
+		DeletedStudents deleted = new DeletedStudents();
+		assertEquals("", deleted.exclusion("g.student_id"));
+
+		deleted.add(3);
+		String exclusion = deleted.exclusion("g.student_id");
+		assertEquals(" AND NOT EXISTS (SELECT 1 FROM students ds WHERE ds.id = g.student_id AND ds.deleted_at IS NOT NULL)",
+				exclusion);
+		deleted.addAll(List.of(7, 9));
+		assertTrue(deleted.contains(7));
+		assertEquals(exclusion, deleted.exclusion("g.student_id"));
+
+		deleted.remove(3);
+		deleted.remove(7);
+		deleted.remove(9);
+		assertEquals(0, deleted.size());
+		assertEquals("", deleted.exclusion("student_id"));
+	}
+
+	/**
+	 * Обновление памяти после вставки пропускается, если студента уже удалили.
+	 */
+	@Test
+	void skipsInMemoryUpdatesOfDeletedStudents() {
+		DeletedStudents deleted = new DeletedStudents();
+		AtomicInteger applied = new AtomicInteger();
+		assertTrue(deleted.applyUnlessDeleted(1, applied::incrementAndGet));
+
+		deleted.add(1);
+		assertFalse(deleted.applyUnlessDeleted(1, applied::incrementAndGet));
+		assertEquals(1, applied.get());
+	}
+
+	/**
+	 * Обновление идет без блокировки: вставки других студентов его не ждут, а удаление того же студента
+	 * возвращается только после него.
+	 */
+	@Test
+	void deletionWaitsOnlyForUpdatesOfSameStudent() throws Exception {
+		DeletedStudents deleted = new DeletedStudents();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Boolean> slow = CompletableFuture.supplyAsync(() -> deleted.applyUnlessDeleted(1, () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertTrue(deleted.applyUnlessDeleted(2, () -> { }));
+		deleted.add(2);
+		CompletableFuture<Void> deletion = CompletableFuture.runAsync(() -> deleted.add(1));
+		assertThrows(TimeoutException.class, () -> deletion.get(100, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		deletion.get(5, TimeUnit.SECONDS);
+		assertTrue(slow.get());
+		assertFalse(deleted.applyUnlessDeleted(1, () -> { }));
+	}
+}
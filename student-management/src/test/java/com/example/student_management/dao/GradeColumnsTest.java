@@ -0,0 +1,130 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.Students;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeColumnsTest {
+
+	private final List<Students> students = new ArrayList<>();
+	private final List<Grades> grades = new ArrayList<>();
+
+	private GradeColumns columns;
+
+	@BeforeEach
+	void setUp() {
+		students.add(new Students(1, "The", "Rock", "22-02"));
+		students.add(new Students(2, "Мадра", "Щесуи", "22-01"));
+		grades.add(new Grades(1, 1, "Математика", 95, LocalDate.of(2025, 6, 1)));
+		grades.add(new Grades(2, 1, "Математика", 60, LocalDate.of(2025, 9, 1)));
+		grades.add(new Grades(3, 1, "Физика", 88, LocalDate.of(2025, 9, 2)));
+		grades.add(new Grades(4, 2, "Математика", 70, LocalDate.of(2025, 9, 3)));
+
+		columns = new GradeColumns(true);
+		columns.rebuild(students::forEach, grades::forEach);
+	}
+
+	/**
+	 * Фильтр по периоду и предмету, группировка по группам.
+	 */
+	@Test
+	void filtersByPeriodAndGroupsByKey() {
+		LocalDate from = LocalDate.of(2025, 9, 1);
+		long[] math = columns.distribution(null, null, "Математика", from, null);
+		assertEquals(1, math[60]);
+		assertEquals(1, math[70]);
+		assertEquals(0, math[95], "Grade before the period must be skipped.");
+
+		Map<String, long[]> byGroup = columns.distributionsBy(GradeStatisticsDAO.Dimension.GROUP,
+				null, null, null, from, null);
+		assertEquals(2, byGroup.size());
+		assertEquals(1, byGroup.get("22-02")[88]);
+		assertEquals(1, byGroup.get("22-01")[70]);
+		assertEquals(0, columns.distribution(null, "нет такой группы", null, null, null)[70]);
+	}
+
+	/**
+	 * Изменение, удаление оценки и перевод студента в другую группу видны в следующих запросах.
+	 */
+	@Test
+	void appliesWrites() {
+		columns.gradeSaved(new Grades(2, 2, "Физика", 50, LocalDate.of(2025, 9, 1)));
+		columns.gradeRemoved(3);
+		columns.studentSaved(new Students(2, "Мадра", "Щесуи", "22-02"));
+
+		Map<String, long[]> bySubject = columns.distributionsBy(GradeStatisticsDAO.Dimension.SUBJECT,
+				null, "22-02", null, null, null);
+		assertEquals(1, bySubject.get("Физика")[50]);
+		assertEquals(0, bySubject.get("Физика")[88], "Removed grade must not be counted.");
+		assertEquals(1, bySubject.get("Математика")[70]);
+		assertEquals(0, columns.distribution(null, "22-01", null, null, null)[70]);
+
+		GradeColumns.Stats stats = columns.stats();
+		assertTrue(stats.ready());
+		assertEquals(3, stats.rows());
+		assertTrue(stats.bytes() > 0);
+	}
+
+	/**
+	 * Изменения применяются после commit и могут прийти не по порядку: старая версия не затирает новую,
+	 * а удаленная оценка не возвращается.
+	 */
+	@Test
+	void ignoresStaleChanges() {
+		Grades newer = new Grades(4, 2, "Математика", 80, LocalDate.of(2025, 9, 3));
+		newer.setVersion(2);
+		Grades older = new Grades(4, 2, "Математика", 75, LocalDate.of(2025, 9, 3));
+		older.setVersion(1);
+		columns.gradeSaved(newer);
+		columns.gradeSaved(older);
+		long[] math = columns.distribution(2, null, "Математика", null, null);
+		assertEquals(1, math[80]);
+		assertEquals(0, math[75]);
+
+		columns.gradeRemoved(4);
+		Grades late = new Grades(4, 2, "Математика", 85, LocalDate.of(2025, 9, 3));
+		late.setVersion(3);
+		columns.gradeSaved(late);
+		assertEquals(0, columns.distribution(2, null, null, null, null)[85]);
+	}
+
+	/**
+	 * Параллельный подсчет итогов совпадает с последовательным, отмененный отчет не возвращает неполных итогов.
+	 */
+	@Test
+	void aggregatesInParallelLikeSerially() {
+		for (int id = 5; id < 5 + 3 * GradeColumns.MIN_CHUNK_ROWS; id++) {
+			columns.gradeSaved(new Grades(id, 1 + id % 2, id % 3 == 0 ? "Физика" : "Математика", id % 101,
+					LocalDate.of(2025, 9, 1)));
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			GradeColumns.Totals serial = columns.aggregate(null, null, 50, null, new AtomicBoolean());
+			GradeColumns.Totals parallel = columns.aggregate(null, null, 50, pool, new AtomicBoolean());
+			for (int g = 0; g < serial.groups().size(); g++) {
+				for (int s = 0; s < serial.subjects().size(); s++) {
+					assertEquals(serial.cell(g, s), parallel.cell(g, s));
+				}
+			}
+			int math = serial.subjects().indexOf("Математика");
+			int group = serial.groups().indexOf("22-02");
+			assertTrue(serial.cell(group, math).passed() > 0);
+
+			assertThrows(CancellationException.class,
+					() -> columns.aggregate(null, null, 50, pool, new AtomicBoolean(true)));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Grades;
+import com.example.student_management.model.RollupCheck;
+import com.example.student_management.model.Students;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeRollupsTest {
+
+	/** "База" для rebuild/check: агрегаты должны совпадать с пересчетом по этим спискам. */
+	private final List<Students> students = new ArrayList<>();
+	private final List<Grades> grades = new ArrayList<>();
+
+	private GradeRollups rollups;
+
+	@BeforeEach
+	void setUp() {
+		students.add(new Students(1, "The", "Rock", "22-02"));
+		students.add(new Students(2, "Мадра", "Щесуи", "22-01"));
+		grades.add(grade(1, 1, "Математика", 95));
+		grades.add(grade(2, 1, "Математика", 60));
+		grades.add(grade(3, 1, "Физика", 88));
+		grades.add(grade(4, 2, "Математика", 70));
+
+		rollups = new GradeRollups(true);
+		rollups.rebuild(students::forEach, grades::forEach);
+	}
+
+	private static Grades grade(int id, int studentId, String subject, int score) {
+		return new Grades(id, studentId, subject, score, LocalDate.of(2025, 6, 1));
+	}
+
+	private RollupCheck check() {
+		return rollups.check(students::forEach, grades::forEach, 10);
+	}
+
+	/**
+	 * Суммы и минимум/максимум после rebuild, в том числе после удаления оценки с минимальным баллом.
+	 */
+	@Test
+	void keepsMinAndMaxAfterRemovingExtremes() {
+		GradeRollups.Rollup student = rollups.student(1);
+		assertEquals(3, student.getCount());
+		assertEquals(95 + 60 + 88, student.getSum());
+		assertEquals(95 * 95 + 60 * 60 + 88 * 88, student.getSumSquares());
+		assertEquals(60, student.getMin());
+		assertEquals(95, student.getMax());
+
+		Grades removed = grades.remove(1);
+		rollups.gradeRemoved(removed);
+
+		assertEquals(88, rollups.student(1).getMin(), "Min must fall back to the next lowest score.");
+		assertEquals(95, rollups.studentSubjects(1).get("Математика").getMin());
+		assertEquals(0, check().getMismatchCount());
+	}
+
+	/**
+	 * Изменение оценки переносит ее между предметами, а смена группы студента - между группами.
+	 */
+	@Test
+	void movesGradesBetweenSubjectsAndGroups() {
+		Grades old = grades.get(3);
+		Grades updated = grade(4, 2, "Физика", 75);
+		grades.set(3, updated);
+		rollups.gradeChanged(old, updated);
+
+		assertFalse(rollups.studentSubjects(2).containsKey("Математика"));
+		assertEquals(75, rollups.groupSubjects("22-01").get("Физика").getMax());
+
+		Students moved = new Students(2, "Мадра", "Щесуи", "22-02");
+		students.set(1, moved);
+		rollups.studentSaved(moved);
+
+		assertTrue(rollups.groupSubjects("22-01").isEmpty());
+		assertEquals(2, rollups.groupSubjects("22-02").get("Физика").getCount());
+		assertEquals(4, rollups.group("22-02").getCount());
+		assertEquals(0, check().getMismatchCount());
+	}
+
+	/**
+	 * Удаление студента убирает его оценки из агрегатов группы и предметов.
+	 */
+	@Test
+	void removesStudentWithCascade() {
+		students.remove(0);
+		grades.removeIf(g -> g.getStudentId() == 1);
+		rollups.studentRemoved(1);
+
+		assertEquals(0, rollups.student(1).getCount());
+		assertTrue(rollups.groupSubjects("22-02").isEmpty());
+		assertEquals(1, rollups.subject("Математика").getCount());
+		assertEquals(0, check().getMismatchCount());
+	}
+
+	/**
+	 * Рейтинги пересчитываются на записи: по предмету внутри группы и после перевода студента в другую группу.
+	 */
+	@Test
+	void keepsRankingsInOrder() {
+		RankIndex.Slice math = rollups.top(null, "Математика", 10);
+		assertEquals(2, math.total());
+		assertEquals(1, math.entries().get(0).studentId());
+		assertEquals(77.5, math.entries().get(0).average());
+
+		Grades old = grades.get(3);
+		Grades updated = grade(4, 2, "Математика", 100);
+		grades.set(3, updated);
+		rollups.gradeChanged(old, updated);
+
+		assertEquals(1, rollups.rankOf(null, "Математика", 2).entries().get(0).rank());
+		RankIndex.Slice notInGroup = rollups.rankOf("22-02", "Математика", 2);
+		assertEquals(1, notInGroup.total());
+		assertTrue(notInGroup.entries().isEmpty());
+
+		Students moved = new Students(2, "Мадра", "Щесуи", "22-02");
+		students.set(1, moved);
+		rollups.studentSaved(moved);
+
+		RankIndex.Slice group = rollups.top("22-02", null, 10);
+		assertEquals(2, group.total());
+		assertEquals(2, group.entries().get(0).studentId());
+		assertEquals(0, rollups.top("22-01", null, 10).total());
+		assertEquals(0, check().getMismatchCount());
+	}
+
+	/**
+	 * Проверка находит изменения, которые прошли мимо DAO, а rebuild их исправляет.
+	 */
+	@Test
+	void checkReportsDriftAndRebuildFixesIt() {
+		grades.add(grade(5, 2, "Физика", 50)); // "вставили в базу руками"
+
+		RollupCheck drift = check();
+		assertTrue(drift.getMismatchCount() > 0);
+		assertFalse(drift.getMismatches().isEmpty());
+
+		rollups.rebuild(students::forEach, grades::forEach);
+		assertEquals(0, check().getMismatchCount());
+	}
+}
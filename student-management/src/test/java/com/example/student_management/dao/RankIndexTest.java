@@ -0,0 +1,78 @@
+package com.example.student_management.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankIndexTest {
+
+	private static List<Integer> ids(List<RankIndex.Entry> entries) {
+		return entries.stream().map(RankIndex.Entry::studentId).toList();
+	}
+
+	/**
+	 * Порядок по среднему по убыванию, при равенстве - по ID; место считается с 1.
+	 */
+	@Test
+	void ordersByAverageThenById() {
+		RankIndex index = new RankIndex();
+		index.put(5, 80.0, 2);
+		index.put(3, 90.0, 1);
+		index.put(9, 80.0, 4);
+		index.put(1, 80.0, 1);
+
+		assertEquals(List.of(3, 1, 5, 9), ids(index.top(10)));
+		assertEquals(List.of(3, 1), ids(index.top(2)));
+		assertEquals(new RankIndex.Entry(3, 5, 80.0, 2), index.find(5));
+		assertNull(index.find(42));
+	}
+
+	/**
+	 * Изменение среднего переставляет студента, удаление сдвигает места остальных.
+	 */
+	@Test
+	void movesAndRemovesStudents() {
+		RankIndex index = new RankIndex();
+		for (int id = 1; id <= 20; id++) {
+			index.put(id, id, 1);
+		}
+		assertEquals(1, index.find(20).rank());
+
+		index.put(20, 0.5, 2);
+		assertEquals(20, index.find(20).rank());
+		assertEquals(2, index.find(20).count());
+		assertEquals(1, index.find(19).rank());
+
+		index.remove(19);
+		index.remove(19);
+		assertEquals(19, index.size());
+		assertEquals(1, index.find(18).rank());
+		assertEquals(19, index.find(20).rank());
+	}
+
+	/**
+	 * Перестановки в обе стороны дают тот же порядок, что и полная сортировка.
+	 */
+	@Test
+	void movesMatchFullSort() {
+		RankIndex index = new RankIndex();
+		Map<Integer, Double> averages = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			int id = random.nextInt(300);
+			double average = random.nextInt(20) * 5.0;
+			index.put(id, average, 1);
+			averages.put(id, average);
+		}
+		List<Integer> expected = averages.keySet().stream()
+				.sorted(Comparator.comparing((Integer id) -> -averages.get(id)).thenComparing(id -> id))
+				.toList();
+		assertEquals(expected, ids(index.top(Integer.MAX_VALUE)));
+	}
+}
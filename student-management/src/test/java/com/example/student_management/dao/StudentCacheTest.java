@@ -0,0 +1,84 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCacheTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private StudentCache newCache(int maxSize) {
+		return new StudentCache(maxSize, Duration.ofSeconds(10), now::get);
+	}
+
+	private static Students student(int id, String lastName) {
+		return new Students(id, "Имя", lastName, "22-02");
+	}
+
+	/**
+	 * Попадание, промах и то, что наружу отдается копия, а не сам закэшированный объект.
+	 */
+	@Test
+	void returnsCopiesAndCountsHitsAndMisses() {
+		StudentCache cache = newCache(10);
+		assertTrue(cache.get(1).isEmpty());
+
+		cache.put(student(1, "Минато"), cache.generation());
+		Optional<Students> first = cache.get(1);
+		assertTrue(first.isPresent());
+		first.get().setLastName("Испорчено");
+
+		assertEquals("Минато", cache.get(1).get().getLastName(), "Cache must not share mutable instances.");
+		assertEquals(2, cache.stats().getHits());
+		assertEquals(1, cache.stats().getMisses());
+	}
+
+	/**
+	 * При переполнении вытесняется давно не читанный студент.
+	 */
+	@Test
+	void evictsLeastRecentlyUsed() {
+		StudentCache cache = newCache(2);
+		cache.put(student(1, "A"), cache.generation());
+		cache.put(student(2, "B"), cache.generation());
+		cache.get(1);
+		cache.put(student(3, "C"), cache.generation());
+
+		assertTrue(cache.get(1).isPresent());
+		assertTrue(cache.get(2).isEmpty(), "Student 2 was least recently used and should be evicted.");
+		assertTrue(cache.get(3).isPresent());
+		assertEquals(1, cache.stats().getEvictions());
+	}
+
+	/**
+	 * Запись пропадает после TTL.
+	 */
+	@Test
+	void expiresAfterTtl() {
+		StudentCache cache = newCache(10);
+		cache.put(student(1, "A"), cache.generation());
+
+		now.addAndGet(Duration.ofSeconds(11).toNanos());
+		assertTrue(cache.get(1).isEmpty());
+		assertEquals(1, cache.stats().getExpirations());
+	}
+
+	/**
+	 * Значение, прочитанное из базы до инвалидации, не должно попасть в кэш.
+	 */
+	@Test
+	void rejectsValueReadBeforeInvalidation() {
+		StudentCache cache = newCache(10);
+		long readGeneration = cache.generation();
+		cache.invalidate(1);
+		cache.put(student(1, "Старая"), readGeneration);
+
+		assertTrue(cache.get(1).isEmpty());
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentGroupIndexTest {
+
+	/**
+	 * Перевод студента между группами и удаление последнего студента группы.
+	 */
+	@Test
+	void keepsGroupsInSyncWithWrites() {
+		StudentGroupIndex index = new StudentGroupIndex();
+		index.rebuild(List.of(
+				new Students(3, "The", "Rock", "22-02"),
+				new Students(1, "Мадра", "Щесуи", "22-01"),
+				new Students(2, "Tauasar", "Akniet", "22-02"))::forEach);
+		assertTrue(index.isReady());
+		assertEquals(Map.of("22-01", 1, "22-02", 2), index.counts());
+		assertEquals(List.of(2, 3), index.studentIds("22-02"));
+
+		index.put(new Students(1, "Мадра", "Щесуи", "22-02"));
+		assertEquals(List.of(1, 2, 3), index.studentIds("22-02"));
+		assertEquals(0, index.count("22-01"));
+		assertFalse(index.counts().containsKey("22-01"), "Empty group must disappear.");
+
+		index.remove(2);
+		assertEquals(List.of(1, 3), index.studentIds("22-02"));
+		assertTrue(index.studentIds("нет такой").isEmpty());
+	}
+}
@@ -0,0 +1,49 @@
+package com.example.student_management.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentQueriesTest {
+
+	/**
+	 * Одинаковые запросы дают один и тот же текст, неизвестная сортировка сводится к сортировке по id.
+	 */
+	@Test
+	void returnsCanonicalSql() {
+		assertSame(StudentQueries.findAll(true, false, "lastName", "desc"),
+				StudentQueries.findAll(true, false, "LASTNAME", "DESC"));
+		assertSame(StudentQueries.findAll(false, false, null, null),
+				StudentQueries.findAll(false, false, "id; DROP TABLE students", "sideways"));
+		assertEquals("SELECT id, first_name, last_name, group_name, version FROM students WHERE deleted_at IS NULL"
+						+ " AND last_name LIKE ? AND first_name LIKE ? AND (last_name, first_name, id) < (?, ?, ?)"
+						+ " ORDER BY last_name DESC, first_name DESC, id DESC LIMIT ?",
+				StudentQueries.findPage(true, true, "lastName", "desc", true));
+	}
+
+	/**
+	 * Все варианты разные, и их ровно shapeCount - столько мест нужно в кэше драйвера.
+	 */
+	@Test
+	void countsAllShapes() {
+		Set<String> shapes = new HashSet<>();
+		String[] sorts = {"id", "firstName", "lastName"};
+		String[] orders = {"asc", "desc"};
+		for (boolean byLastName : new boolean[]{false, true}) {
+			for (boolean byFirstName : new boolean[]{false, true}) {
+				shapes.add(StudentQueries.estimateCount(byLastName, byFirstName));
+				for (String sort : sorts) {
+					for (String order : orders) {
+						shapes.add(StudentQueries.findAll(byLastName, byFirstName, sort, order));
+						shapes.add(StudentQueries.findPage(byLastName, byFirstName, sort, order, false));
+						shapes.add(StudentQueries.findPage(byLastName, byFirstName, sort, order, true));
+					}
+				}
+			}
+		}
+		assertEquals(StudentQueries.shapeCount(), shapes.size());
+	}
+}
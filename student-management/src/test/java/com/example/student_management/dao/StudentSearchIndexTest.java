@@ -0,0 +1,67 @@
+package com.example.student_management.dao;
+
+import com.example.student_management.model.Students;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentSearchIndexTest {
+
+	private StudentSearchIndex index;
+
+	/**
+	 * Индекс с теми же студентами, что в schema.sql (там есть кириллица и казахские буквы).
+	 */
+	@BeforeEach
+	void setUp() {
+		index = new StudentSearchIndex();
+		index.rebuild(consumer -> List.of(
+				new Students(1, "The", "Rock", "22-02"),
+				new Students(2, "Dinmukhamed", "Aqtay", "22-02"),
+				new Students(3, "John", "IttynBalasy", "22-01"),
+				new Students(4, "Қақащи", "Минато", "22-02"),
+				new Students(5, "Мадра", "Щесуи", "22-01"),
+				new Students(6, "Tauasar", "Akniet", "22-02")
+		).forEach(consumer));
+	}
+
+	private static List<Integer> ids(List<Students> students) {
+		return students.stream().map(Students::getId).toList();
+	}
+
+	@Test
+	void findsSubstringInFirstOrLastName() {
+		assertTrue(index.isReady());
+		assertEquals(List.of(3), ids(index.search("balas", StudentDAO.NameMatch.CONTAINS, 10)));
+		assertEquals(List.of(4), ids(index.search("НАТ", StudentDAO.NameMatch.CONTAINS, 10)), "Search must be case-insensitive.");
+		assertEquals(List.of(4), ids(index.search("қақ", StudentDAO.NameMatch.CONTAINS, 10)), "Kazakh letters must be indexed.");
+		assertEquals(List.of(2, 6), ids(index.search("a", StudentDAO.NameMatch.PREFIX, 10)));
+	}
+
+	@Test
+	void prefixDoesNotMatchInsideWord() {
+		assertEquals(List.of(5), ids(index.search("щес", StudentDAO.NameMatch.PREFIX, 10)));
+		assertTrue(index.search("есу", StudentDAO.NameMatch.PREFIX, 10).isEmpty());
+		assertEquals(List.of(5), ids(index.search("есу", StudentDAO.NameMatch.CONTAINS, 10)));
+	}
+
+	@Test
+	void combinesFirstAndLastNameFilters() {
+		assertEquals(List.of(2), ids(index.find("dinmu", "aq", StudentDAO.NameMatch.CONTAINS)));
+		assertTrue(index.find("john", "rock", StudentDAO.NameMatch.CONTAINS).isEmpty());
+	}
+
+	@Test
+	void followsUpdatesAndDeletes() {
+		index.put(new Students(1, "The", "Stone", "22-02"));
+		assertTrue(index.search("rock", StudentDAO.NameMatch.CONTAINS, 10).isEmpty());
+		assertEquals(List.of(1), ids(index.search("ston", StudentDAO.NameMatch.CONTAINS, 10)));
+
+		index.remove(5);
+		assertTrue(index.search("мадра", StudentDAO.NameMatch.CONTAINS, 10).isEmpty());
+		assertEquals(5, index.size());
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.student_management.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordsTest {
+
+	/**
+	 * Поле в кавычках с переводом строки склеивается в одну запись, номера строк считаются по файлу.
+	 */
+	@Test
+	void joinsQuotedLineBreaks() throws Exception {
+		CsvRecords records = new CsvRecords(new BufferedReader(new StringReader(
+				"\uFEFFfirstName,lastName\n\"Иван\nмл.\",Петров\n\nThe,Rock\n")));
+
+		assertEquals(new CsvRecords.Record(1, "firstName,lastName"), records.next());
+		CsvRecords.Record multiline = records.next();
+		assertEquals(2, multiline.line());
+		assertEquals(List.of("Иван\nмл.", "Петров"), CsvRecords.split(multiline.text(), ','));
+		assertEquals(5, records.next().line());
+		assertNull(records.next());
+	}
+
+	/**
+	 * Незакрытая кавычка отклоняет одну запись: чтение продолжается со следующей строки,
+	 * и строки после нее читаются как обычно.
+	 */
+	@Test
+	void rejectsUnterminatedQuoteAndResumes() throws Exception {
+		CsvRecords records = new CsvRecords(new BufferedReader(new StringReader(
+				"id,name\n1,\"open\n2,Петров\n3,Rock\n4,\"x\n5,y\n")), 12);
+
+		assertEquals("id,name", records.next().text());
+		CsvRecords.Record rejected = records.next();
+		assertEquals(2, rejected.line());
+		assertTrue(rejected.error().contains("12 characters"));
+		assertEquals(new CsvRecords.Record(3, "2,Петров"), records.next());
+		assertEquals(new CsvRecords.Record(4, "3,Rock"), records.next());
+		CsvRecords.Record atEnd = records.next();
+		assertEquals(5, atEnd.line());
+		assertTrue(atEnd.error().contains("end of file"));
+		assertEquals(new CsvRecords.Record(6, "5,y"), records.next());
+		assertNull(records.next());
+	}
+
+	/**
+	 * Кавычки, пустые поля и ошибки в кавычках.
+	 */
+	@Test
+	void splitsFields() {
+		assertEquals(List.of("a", "", "b \"c\"", ""), CsvRecords.split("a;;\"b \"\"c\"\"\";", ';'));
+		assertEquals(';', CsvRecords.detectDelimiter("id;subject"));
+		assertEquals(',', CsvRecords.detectDelimiter("id,subject"));
+		assertThrows(IllegalArgumentException.class, () -> CsvRecords.split("\"open,x", ','));
+		assertThrows(IllegalArgumentException.class, () -> CsvRecords.split("\"a\"b,x", ','));
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.student_management.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GradeExportServiceTest {
+
+	private static String cell(String value, char separator) {
+		StringBuilder line = new StringBuilder();
+		GradeExportService.appendCell(line, value, separator);
+		return line.toString();
+	}
+
+	/**
+	 * Обычные значения пишутся как есть, разделитель, кавычки и переводы строк - в кавычках.
+	 */
+	@Test
+	void quotesOnlyWhenNeeded() {
+		assertEquals("Математика", cell("Математика", ','));
+		assertEquals("\"Иванов, мл.\"", cell("Иванов, мл.", ','));
+		assertEquals("Иванов, мл.", cell("Иванов, мл.", ';'));
+		assertEquals("\"The \"\"Rock\"\"\"", cell("The \"Rock\"", ','));
+		assertEquals("\"a\nb\"", cell("a\nb", ';'));
+		assertEquals("", cell(null, ','));
+	}
+
+	/**
+	 * Значения, похожие на формулу, Excel не должен вычислять.
+	 */
+	@Test
+	void escapesFormulas() {
+		assertEquals("\"'=1+1\"", cell("=1+1", ','));
+		assertEquals("\"'@SUM(A1)\"", cell("@SUM(A1)", ';'));
+		assertEquals("\"'-2\"", cell("-2", ','));
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.model.GradeSubmission;
+import com.example.student_management.model.Grades;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradeWriteBehindQueueTest {
+
+	/**
+	 * Писатель завис на записи дольше drain-timeout: оценки, оставшиеся в очереди, завершаются ошибкой
+	 * и не держат тех, кто ждет их записи, а пачку в работе писатель дописывает сам.
+	 */
+	@Test
+	void failsQueuedGradesWhenDrainTimesOut() throws Exception {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger ids = new AtomicInteger();
+		GradeDAO gradeDAO = new GradeDAO(null, null, null, null, null) {
+			@Override
+			public List<Grades> saveAll(List<Grades> grades) {
+				writing.countDown();
+				while (true) {
+					try {
+						release.await();
+						break;
+					} catch (InterruptedException e) {
+						// JDBC обычно тоже не реагирует на прерывание
+					}
+				}
+				grades.forEach(grade -> grade.setId(ids.incrementAndGet()));
+				return grades;
+			}
+		};
+		GradeWriteBehindQueue queue = new GradeWriteBehindQueue(gradeDAO, true, 10, 1, Duration.ZERO,
+				Duration.ofMillis(100), Duration.ofMillis(200), Duration.ofSeconds(10));
+		queue.start();
+
+		GradeWriteBehindQueue.Submission first = queue.submit(grade());
+		assertTrue(writing.await(5, TimeUnit.SECONDS));
+		GradeWriteBehindQueue.Submission second = queue.submit(grade());
+
+		queue.stop();
+		assertThrows(IllegalStateException.class, () -> queue.await(second));
+		assertEquals(GradeSubmission.Status.FAILED, queue.getSubmission(second.trackingId()).orElseThrow().getStatus());
+
+		release.countDown();
+		assertEquals(1, queue.await(first).getId());
+	}
+
+	private static Grades grade() {
+		Grades grade = new Grades();
+		grade.setStudentId(1);
+		grade.setSubject("Math");
+		grade.setScore(90);
+		grade.setGradeDate(LocalDate.of(2026, 9, 1));
+		return grade;
+	}
+}
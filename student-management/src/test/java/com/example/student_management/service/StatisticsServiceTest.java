@@ -0,0 +1,48 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.GradeStatisticsDAO;
+import com.example.student_management.model.GradeStatistics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsServiceTest {
+
+	/**
+	 * Проверка, что среднее, минимум, максимум, гистограмма и перцентили правильно считаются из распределения баллов.
+	 */
+	@Test
+	void buildsStatisticsFromScoreDistribution() {
+		long[] distribution = new long[GradeStatisticsDAO.MAX_SCORE + 1];
+		distribution[60] = 1;
+		distribution[88] = 2;
+		distribution[95] = 1;
+
+		GradeStatistics stats = StatisticsService.fromDistribution(
+				GradeStatisticsDAO.Dimension.SUBJECT, "Физика", distribution, 10);
+
+		assertEquals(4, stats.getCount());
+		assertEquals(82.75, stats.getAverage(), 1e-9);
+		assertEquals(60, stats.getMin());
+		assertEquals(95, stats.getMax());
+		assertEquals(11, stats.getHistogram().size(), "0-9, ..., 90-99 and a separate bucket for 100.");
+		assertEquals(2, stats.getHistogram().get(8).getCount());
+		assertEquals(88, stats.getPercentiles().get("p50"));
+		assertEquals(95, stats.getPercentiles().get("p90"));
+	}
+
+	/**
+	 * Без оценок статистика пустая, но гистограмма все равно есть (с нулями).
+	 */
+	@Test
+	void emptyDistributionHasNoAverage() {
+		GradeStatistics stats = StatisticsService.fromDistribution(
+				GradeStatisticsDAO.Dimension.GROUP, "22-02", new long[GradeStatisticsDAO.MAX_SCORE + 1], 25);
+
+		assertEquals(0, stats.getCount());
+		assertNull(stats.getAverage());
+		assertNull(stats.getMin());
+		assertTrue(stats.getPercentiles().isEmpty());
+		assertEquals(5, stats.getHistogram().size());
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.student_management.service;
+
+import com.example.student_management.dao.DeletedStudents;
+import com.example.student_management.dao.GradeDAO;
+import com.example.student_management.dao.StudentDAO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentPurgerTest {
+
+	/**
+	 * Студент, на котором очистка падает, уходит в конец очереди и не мешает чистить остальных.
+	 */
+	@Test
+	void movesFailingStudentToBack() {
+		DeletedStudents deletedStudents = new DeletedStudents();
+		deletedStudents.addAll(List.of(1, 2, 3));
+		List<Integer> attempts = new ArrayList<>();
+		GradeDAO gradeDAO = new GradeDAO(null, null, null, null, null) {
+			@Override
+			public int deleteGradesOfStudent(Integer studentId, int limit) {
+				attempts.add(studentId);
+				if (studentId == 1) {
+					throw new RuntimeException("Lock wait timeout exceeded");
+				}
+				return 0;
+			}
+		};
+		StudentDAO studentDAO = new StudentDAO(null, null, null, null, null, null, null, null) {
+			@Override
+			public boolean purgeStudentRow(Integer id) {
+				deletedStudents.remove(id);
+				return true;
+			}
+		};
+		StudentPurger purger = new StudentPurger(studentDAO, gradeDAO, deletedStudents, 500, Duration.ZERO);
+
+		assertThrows(RuntimeException.class, purger::purgeBatch);
+		assertTrue(purger.purgeBatch());
+		assertTrue(purger.purgeBatch());
+		assertThrows(RuntimeException.class, purger::purgeBatch);
+
+		assertEquals(List.of(1, 2, 3, 1), attempts);
+		assertEquals(2, purger.purgedStudents());
+		assertEquals(2, purger.failedBatches());
+		assertEquals(List.of(1), deletedStudents.snapshot());
+	}
+}